@@ -2,59 +2,101 @@ package com.example.demo;
 
 import com.example.demo.book.dao.BookDAO;
 import com.example.demo.book.repository.BookRepository;
+import com.example.demo.cache.CollectionVersions;
+import com.example.demo.loan.dao.ActiveLoanDAO;
 import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.repository.ActiveLoanRepository;
 import com.example.demo.loan.repository.LoanRepository;
 import com.example.demo.user.dao.UserDAO;
 import com.example.demo.user.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Demo data: ten users, books and loans, inserted unless the database already has data (the file profile keeps it
+ * across restarts). Replaced by the {@code BulkDataSeeder} when {@code app.seed.enabled=true}.
+ */
 @Component
+@Transactional
+@ConditionalOnProperty(name = "app.seed.enabled", havingValue = "false", matchIfMissing = true)
 public class Dataloader implements CommandLineRunner {
 
+    private static final Logger logger = LoggerFactory.getLogger(Dataloader.class);
+
     private final UserRepository userRepository;
     private final BookRepository bookRepository;
     private final LoanRepository loanRepository;
+    private final ActiveLoanRepository activeLoanRepository;
+    private final CollectionVersions collectionVersions;
 
-    public Dataloader(UserRepository userRepository, BookRepository bookRepository, LoanRepository loanRepository) {
+    public Dataloader(UserRepository userRepository, BookRepository bookRepository, LoanRepository loanRepository,
+                      ActiveLoanRepository activeLoanRepository, CollectionVersions collectionVersions) {
         this.userRepository = userRepository;
         this.bookRepository = bookRepository;
 
         this.loanRepository = loanRepository;
+        this.activeLoanRepository = activeLoanRepository;
+        this.collectionVersions = collectionVersions;
     }
 
     @Override
     public void run(String... args) {
+        if (userRepository.count() > 0 || bookRepository.count() > 0) {
+            logger.info("Dataloader: The database already has data, skipping the demo data.");
+            return;
+        }
 
         // Create 10 users
+        List<UserDAO> users = new ArrayList<>();
         for (int i = 1; i <= 10; i++) {
             UserDAO userDAO = new UserDAO();
             userDAO.setName("User " + i);
             userDAO.setPhoneNumber("123456789" + i);
             userDAO.setRegistrationDate(LocalDate.now());
-            userRepository.save(userDAO);
+            users.add(userDAO);
         }
+        users = userRepository.saveAll(users);
 
         // Create 10 books
+        List<BookDAO> books = new ArrayList<>();
         for (int i = 1; i <= 10; i++) {
             BookDAO bookDAO = new BookDAO();
             bookDAO.setTitle("Book " + i);
             bookDAO.setAuthor("Author " + i);
             bookDAO.setIsbn("ISBN " + i);
             bookDAO.setPublicationDate(LocalDate.now());
-            bookRepository.save(bookDAO);
+            books.add(bookDAO);
         }
+        books = bookRepository.saveAll(books);
 
-        // Create 10 loans
-        for (int i = 1; i <= 10; i++) {
+        // Create 10 loans, one per book, and register them in the book availability index
+        List<LoanDAO> loans = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
             LoanDAO loanDAO = new LoanDAO();
-            loanDAO.setBook(bookRepository.findById((long) i).orElse(null));
-            loanDAO.setUser(userRepository.findById((long) i).orElse(null));
+            loanDAO.setBook(books.get(i));
+            loanDAO.setUser(users.get(i));
             loanDAO.setLoanDate(LocalDate.now());
             loanDAO.setReturnDate(LocalDate.now().plusDays(30));
-            loanRepository.save(loanDAO);
+            loans.add(loanDAO);
         }
+        loans = loanRepository.saveAll(loans);
+
+        List<ActiveLoanDAO> activeLoans = new ArrayList<>();
+        for (LoanDAO loanDAO : loans) {
+            activeLoans.add(new ActiveLoanDAO(loanDAO.getBook().getId(), loanDAO.getId(), loanDAO.getReturnDate()));
+        }
+        activeLoanRepository.saveAll(activeLoans);
+
+        collectionVersions.bump(CollectionVersions.USERS);
+        collectionVersions.bump(CollectionVersions.BOOKS);
+        collectionVersions.bump(CollectionVersions.LOANS);
     }
-}
\ No newline at end of file
+}
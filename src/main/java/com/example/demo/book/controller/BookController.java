@@ -3,15 +3,19 @@ package com.example.demo.book.controller;
 import com.example.demo.book.dto.BookDTO;
 import com.example.demo.book.exception.BookException;
 import com.example.demo.book.service.BookService;
+import com.example.demo.exceptions.models.ExceptionEntity;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/books")
@@ -23,19 +27,53 @@ public class BookController {
     private BookService bookService;
 
     @GetMapping
-    List<BookDTO> getBooks() {
+    List<BookDTO> getBooks(WebRequest webRequest) {
         logger.info("Getting all books...");
+        if (webRequest.checkNotModified(bookService.getBooksVersion())) {
+            logger.info("BookController: getBooks() -> Books not modified.");
+            return null;
+        }
         List<BookDTO> listOfBooks = bookService.getBooks();
-        logger.info("BookController: getBooks() -> {} books obtained.", listOfBooks);
+        logger.info("BookController: getBooks() -> {} books obtained.", listOfBooks.size());
+        logger.debug("BookController: getBooks() -> {}", listOfBooks);
         return listOfBooks;
     }
 
+    @GetMapping("/search")
+    ResponseEntity<Object> searchBooks(@RequestParam("q") String query, @RequestParam(defaultValue = "20") int limit) {
+        logger.info("Searching books matching '{}'...", query);
+        try {
+            List<BookDTO> listOfBooks = bookService.searchBooks(query, limit);
+            logger.info("BookController: searchBooks() -> {} books found.", listOfBooks.size());
+            return ResponseEntity.ok(listOfBooks);
+        } catch (BookException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getErr());
+        }
+    }
+
+    @GetMapping("/isbn/{isbn}")
+    ResponseEntity<Object> getBookByIsbn(@PathVariable String isbn) {
+        logger.info("Getting book with ISBN {}...", isbn);
+        try {
+            BookDTO book = bookService.getBookByIsbn(isbn);
+            logger.debug("BookController: getBookByIsbn() -> Book obtained: {}", book);
+            return ResponseEntity.ok(book);
+        } catch (BookException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+        }
+    }
+
     @GetMapping("/{id}")
-    ResponseEntity<Object> getBookById(@PathVariable Long id) {
+    ResponseEntity<Object> getBookById(@PathVariable Long id, WebRequest webRequest) {
         logger.info("Getting book with id {}...", id);
+        Optional<String> version = bookService.getBookVersion(id);
+        if (version.isPresent() && webRequest.checkNotModified(version.get())) {
+            logger.debug("BookController: getBookById() -> Book {} not modified.", id);
+            return null;
+        }
         try {
             BookDTO book = bookService.getBookById(id);
-            logger.info("BookController: getBookById() -> Book obtained: {}", book);
+            logger.debug("BookController: getBookById() -> Book obtained: {}", book);
             return ResponseEntity.ok(book);
         } catch (BookException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
@@ -43,11 +81,15 @@ public class BookController {
     }
 
     @PostMapping
-    BookDTO createBook(@RequestBody BookDTO bookDTO) {
+    ResponseEntity<Object> createBook(@RequestBody BookDTO bookDTO) {
         logger.info("Creating a new book...");
-        BookDTO createdBook = bookService.createBook(bookDTO);
-        logger.info("BookController: createBook() -> Book created: {}", createdBook);
-        return createdBook;
+        try {
+            BookDTO createdBook = bookService.createBook(bookDTO);
+            logger.debug("BookController: createBook() -> Book created: {}", createdBook);
+            return ResponseEntity.ok(createdBook);
+        } catch (BookException e) {
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        }
     }
 
     @PutMapping("/{id}")
@@ -55,10 +97,13 @@ public class BookController {
         logger.info("Updating book with id {}...", id);
         try {
             BookDTO updatedBook = bookService.updateBook(id, bookDTO);
-            logger.info("BookController: updateBook() -> Book updated: {}", updatedBook);
+            logger.debug("BookController: updateBook() -> Book updated: {}", updatedBook);
             return ResponseEntity.ok(updatedBook);
         } catch (BookException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("BookController: Book with id {} was changed concurrently while it was updated", id);
+            return conflict(id);
         }
     }
 
@@ -67,11 +112,14 @@ public class BookController {
         logger.info("Partially updating book with id {}...", id);
         try {
             BookDTO updatedBook = bookService.partiallyUpdateBook(id, updates);
-            logger.info("BookController: partiallyUpdateBook() -> Book updated: {}", updatedBook);
+            logger.debug("BookController: partiallyUpdateBook() -> Book updated: {}", updatedBook);
             return ResponseEntity.ok(updatedBook);
         } catch (BookException e) {
             logger.error("BookController: Error partially updating book with id {}: {}", id, e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("BookController: Book with id {} was changed concurrently while it was partially updated", id);
+            return conflict(id);
         }
     }
 
@@ -81,4 +129,16 @@ public class BookController {
         bookService.deleteBook(id);
         logger.info("BookController: deleteBook() -> Book deleted with id: {}", id);
     }
+
+    /**
+     * Answer to an update that lost the version check to a concurrent change of the same book.
+     */
+    private static ResponseEntity<Object> conflict(Long id) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ExceptionEntity(409, "The book with id " + id + " was modified concurrently, please retry."));
+    }
+
+    private static HttpStatus statusOf(BookException e) {
+        return e.getErr().getCode() == HttpStatus.CONFLICT.value() ? HttpStatus.CONFLICT : HttpStatus.NOT_FOUND;
+    }
 }
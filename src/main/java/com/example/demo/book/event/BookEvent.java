@@ -0,0 +1,21 @@
+package com.example.demo.book.event;
+
+import com.example.demo.book.dto.BookDTO;
+
+/**
+ * A change of a book, published by {@code BookServiceImpl} within the transaction that makes it. The book is the
+ * state after the change, and is null when the book was deleted.
+ */
+public record BookEvent(String type, Long bookId, BookDTO book) {
+
+    public static final String SAVED = "saved";
+    public static final String DELETED = "deleted";
+
+    public static BookEvent saved(BookDTO book) {
+        return new BookEvent(SAVED, book.getId(), book);
+    }
+
+    public static BookEvent deleted(Long bookId) {
+        return new BookEvent(DELETED, bookId, null);
+    }
+}
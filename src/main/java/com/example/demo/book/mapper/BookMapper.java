@@ -3,6 +3,7 @@ package com.example.demo.book.mapper;
 import com.example.demo.book.dao.BookDAO;
 import com.example.demo.book.dto.BookDTO;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
 import java.util.List;
@@ -14,5 +15,6 @@ public interface BookMapper {
 
     BookDTO bookDAOToBookDTO(BookDAO bookDAO);
     List<BookDTO> bookDAOsToBookDTOs(List<BookDAO> listOfBookDAOs);
+    @Mapping(target = "version", ignore = true)
     BookDAO bookDTOToBookDAO(BookDTO bookDTO);
 }
@@ -0,0 +1,434 @@
+package com.example.demo.book.search;
+
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.event.BookEvent;
+import com.example.demo.book.mapper.BookMapper;
+import com.example.demo.book.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory inverted index over the title, author and ISBN of every book.
+ * <p>
+ * Terms live in a sorted dictionary so prefix queries are a range scan, and each term points to a compact
+ * list of document numbers. Writes are serialized and append-only (an update tombstones the old document and
+ * appends the new one); searches run lock-free against the current segment. The index is rebuilt from the
+ * database at startup and kept current by the {@link BookEvent}s of the {@code BookServiceImpl} write methods,
+ * which also makes it the hot ISBN lookup table. Changes are applied once their transaction commits, so searches
+ * never return a book that is rolled back.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final int TITLE = 1;
+    private static final int AUTHOR = 2;
+    private static final int ISBN = 4;
+
+    // Upper bound on the dictionary terms a single prefix expands to, so short prefixes stay cheap
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    // Best score a document can get from one query term: a whole-word match in every field
+    private static final int MAX_TERM_SCORE = 2 * (3 + 2 + 4);
+
+    // Deleted documents tolerated before the segment is rebuilt without them
+    private static final int MIN_COMPACTION_DELETES = 1024;
+
+    private final BookRepository bookRepository;
+
+    private final BookMapper bookMapper = BookMapper.INSTANCE;
+
+    private volatile Segment segment = new Segment();
+
+    public BookSearchIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Segment rebuilt = new Segment();
+        bookMapper.bookDAOsToBookDTOs(bookRepository.findAll()).forEach(rebuilt::add);
+        segment = rebuilt;
+        logger.info("BookSearchIndex: {} books indexed in {} ms.", rebuilt.live(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookEvent(BookEvent event) {
+        if (BookEvent.DELETED.equals(event.type())) {
+            remove(event.bookId());
+        } else {
+            index(event.book());
+        }
+    }
+
+    public synchronized void index(BookDTO book) {
+        Segment current = segment;
+        current.remove(book.getId());
+        current.add(book);
+        compactIfNeeded(current);
+    }
+
+    public synchronized void remove(Long id) {
+        Segment current = segment;
+        current.remove(id);
+        compactIfNeeded(current);
+    }
+
+    public int size() {
+        return segment.live();
+    }
+
+    /**
+     * The indexed book with exactly this ISBN, if any.
+     */
+    public Optional<BookDTO> findByIsbn(String isbn) {
+        return Optional.ofNullable(segment.findByIsbn(isbn));
+    }
+
+    /**
+     * Returns up to {@code limit} books matching every term of the query, best first. Each query term matches
+     * a whole word or the prefix of one; whole-word matches and matches in more specific fields rank higher.
+     */
+    public List<BookDTO> search(String query, int limit) {
+        List<String> queryTerms = tokenize(query).stream().distinct().toList();
+        if (queryTerms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        // Start from the rarest term so every further term only has to narrow down few candidates
+        Segment current = segment;
+        List<Expansion> expansions = new ArrayList<>(queryTerms.size());
+        for (String term : queryTerms) {
+            Expansion expansion = current.expand(term);
+            if (expansion.postings() == 0) {
+                return List.of();
+            }
+            expansions.add(expansion);
+        }
+        expansions.sort(Comparator.comparingInt(Expansion::postings));
+
+        long[] matches = current.match(expansions.get(0));
+        for (int i = 1; i < expansions.size() && matches.length > 0; i++) {
+            Expansion expansion = expansions.get(i);
+            // Binary-searching every expanded word per candidate only pays off while candidates are few
+            matches = (long) matches.length * expansion.docs().length < expansion.postings()
+                    ? probe(matches, expansion)
+                    : intersect(matches, current.match(expansion));
+        }
+        return current.top(matches, expansions.size() * MAX_TERM_SCORE, limit);
+    }
+
+    /**
+     * The candidates that also contain the expanded term, with the term's score added to theirs.
+     */
+    private static long[] probe(long[] candidates, Expansion expansion) {
+        long[] both = new long[candidates.length];
+        int n = 0;
+        for (long candidate : candidates) {
+            int doc = doc(candidate);
+            int termScore = 0;
+            for (int i = 0; i < expansion.docs().length; i++) {
+                int found = Arrays.binarySearch(expansion.docs()[i], 0, expansion.sizes()[i], doc);
+                if (found >= 0) {
+                    termScore = Math.max(termScore, weight(expansion.fields()[i][found]) * expansion.multipliers()[i]);
+                }
+            }
+            if (termScore > 0) {
+                both[n++] = pack(doc, score(candidate) + termScore);
+            }
+        }
+        return Arrays.copyOf(both, n);
+    }
+
+    /**
+     * Documents present in both sorted match lists, with their scores added up.
+     */
+    private static long[] intersect(long[] left, long[] right) {
+        long[] both = new long[Math.min(left.length, right.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            int leftDoc = doc(left[i]);
+            int rightDoc = doc(right[j]);
+            if (leftDoc < rightDoc) {
+                i++;
+            } else if (leftDoc > rightDoc) {
+                j++;
+            } else {
+                both[n++] = pack(leftDoc, score(left[i++]) + score(right[j++]));
+            }
+        }
+        return Arrays.copyOf(both, n);
+    }
+
+    // A match is packed as (document << 32 | score) so match lists sort by document without boxing
+    private static long pack(int doc, int score) {
+        return (long) doc << 32 | score;
+    }
+
+    private static int doc(long match) {
+        return (int) (match >>> 32);
+    }
+
+    private static int score(long match) {
+        return (int) match;
+    }
+
+    private void compactIfNeeded(Segment current) {
+        if (current.deleted > Math.max(MIN_COMPACTION_DELETES, current.live())) {
+            Segment compacted = new Segment();
+            current.liveDocuments().forEach(compacted::add);
+            segment = compacted;
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = text;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                // Strip accents only when there can be any, it is the slow part of indexing
+                folded = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+                break;
+            }
+        }
+
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (c == '-' && isDigitAround(folded, i)) {
+                // Hyphens inside numbers are dropped, so an ISBN is one word with or without them
+                continue;
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isDigitAround(String text, int i) {
+        return i > 0 && i + 1 < text.length() && Character.isDigit(text.charAt(i - 1)) && Character.isDigit(text.charAt(i + 1));
+    }
+
+    private static int weight(int fields) {
+        int weight = 0;
+        if ((fields & TITLE) != 0) {
+            weight += 3;
+        }
+        if ((fields & AUTHOR) != 0) {
+            weight += 2;
+        }
+        if ((fields & ISBN) != 0) {
+            weight += 4;
+        }
+        return weight;
+    }
+
+    /**
+     * One generation of the index. Only the thread holding the {@link BookSearchIndex} monitor mutates it; the
+     * volatile sizes publish appended entries to concurrent readers.
+     */
+    private static final class Segment {
+
+        private final ConcurrentSkipListMap<String, PostingList> terms = new ConcurrentSkipListMap<>();
+        private final Map<Long, Integer> documentsById = new ConcurrentHashMap<>();
+        private final Map<String, Integer> documentsByIsbn = new ConcurrentHashMap<>();
+        private volatile BookDTO[] documents = new BookDTO[1024];
+        private volatile int documentCount;
+        private int deleted;
+
+        void add(BookDTO book) {
+            int doc = documentCount;
+            if (doc == documents.length) {
+                documents = Arrays.copyOf(documents, doc * 2);
+            }
+            documents[doc] = book;
+
+            Map<String, Integer> fieldsByTerm = new HashMap<>();
+            tokenize(book.getTitle()).forEach(term -> fieldsByTerm.merge(term, TITLE, (a, b) -> a | b));
+            tokenize(book.getAuthor()).forEach(term -> fieldsByTerm.merge(term, AUTHOR, (a, b) -> a | b));
+            tokenize(book.getIsbn()).forEach(term -> fieldsByTerm.merge(term, ISBN, (a, b) -> a | b));
+            fieldsByTerm.forEach((term, fields) -> terms.computeIfAbsent(term, t -> new PostingList()).add(doc, fields));
+
+            documentCount = doc + 1;
+            documentsById.put(book.getId(), doc);
+            if (book.getIsbn() != null) {
+                documentsByIsbn.put(book.getIsbn(), doc);
+            }
+        }
+
+        void remove(Long id) {
+            Integer doc = id == null ? null : documentsById.remove(id);
+            if (doc != null) {
+                if (documents[doc].getIsbn() != null) {
+                    documentsByIsbn.remove(documents[doc].getIsbn(), doc);
+                }
+                documents[doc] = null;
+                deleted++;
+            }
+        }
+
+        int live() {
+            return documentsById.size();
+        }
+
+        BookDTO findByIsbn(String isbn) {
+            Integer doc = isbn == null ? null : documentsByIsbn.get(isbn);
+            return doc == null ? null : documents[doc];
+        }
+
+        List<BookDTO> liveDocuments() {
+            List<BookDTO> live = new ArrayList<>(live());
+            for (int doc = 0; doc < documentCount; doc++) {
+                if (documents[doc] != null) {
+                    live.add(documents[doc]);
+                }
+            }
+            return live;
+        }
+
+        /**
+         * The postings of the term and of up to {@link #MAX_PREFIX_TERMS} words starting with it, as of now.
+         */
+        Expansion expand(String term) {
+            NavigableMap<String, PostingList> words = terms.subMap(term, true, term + Character.MAX_VALUE, true);
+            int expanded = Math.min(words.size(), MAX_PREFIX_TERMS);
+            int[][] docs = new int[expanded][];
+            byte[][] fields = new byte[expanded][];
+            int[] sizes = new int[expanded];
+            int[] multipliers = new int[expanded];
+            int postings = 0;
+            int i = 0;
+            for (Map.Entry<String, PostingList> word : words.entrySet()) {
+                if (i == expanded) {
+                    break;
+                }
+                // Size first: the arrays read afterwards hold at least that many postings
+                sizes[i] = word.getValue().size;
+                docs[i] = word.getValue().docs;
+                fields[i] = word.getValue().fields;
+                multipliers[i] = word.getKey().equals(term) ? 2 : 1;
+                postings += sizes[i];
+                i++;
+            }
+            return new Expansion(Arrays.copyOf(docs, i), Arrays.copyOf(fields, i), sizes, multipliers, postings);
+        }
+
+        /**
+         * Live documents in the expansion, sorted by document with the best score each one gets from any of
+         * the expanded words.
+         */
+        long[] match(Expansion expansion) {
+            BookDTO[] docs = documents;
+            long[] matches = new long[expansion.postings()];
+            int n = 0;
+            for (int i = 0; i < expansion.docs().length; i++) {
+                int[] postingDocs = expansion.docs()[i];
+                byte[] postingFields = expansion.fields()[i];
+                for (int j = 0; j < expansion.sizes()[i]; j++) {
+                    int doc = postingDocs[j];
+                    if (doc < docs.length && docs[doc] != null) {
+                        matches[n++] = pack(doc, weight(postingFields[j]) * expansion.multipliers()[i]);
+                    }
+                }
+            }
+            if (expansion.docs().length == 1) {
+                // Postings are appended in document order, so a single word is already sorted and unique
+                return n == matches.length ? matches : Arrays.copyOf(matches, n);
+            }
+
+            Arrays.sort(matches, 0, n);
+            int unique = 0;
+            for (int i = 0; i < n; i++) {
+                // Equal documents sort together with the best score last
+                if (unique > 0 && doc(matches[unique - 1]) == doc(matches[i])) {
+                    matches[unique - 1] = matches[i];
+                } else {
+                    matches[unique++] = matches[i];
+                }
+            }
+            return Arrays.copyOf(matches, unique);
+        }
+
+        /**
+         * The {@code limit} best matches, highest score first and the oldest document first on ties. Scores are
+         * small integers, so matches are bucketed by score in one pass instead of sorted.
+         */
+        List<BookDTO> top(long[] matches, int maxScore, int limit) {
+            int[][] buckets = new int[maxScore + 1][];
+            int[] counts = new int[maxScore + 1];
+            for (long match : matches) {
+                int score = score(match);
+                if (counts[score] < limit) {
+                    if (buckets[score] == null) {
+                        buckets[score] = new int[limit];
+                    }
+                    // Matches are in document order, so each bucket keeps its oldest documents
+                    buckets[score][counts[score]++] = doc(match);
+                }
+            }
+
+            List<BookDTO> results = new ArrayList<>(Math.min(limit, matches.length));
+            for (int score = maxScore; score > 0 && results.size() < limit; score--) {
+                for (int i = 0; i < counts[score] && results.size() < limit; i++) {
+                    // A concurrent delete may have tombstoned the document since it was matched
+                    BookDTO book = documents[buckets[score][i]];
+                    if (book != null) {
+                        results.add(book);
+                    }
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * The posting lists a query term expands to, with their sizes fixed when the query started.
+     */
+    private record Expansion(int[][] docs, byte[][] fields, int[] sizes, int[] multipliers, int postings) {
+    }
+
+    /**
+     * Growable list of (document, fields) postings for one term.
+     */
+    private static final class PostingList {
+
+        // Most words (every ISBN, rare title words) only ever have one or two postings
+        private volatile int[] docs = new int[2];
+        private volatile byte[] fields = new byte[2];
+        private volatile int size;
+
+        void add(int doc, int fieldMask) {
+            int n = size;
+            int[] currentDocs = docs;
+            byte[] currentFields = fields;
+            if (n == currentDocs.length) {
+                currentDocs = Arrays.copyOf(currentDocs, n * 2);
+                currentFields = Arrays.copyOf(currentFields, n * 2);
+            }
+            currentDocs[n] = doc;
+            currentFields[n] = (byte) fieldMask;
+            docs = currentDocs;
+            fields = currentFields;
+            size = n + 1;
+        }
+    }
+}
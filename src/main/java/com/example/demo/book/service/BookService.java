@@ -4,10 +4,15 @@ import com.example.demo.book.dto.BookDTO;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface BookService {
     List<BookDTO> getBooks();
     BookDTO getBookById(Long id);
+    String getBooksVersion();
+    Optional<String> getBookVersion(Long id);
+    BookDTO getBookByIsbn(String isbn);
+    List<BookDTO> searchBooks(String query, int limit);
     BookDTO createBook(BookDTO bookDTO);
     BookDTO updateBook(Long id, BookDTO bookDTO);
     BookDTO partiallyUpdateBook(Long id, Map<String, String> updates);
@@ -2,21 +2,38 @@ package com.example.demo.book.service.impl;
 
 import com.example.demo.book.dao.BookDAO;
 import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.event.BookEvent;
 import com.example.demo.book.exception.BookException;
 import com.example.demo.exceptions.models.ExceptionEntity;
 import com.example.demo.book.mapper.BookMapper;
 import com.example.demo.book.repository.BookRepository;
+import com.example.demo.book.search.BookSearchIndex;
 import com.example.demo.book.service.BookService;
+import com.example.demo.cache.CollectionVersions;
+import com.example.demo.outbox.Outbox;
+import com.example.demo.outbox.OutboxEvent;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
+@Timed(value = "library.service", histogram = true)
 public class BookServiceImpl implements BookService {
 
     private static final Logger logger = LoggerFactory.getLogger(BookServiceImpl.class);
@@ -24,9 +41,25 @@ public class BookServiceImpl implements BookService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    // The search index follows book changes once they commit, see BookSearchIndex#onBookEvent
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     private static final BookMapper bookMapper = BookMapper.INSTANCE;
 
+    static final int MAX_SEARCH_LIMIT = 100;
+
     @Override
+    @Cacheable(cacheNames = "bookList", key = "'all'")
     public List<BookDTO> getBooks() {
         logger.debug("LibroServiceImpl: Getting all books...");
         List<BookDAO> listOfBooksDAO = bookRepository.findAll();
@@ -36,6 +69,7 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    @Cacheable(cacheNames = "books", key = "#id")
     public BookDTO getBookById(Long id) throws BookException {
         logger.debug("BookServiceImpl: Getting book with id {}...", id);
         ExceptionEntity err = new ExceptionEntity(501, "Book not found with id: " + id);
@@ -46,16 +80,61 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    public String getBooksVersion() {
+        return collectionVersions.find(CollectionVersions.BOOKS);
+    }
+
+    /**
+     * Version of the book, usually answered by the second-level cache without a query.
+     */
+    @Override
+    public Optional<String> getBookVersion(Long id) {
+        return bookRepository.findById(id).map(bookDAO -> String.valueOf(bookDAO.getVersion()));
+    }
+
+    @Override
+    public BookDTO getBookByIsbn(String isbn) {
+        logger.debug("BookServiceImpl: Getting book with ISBN {}...", isbn);
+        BookDTO bookDTO = bookSearchIndex.findByIsbn(isbn).orElseGet(() -> {
+            ExceptionEntity err = new ExceptionEntity(501, "Book not found with ISBN: " + isbn);
+            return bookMapper.bookDAOToBookDTO(bookRepository.findByIsbn(isbn).orElseThrow(() -> new BookException(err)));
+        });
+        logger.debug("BookServiceImpl: getBookByIsbn() -> Book obtained: {}", bookDTO);
+        return bookDTO;
+    }
+
+    @Override
+    public List<BookDTO> searchBooks(String query, int limit) {
+        logger.debug("BookServiceImpl: Searching books matching '{}'...", query);
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            ExceptionEntity err = new ExceptionEntity(400, "The limit must be between 1 and " + MAX_SEARCH_LIMIT + ".");
+            throw new BookException(err);
+        }
+        List<BookDTO> listOfBooksDTOs = bookSearchIndex.search(query, limit);
+        logger.debug("BookServiceImpl: searchBooks() -> {} books found.", listOfBooksDTOs.size());
+        return listOfBooksDTOs;
+    }
+
+    @Override
+    @Transactional
+    @Caching(put = @CachePut(cacheNames = "books", key = "#result.id"),
+            evict = @CacheEvict(cacheNames = "bookList", allEntries = true))
     public BookDTO createBook(BookDTO bookDTO) {
         logger.debug("BookServiceImpl: Creating a new book...");
         BookDAO bookDAO = bookMapper.bookDTOToBookDAO(bookDTO);
-        BookDAO createdBookDAO = bookRepository.save(bookDAO);
+        BookDAO createdBookDAO = saveWithUniqueIsbn(bookDAO);
         BookDTO createdBookDTO = bookMapper.bookDAOToBookDTO(createdBookDAO);
+        outbox.record(OutboxEvent.BOOK, createdBookDTO.getId(), OutboxEvent.CREATED, createdBookDTO);
+        eventPublisher.publishEvent(BookEvent.saved(createdBookDTO));
+        collectionVersions.bump(CollectionVersions.BOOKS);
         logger.debug("BookServiceImpl: createBook() -> Book created: {}", createdBookDTO);
         return createdBookDTO;
     }
 
     @Override
+    @Transactional
+    @Caching(put = @CachePut(cacheNames = "books", key = "#id"),
+            evict = @CacheEvict(cacheNames = "bookList", allEntries = true))
     public BookDTO updateBook(Long id, BookDTO bookDTO) {
         logger.debug("BookServiceImpl: Updating book with id {}...", id);
         ExceptionEntity err = new ExceptionEntity(501, "Book not found with id: " + id);
@@ -65,14 +144,20 @@ public class BookServiceImpl implements BookService {
         bookDAO.setAuthor(bookDTO.getAuthor());
         bookDAO.setIsbn(bookDTO.getIsbn());
         bookDAO.setPublicationDate(bookDTO.getPublicationDate());
-        BookDAO updatedBookDAO = bookRepository.save(bookDAO);
+        BookDAO updatedBookDAO = saveWithUniqueIsbn(bookDAO);
         BookDTO updatedBookDTO = bookMapper.bookDAOToBookDTO(updatedBookDAO);
+        outbox.record(OutboxEvent.BOOK, id, OutboxEvent.UPDATED, updatedBookDTO);
+        eventPublisher.publishEvent(BookEvent.saved(updatedBookDTO));
+        collectionVersions.bump(CollectionVersions.BOOKS);
 
         logger.debug("BookServiceImpl: updateBook() -> Book updated: {}", updatedBookDTO);
         return updatedBookDTO;
     }
 
     @Override
+    @Transactional
+    @Caching(put = @CachePut(cacheNames = "books", key = "#id"),
+            evict = @CacheEvict(cacheNames = "bookList", allEntries = true))
     public BookDTO partiallyUpdateBook(Long id, Map<String, String> updates) {
         logger.debug("BookServiceImpl: Partially updating book with id {}...", id);
         ExceptionEntity err = new ExceptionEntity(501, "Book not found with id: " + id);
@@ -91,8 +176,11 @@ public class BookServiceImpl implements BookService {
             bookDAO.setPublicationDate(LocalDate.parse(updates.get("publicationDate")));
         }
 
-        BookDAO updatedBookDAO = bookRepository.save(bookDAO);
+        BookDAO updatedBookDAO = saveWithUniqueIsbn(bookDAO);
         BookDTO updatedBookDTO = bookMapper.bookDAOToBookDTO(updatedBookDAO);
+        outbox.record(OutboxEvent.BOOK, id, OutboxEvent.UPDATED, updatedBookDTO);
+        eventPublisher.publishEvent(BookEvent.saved(updatedBookDTO));
+        collectionVersions.bump(CollectionVersions.BOOKS);
 
         logger.debug("BookServiceImpl: partiallyUpdateBook() -> Book updated: {}", updatedBookDTO);
         return updatedBookDTO;
@@ -100,9 +188,49 @@ public class BookServiceImpl implements BookService {
 
 
     @Override
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "books", key = "#id"),
+            @CacheEvict(cacheNames = "bookList", allEntries = true)
+    })
     public void deleteBook(Long id) {
         logger.debug("BookServiceImpl: Deleting book with id {}...", id);
+        if (!bookRepository.existsById(id)) {
+            // Nothing was deleted, so there is no change to record or announce
+            logger.debug("BookServiceImpl: deleteBook() -> No book with id: {}", id);
+            return;
+        }
         bookRepository.deleteById(id);
+        // A book that still has loans fails here, inside the method, rather than on commit
+        bookRepository.flush();
+        outbox.record(OutboxEvent.BOOK, id, OutboxEvent.DELETED, null);
+        eventPublisher.publishEvent(BookEvent.deleted(id));
+        collectionVersions.bump(CollectionVersions.BOOKS);
         logger.debug("BookServiceImpl: deleteBook() -> Book deleted with id: {}", id);
     }
+
+    /**
+     * Saves the book, rejecting an ISBN that already belongs to another book. The in-memory index answers
+     * the common case without a query; the unique constraint catches the rest, on the flush that follows the save.
+     */
+    private BookDAO saveWithUniqueIsbn(BookDAO bookDAO) {
+        ExceptionEntity err = new ExceptionEntity(409, "A book with ISBN " + bookDAO.getIsbn() + " already exists.");
+        bookSearchIndex.findByIsbn(bookDAO.getIsbn())
+                .filter(existing -> !Objects.equals(existing.getId(), bookDAO.getId()))
+                .ifPresent(existing -> {
+                    throw new BookException(err);
+                });
+        try {
+            BookDAO savedBookDAO = bookRepository.save(bookDAO);
+            bookRepository.flush();
+            return savedBookDAO;
+        } catch (DataIntegrityViolationException e) {
+            // The failed flush leaves the transaction unusable for a lookup, so the violated constraint tells
+            String message = e.getMostSpecificCause().getMessage();
+            if (message != null && message.toLowerCase(Locale.ROOT).contains("uk_books_isbn")) {
+                throw new BookException(err);
+            }
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package com.example.demo.cache;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row of the {@code collection_versions} table used by {@link CollectionVersions}. Mapped only so the schema is
+ * created and validated with the others; the counter is read and written with plain SQL.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "collection_versions")
+public class CollectionVersionDAO {
+    @Id
+    @Column(length = 20)
+    private String name;
+
+    @Column(nullable = false)
+    private long version;
+}
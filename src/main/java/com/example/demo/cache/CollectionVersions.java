@@ -0,0 +1,60 @@
+package com.example.demo.cache;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Versions of the book, user and loan collections, the ETags of {@code GET /books}, {@code /users} and
+ * {@code /loans}. Every write bumps the version of its collection in the transaction that makes it, so a conditional GET
+ * reads a few rows by primary key instead of aggregating the tables.
+ * <p>
+ * A collection's row is created by its first write, starting at the current time, so a recreated database does not
+ * hand out the ETags of the previous one. Writers of a collection queue on its row from the bump until they commit,
+ * which is why the services bump last.
+ */
+@Component
+public class CollectionVersions {
+
+    public static final String BOOKS = "books";
+    public static final String USERS = "users";
+    public static final String LOANS = "loans";
+
+    private static final String BUMP = "MERGE INTO collection_versions c USING (VALUES (CAST(? AS VARCHAR(20)))) s (name) "
+            + "ON c.name = s.name "
+            + "WHEN MATCHED THEN UPDATE SET version = c.version + 1 "
+            + "WHEN NOT MATCHED THEN INSERT (name, version) VALUES (s.name, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CollectionVersions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Records that the collection changed. Joins the caller's transaction, so it is rolled back with the change.
+     */
+    @Transactional
+    public void bump(String collection) {
+        jdbcTemplate.update(BUMP, collection, System.currentTimeMillis());
+    }
+
+    /**
+     * Versions of the collections, in the given order and joined with dots. A collection that was never written
+     * is at 0.
+     */
+    public String find(String... collections) {
+        Map<String, Long> versions = new HashMap<>();
+        jdbcTemplate.query("SELECT name, version FROM collection_versions",
+                (RowCallbackHandler) rs -> versions.put(rs.getString(1), rs.getLong(2)));
+        return Arrays.stream(collections)
+                .map(collection -> String.valueOf(versions.getOrDefault(collection, 0L)))
+                .collect(Collectors.joining("."));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import javax.cache.CacheManager;
+
+/**
+ * Tells whether the second-level cache holds an entity, so a caller can choose between reading it from the cache
+ * and a query that reads it together with other rows.
+ * <p>
+ * Looks at the region's map view, which leaves the hit and miss statistics alone; a JCache {@code containsKey}
+ * would count as a lookup. The bare id is the key because {@link SecondLevelCacheConfiguration} uses Hibernate's
+ * simple cache keys, each region holding a single entity type.
+ */
+public class SecondLevelCache {
+
+    private final CacheManager cacheManager;
+
+    SecondLevelCache(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public boolean contains(Class<?> entityClass, Object id) {
+        org.hibernate.annotations.Cache cached = entityClass.getAnnotation(org.hibernate.annotations.Cache.class);
+        if (cached == null || id == null) {
+            return false;
+        }
+        javax.cache.Cache<Object, Object> region = cacheManager.getCache(cached.region());
+        return region != null && region.unwrap(Cache.class).asMap().containsKey(id);
+    }
+}
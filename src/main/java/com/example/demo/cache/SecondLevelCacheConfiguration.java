@@ -0,0 +1,91 @@
+package com.example.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.cache.internal.SimpleCacheKeysFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache for the reference data (books and users) and the query cache, on Caffeine through
+ * JCache.
+ * <p>
+ * Every region is created up front from {@link SecondLevelCacheProperties}, and Hibernate is told to fail on a
+ * region that is not configured, so no region silently grows without bound. Each context gets its own cache
+ * manager, which Hibernate closes with the session factory. Every region holds a single entity type, so entries
+ * are keyed by the bare id (Hibernate's simple cache keys).
+ * <p>
+ * The regions report the same {@code cache.gets}, {@code cache.puts}, {@code cache.evictions} and
+ * {@code cache.size} metrics as the Spring caches, tagged {@code cache.manager=hibernate}, plus
+ * {@code cache.hit.ratio}.
+ */
+@Configuration
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheConfiguration.class);
+
+    static final String CACHE_MANAGER_TAG = "hibernate";
+
+    private final CacheManager cacheManager;
+
+    public SecondLevelCacheConfiguration(SecondLevelCacheProperties properties) {
+        cacheManager = new CaffeineCachingProvider().getCacheManager();
+        properties.regions().forEach((name, region) -> {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(region.maximumSize()));
+            if (region.expireAfterWrite() != null) {
+                configuration.setExpireAfterWrite(OptionalLong.of(region.expireAfterWrite().toNanos()));
+            }
+            configuration.setNativeStatisticsEnabled(true);
+            cacheManager.createCache(name, configuration);
+            logger.info("SecondLevelCacheConfiguration: Region {} holds up to {} entries, expiring after {}.",
+                    name, region.maximumSize(), region.expireAfterWrite() == null ? "never" : region.expireAfterWrite());
+        });
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheManager() {
+        return hibernateProperties -> {
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            // The JCache region factory only takes its keys factory through the constructor
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, new JCacheRegionFactory(SimpleCacheKeysFactory.INSTANCE));
+        };
+    }
+
+    @Bean
+    SecondLevelCache secondLevelCache() {
+        return new SecondLevelCache(cacheManager);
+    }
+
+    @Bean
+    MeterBinder secondLevelCacheMetrics() {
+        return registry -> {
+            for (String name : cacheManager.getCacheNames()) {
+                Cache<?, ?> cache = cacheManager.getCache(name).unwrap(Cache.class);
+                Tags tags = Tags.of("cache.manager", CACHE_MANAGER_TAG);
+                CaffeineCacheMetrics.monitor(registry, cache, name, tags);
+                Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                        .tags(tags.and("cache", name))
+                        .description("The ratio of cache lookups that found an entry")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Sizing of the Hibernate second-level cache regions, keyed by region name:
+ * {@code app.second-level-cache.regions.<region>.maximum-size} and {@code ...expire-after-write}.
+ * A region without {@code expire-after-write} only evicts by size.
+ */
+@ConfigurationProperties("app.second-level-cache")
+public record SecondLevelCacheProperties(Map<String, Region> regions) {
+
+    public SecondLevelCacheProperties {
+        regions = regions == null ? Map.of() : Map.copyOf(regions);
+    }
+
+    public record Region(long maximumSize, Duration expireAfterWrite) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurer;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Makes {@code @CachePut} and {@code @CacheEvict} wait for the surrounding transaction: a write that rolls back
+ * never reaches the cache, and no other request sees a cached book before it is committed. Outside a transaction
+ * they still apply at once.
+ * <p>
+ * Only the caching annotations go through the proxy. The {@link CacheManager} bean stays the one Boot creates
+ * from {@code spring.cache.*}, so its caches keep their metrics and can be read directly.
+ */
+@Configuration
+public class TransactionAwareCacheConfiguration implements CachingConfigurer {
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public TransactionAwareCacheConfiguration(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public CacheManager cacheManager() {
+        return new TransactionAwareCacheManagerProxy(cacheManager.getObject());
+    }
+}
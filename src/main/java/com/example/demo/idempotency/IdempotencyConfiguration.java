@@ -0,0 +1,49 @@
+package com.example.demo.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Idempotency keys for the create endpoints ({@code POST /loans}, {@code /books} and {@code /users}). The keys are
+ * kept in memory by default; {@code app.idempotency.store=jdbc} keeps them in the database instead.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyConfiguration {
+
+    static final String[] URL_PATTERNS = {"/loans", "/books", "/users"};
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "memory", matchIfMissing = true)
+    IdempotencyStore inMemoryIdempotencyStore(@Value("${app.idempotency.maximum-size:100000}") long maximumSize,
+                                              @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                                              @Value("${app.idempotency.in-progress-timeout:1m}") Duration inProgressTimeout) {
+        return new InMemoryIdempotencyStore(maximumSize, ttl, inProgressTimeout);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "jdbc")
+    IdempotencyStore jdbcIdempotencyStore(JdbcTemplate jdbcTemplate,
+                                          @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                                          @Value("${app.idempotency.in-progress-timeout:1m}") Duration inProgressTimeout) {
+        return new JdbcIdempotencyStore(jdbcTemplate, ttl, inProgressTimeout, Clock.systemUTC());
+    }
+
+    @Bean
+    FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore idempotencyStore, ObjectMapper objectMapper,
+                                                                MeterRegistry meterRegistry) {
+        FilterRegistrationBean<IdempotencyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyStore, objectMapper, meterRegistry));
+        registration.addUrlPatterns(URL_PATTERNS);
+        return registration;
+    }
+}
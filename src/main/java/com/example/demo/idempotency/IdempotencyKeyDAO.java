@@ -0,0 +1,38 @@
+package com.example.demo.idempotency;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row of the {@code idempotency_keys} table used by {@link JdbcIdempotencyStore}. Mapped only so the schema is
+ * created and validated with the others; the store reads and writes it with plain SQL.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+public class IdempotencyKeyDAO {
+    @Id
+    @Column(name = "idempotency_key", length = 300)
+    private String key;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    private Integer status;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Lob
+    private byte[] body;
+
+    // Epoch milliseconds
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+}
@@ -0,0 +1,16 @@
+package com.example.demo.idempotency;
+
+/**
+ * What is stored under an idempotency key: the fingerprint of the request that claimed it and, once that request
+ * has completed, its response. A record without a status is still in progress.
+ */
+public record IdempotencyRecord(String fingerprint, Integer status, String contentType, byte[] body) {
+
+    static IdempotencyRecord inProgress(String fingerprint) {
+        return new IdempotencyRecord(fingerprint, null, null, null);
+    }
+
+    public boolean isComplete() {
+        return status != null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.idempotency;
+
+/**
+ * Idempotency keys and the responses recorded under them. Implementations must make {@link #claim} atomic, so of
+ * several concurrent requests with the same key exactly one runs.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for a request with the given fingerprint. Returns {@code null} if the caller now owns the
+     * key, or the record already stored under it (in progress or complete) otherwise.
+     */
+    IdempotencyRecord claim(String key, String fingerprint);
+
+    /**
+     * Stores the response of the request that claimed the key, to be replayed to later requests with the same key.
+     */
+    void complete(String key, IdempotencyRecord record);
+
+    /**
+     * Gives up a claimed key without storing a response, so the request can be retried.
+     */
+    void release(String key);
+}
@@ -0,0 +1,59 @@
+package com.example.demo.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+
+/**
+ * Idempotency keys in a Caffeine cache bounded by size. A claimed key expires after the in-progress timeout, so a
+ * request that never completes cannot block its key for long; a completed one lives for the full TTL.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, IdempotencyRecord> records;
+
+    public InMemoryIdempotencyStore(long maximumSize, Duration ttl, Duration inProgressTimeout) {
+        this(maximumSize, ttl, inProgressTimeout, Ticker.systemTicker());
+    }
+
+    InMemoryIdempotencyStore(long maximumSize, Duration ttl, Duration inProgressTimeout, Ticker ticker) {
+        records = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .ticker(ticker)
+                .expireAfter(new Expiry<String, IdempotencyRecord>() {
+                    @Override
+                    public long expireAfterCreate(String key, IdempotencyRecord record, long currentTime) {
+                        return (record.isComplete() ? ttl : inProgressTimeout).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, IdempotencyRecord record, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, record, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, IdempotencyRecord record, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public IdempotencyRecord claim(String key, String fingerprint) {
+        return records.asMap().putIfAbsent(key, IdempotencyRecord.inProgress(fingerprint));
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord record) {
+        records.put(key, record);
+    }
+
+    @Override
+    public void release(String key) {
+        records.invalidate(key);
+    }
+}
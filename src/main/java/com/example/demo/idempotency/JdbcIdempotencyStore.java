@@ -0,0 +1,85 @@
+package com.example.demo.idempotency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Idempotency keys in the {@code idempotency_keys} table, so they survive restarts and are shared by every
+ * instance using the database. The primary key makes the claim atomic; expired rows are reclaimed on the next
+ * claim and purged in the background.
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcIdempotencyStore.class);
+
+    private static final int CLAIM_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Duration ttl;
+
+    private final Duration inProgressTimeout;
+
+    private final Clock clock;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, Duration ttl, Duration inProgressTimeout, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.inProgressTimeout = inProgressTimeout;
+        this.clock = clock;
+    }
+
+    @Override
+    public IdempotencyRecord claim(String key, String fingerprint) {
+        for (int attempt = 0; attempt < CLAIM_ATTEMPTS; attempt++) {
+            long now = clock.millis();
+            try {
+                jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, fingerprint, expires_at) VALUES (?, ?, ?)",
+                        key, fingerprint, now + inProgressTimeout.toMillis());
+                return null;
+            } catch (DuplicateKeyException e) {
+                List<StoredRecord> stored = jdbcTemplate.query(
+                        "SELECT fingerprint, status, content_type, body, expires_at FROM idempotency_keys WHERE idempotency_key = ?",
+                        (rs, rowNum) -> new StoredRecord(new IdempotencyRecord(rs.getString(1), (Integer) rs.getObject(2),
+                                rs.getString(3), rs.getBytes(4)), rs.getLong(5)),
+                        key);
+                if (!stored.isEmpty() && stored.get(0).expiresAt() > now) {
+                    return stored.get(0).record();
+                }
+                if (!stored.isEmpty()) {
+                    // Expired: take it over, unless another request did so first
+                    jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND expires_at = ?",
+                            key, stored.get(0).expiresAt());
+                }
+            }
+        }
+        throw new IllegalStateException("Could not claim idempotency key " + key);
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord record) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET status = ?, content_type = ?, body = ?, expires_at = ? WHERE idempotency_key = ?",
+                record.status(), record.contentType(), record.body(), clock.millis() + ttl.toMillis(), key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ?", key);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:10m}")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ?", clock.millis());
+        logger.debug("JdbcIdempotencyStore: purgeExpired() -> {} expired keys deleted.", purged);
+    }
+
+    private record StoredRecord(IdempotencyRecord record, long expiresAt) {
+    }
+}
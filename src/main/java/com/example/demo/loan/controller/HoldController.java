@@ -0,0 +1,72 @@
+package com.example.demo.loan.controller;
+
+import com.example.demo.book.exception.BookException;
+import com.example.demo.loan.dto.HoldDTO;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.service.HoldService;
+import com.example.demo.user.exception.UserException;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/books/{bookId}/holds")
+@AllArgsConstructor
+public class HoldController {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldController.class);
+
+    private final HoldService holdService;
+
+    @PostMapping
+    ResponseEntity<Object> placeHold(@PathVariable Long bookId, @RequestBody HoldDTO holdDTO) {
+        logger.info("Placing a hold on book {}...", bookId);
+        try {
+            HoldDTO placedHold = holdService.placeHold(bookId, holdDTO);
+            logger.debug("HoldController: placeHold() -> Hold placed: {}", placedHold);
+            return ResponseEntity.ok(placedHold);
+        } catch (LoanException e) {
+            logger.error("HoldController: Error placing a hold on book {}: {}", bookId, e.getMessage());
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        } catch (BookException e) {
+            logger.error("HoldController: Error placing a hold on book {}: {}", bookId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+        } catch (UserException e) {
+            logger.error("HoldController: Error placing a hold on book {}: {}", bookId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+        }
+    }
+
+    @GetMapping("/{holdId}")
+    ResponseEntity<Object> getHold(@PathVariable Long bookId, @PathVariable Long holdId) {
+        logger.info("Getting hold {} of book {}...", holdId, bookId);
+        try {
+            HoldDTO hold = holdService.getHold(bookId, holdId);
+            logger.debug("HoldController: getHold() -> Hold obtained: {}", hold);
+            return ResponseEntity.ok(hold);
+        } catch (LoanException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+        }
+    }
+
+    @DeleteMapping("/{holdId}")
+    ResponseEntity<Object> cancelHold(@PathVariable Long bookId, @PathVariable Long holdId) {
+        logger.info("Cancelling hold {} of book {}...", holdId, bookId);
+        try {
+            holdService.cancelHold(bookId, holdId);
+            logger.info("HoldController: cancelHold() -> Hold cancelled with id: {}", holdId);
+            return ResponseEntity.ok().build();
+        } catch (LoanException e) {
+            logger.error("HoldController: Error cancelling hold {} of book {}: {}", holdId, bookId, e.getMessage());
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        }
+    }
+
+    private static HttpStatus statusOf(LoanException e) {
+        HttpStatus status = HttpStatus.resolve(e.getErr().getCode());
+        return status != null && status.isError() ? status : HttpStatus.NOT_FOUND;
+    }
+}
@@ -1,17 +1,35 @@
 package com.example.demo.loan.controller;
 
+import com.example.demo.book.exception.BookException;
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.dto.LoanBatchResultDTO;
 import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.event.LoanEventBroadcaster;
 import com.example.demo.loan.exception.LoanException;
 import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.exception.UserException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/loans")
@@ -22,20 +40,103 @@ public class LoanController {
 
     private final LoanService loanService;
 
+    private final ObjectMapper objectMapper;
+
+    private final LoanEventBroadcaster loanEventBroadcaster;
+
     @GetMapping
-    List<LoanDTO> getLoans() {
+    List<LoanDTO> getLoans(WebRequest webRequest) {
         logger.info("Getting all loans...");
+        if (webRequest.checkNotModified(loanService.getLoansVersion())) {
+            logger.info("LoanController: getLoans() -> Loans not modified.");
+            return null;
+        }
         List<LoanDTO> listOfLoans = loanService.getLoans();
-        logger.info("LoanController: getLoans() -> {} loans obtained.", listOfLoans);
+        logger.info("LoanController: getLoans() -> {} loans obtained.", listOfLoans.size());
+        logger.debug("LoanController: getLoans() -> {}", listOfLoans);
         return listOfLoans;
     }
 
+    @GetMapping(params = "limit")
+    ResponseEntity<Object> getLoansPage(@RequestParam(required = false) Long after, @RequestParam int limit) {
+        logger.info("Getting {} loans after id {}...", limit, after);
+        try {
+            List<LoanDTO> pageOfLoans = loanService.getLoans(after, limit);
+            logger.info("LoanController: getLoansPage() -> {} loans obtained.", pageOfLoans.size());
+            return ResponseEntity.ok(pageOfLoans);
+        } catch (LoanException e) {
+            logger.error("LoanController: Error getting loans after id {}: {}", after, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getErr());
+        }
+    }
+
+    @GetMapping("/overdue")
+    ResponseEntity<Object> getOverdueLoans(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+                                           @RequestParam(required = false) Long afterId,
+                                           @RequestParam(defaultValue = "100") int limit) {
+        logger.info("Getting {} overdue loans after ({}, {})...", limit, afterDate, afterId);
+        try {
+            List<LoanDTO> pageOfLoans = loanService.getOverdueLoans(afterDate, afterId, limit);
+            logger.info("LoanController: getOverdueLoans() -> {} overdue loans obtained.", pageOfLoans.size());
+            return ResponseEntity.ok(pageOfLoans);
+        } catch (LoanException e) {
+            logger.error("LoanController: Error getting overdue loans after ({}, {}): {}", afterDate, afterId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getErr());
+        }
+    }
+
+    @GetMapping(params = "stream=true")
+    ResponseEntity<StreamingResponseBody> streamLoans() {
+        logger.info("Streaming all loans...");
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                loanService.streamLoans(loan -> {
+                    try {
+                        generator.writeObject(loan);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+            logger.info("LoanController: streamLoans() -> Loans streamed.");
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Matches both the page and the stream mappings, which would otherwise be an ambiguous match.
+     */
+    @GetMapping(params = {"limit", "stream=true"})
+    ResponseEntity<Object> streamLoansPage() {
+        logger.error("LoanController: Error streaming loans: stream=true cannot be combined with limit");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ExceptionEntity(400, "stream=true returns every loan and cannot be combined with limit"));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    ResponseEntity<SseEmitter> streamLoanEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        logger.info("Subscribing to loan events after {}...", lastEventId);
+        try {
+            return ResponseEntity.ok(loanEventBroadcaster.subscribe(lastEventId));
+        } catch (LoanException e) {
+            logger.warn("LoanController: Error subscribing to loan events: {}", e.getMessage());
+            return ResponseEntity.status(statusOf(e)).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+    }
+
     @GetMapping("/{id}")
-    ResponseEntity<Object> getLoanById(@PathVariable Long id) {
+    ResponseEntity<Object> getLoanById(@PathVariable Long id, WebRequest webRequest) {
         logger.info("Getting loan with id {}...", id);
+        Optional<String> version = loanService.getLoanVersion(id);
+        if (version.isPresent() && webRequest.checkNotModified(version.get())) {
+            logger.debug("LoanController: getLoanById() -> Loan {} not modified.", id);
+            return null;
+        }
         try {
             LoanDTO loan = loanService.getLoanById(id);
-            logger.info("LoanController: getLoanById() -> Loan obtained: {}", loan);
+            logger.debug("LoanController: getLoanById() -> Loan obtained: {}", loan);
             return ResponseEntity.ok(loan);
         } catch (LoanException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
@@ -43,11 +144,35 @@ public class LoanController {
     }
 
     @PostMapping
-    LoanDTO createLoan(@RequestBody LoanDTO loanDTO) {
+    ResponseEntity<Object> createLoan(@RequestBody LoanDTO loanDTO) {
         logger.info("Creating a new loan...");
-        LoanDTO createdLoan = loanService.createLoan(loanDTO);
-        logger.info("LoanController: createLoan() -> Loan created: {}", createdLoan);
-        return createdLoan;
+        try {
+            LoanDTO createdLoan = loanService.createLoan(loanDTO);
+            logger.debug("LoanController: createLoan() -> Loan created: {}", createdLoan);
+            return ResponseEntity.ok(createdLoan);
+        } catch (LoanException e) {
+            logger.error("LoanController: Error creating loan: {}", e.getMessage());
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        } catch (BookException e) {
+            logger.error("LoanController: Error creating loan: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+        } catch (UserException e) {
+            logger.error("LoanController: Error creating loan: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+        }
+    }
+
+    @PostMapping("/batch")
+    ResponseEntity<Object> createLoans(@RequestBody List<LoanDTO> loanDTOs) {
+        logger.info("Creating a batch of {} loans...", loanDTOs.size());
+        try {
+            List<LoanBatchResultDTO> results = loanService.createLoans(loanDTOs);
+            logger.info("LoanController: createLoans() -> {} results obtained.", results.size());
+            return ResponseEntity.ok(results);
+        } catch (LoanException e) {
+            logger.error("LoanController: Error creating batch of loans: {}", e.getMessage());
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        }
     }
 
     @PutMapping("/{id}")
@@ -55,11 +180,14 @@ public class LoanController {
         logger.info("Updating loan with id {}...", id);
         try {
             LoanDTO updatedLoan = loanService.updateLoan(id, loanDTO);
-            logger.info("LoanController: updateLoan() -> Loan updated: {}", updatedLoan);
+            logger.debug("LoanController: updateLoan() -> Loan updated: {}", updatedLoan);
             return ResponseEntity.ok(updatedLoan);
         } catch (LoanException e) {
             logger.error("LoanController: Error updating loan with id {}: {}", id, e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("LoanController: Loan with id {} kept changing while it was updated", id);
+            return conflict(id);
         }
     }
 
@@ -68,11 +196,30 @@ public class LoanController {
         logger.info("Partially updating loan with id {}...", id);
         try {
             LoanDTO updatedLoan = loanService.partiallyUpdateLoan(id, updates);
-            logger.info("LoanController: partiallyUpdateLoan() -> Loan updated: {}", updatedLoan);
+            logger.debug("LoanController: partiallyUpdateLoan() -> Loan updated: {}", updatedLoan);
             return ResponseEntity.ok(updatedLoan);
         } catch (LoanException e) {
             logger.error("LoanController: Error partially updating loan with id {}: {}", id, e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("LoanController: Loan with id {} kept changing while it was partially updated", id);
+            return conflict(id);
+        }
+    }
+
+    @PostMapping("/{id}/return")
+    ResponseEntity<Object> returnLoan(@PathVariable Long id) {
+        logger.info("Returning loan with id {}...", id);
+        try {
+            LoanDTO returnedLoan = loanService.returnLoan(id);
+            logger.debug("LoanController: returnLoan() -> Loan returned: {}", returnedLoan);
+            return ResponseEntity.ok(returnedLoan);
+        } catch (LoanException e) {
+            logger.error("LoanController: Error returning loan with id {}: {}", id, e.getMessage());
+            return ResponseEntity.status(statusOf(e)).body(e.getErr());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("LoanController: Loan with id {} changed while it was returned", id);
+            return conflict(id);
         }
     }
 
@@ -88,4 +235,17 @@ public class LoanController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
         }
     }
+
+    /**
+     * Answer to an update that lost every retry to concurrent changes of the same loan.
+     */
+    private static ResponseEntity<Object> conflict(Long id) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ExceptionEntity(409, "The loan with id " + id + " was modified concurrently, please retry."));
+    }
+
+    private static HttpStatus statusOf(LoanException e) {
+        HttpStatus status = HttpStatus.resolve(e.getErr().getCode());
+        return status != null && status.isError() ? status : HttpStatus.NOT_FOUND;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.example.demo.loan.dao;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Availability index: one row per book that is currently on loan, keyed by the book id so
+ * double-lending is rejected by the primary key instead of by scanning the loan history.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "active_loans",
+        uniqueConstraints = @UniqueConstraint(name = "uk_active_loans_loan_id", columnNames = "loan_id"))
+public class ActiveLoanDAO {
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Column(name = "loan_id", nullable = false)
+    private Long loanId;
+
+    @Column(name = "return_date", nullable = false)
+    private LocalDate returnDate;
+}
@@ -0,0 +1,41 @@
+package com.example.demo.loan.dao;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.user.dao.UserDAO;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A patron waiting for a book that is on loan. Only waiting holds are stored: a hold is deleted when it is promoted
+ * to a loan or cancelled. Holds of a book are served in id order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "holds",
+        uniqueConstraints = @UniqueConstraint(name = "uk_holds_book_id_user_id", columnNames = {"book_id", "user_id"}),
+        indexes = @Index(name = "idx_holds_book_id", columnList = "book_id, id"))
+public class HoldDAO {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "holds_seq")
+    @SequenceGenerator(name = "holds_seq", sequenceName = "holds_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id", nullable = false)
+    private BookDAO book;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserDAO user;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
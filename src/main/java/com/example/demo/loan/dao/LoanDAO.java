@@ -14,17 +14,23 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "loans")
+@Table(name = "loans",
+        indexes = {
+                @Index(name = "idx_loans_book_id", columnList = "book_id"),
+                @Index(name = "idx_loans_user_id", columnList = "user_id"),
+                @Index(name = "idx_loans_return_date", columnList = "return_date, id")
+        })
 public class LoanDAO {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loans_seq")
+    @SequenceGenerator(name = "loans_seq", sequenceName = "loans_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
     private BookDAO book;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private UserDAO user;
 
@@ -33,4 +39,12 @@ public class LoanDAO {
 
     @Column(name = "return_date", nullable = false)
     private LocalDate returnDate;
+
+    // Null while the book is out
+    @Column(name = "returned_at")
+    private LocalDate returnedAt;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.demo.loan.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A waiting hold and its 1-based position in the queue of the book.
+ */
+@AllArgsConstructor
+@Data
+@Builder
+public class HoldDTO {
+    private Long id;
+    private Long bookId;
+    private Long userId;
+    private LocalDateTime createdAt;
+    private int position;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.loan.dto;
+
+import com.example.demo.exceptions.models.ExceptionEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Outcome of one item of a batch loan creation: the created loan, or the error that rejected it.
+ */
+@AllArgsConstructor
+@Data
+@Builder
+public class LoanBatchResultDTO {
+    private int index;
+    private int status;
+    private LoanDTO loan;
+    private ExceptionEntity error;
+}
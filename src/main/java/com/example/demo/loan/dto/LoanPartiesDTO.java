@@ -0,0 +1,16 @@
+package com.example.demo.loan.dto;
+
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.user.dto.UserDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The book and the user of a loan, as returned with it.
+ */
+@AllArgsConstructor
+@Data
+public class LoanPartiesDTO {
+    private BookDTO book;
+    private UserDTO user;
+}
@@ -0,0 +1,31 @@
+package com.example.demo.loan.event;
+
+import com.example.demo.loan.dto.LoanDTO;
+
+/**
+ * A committed change of a loan, as sent to {@code GET /loans/stream}. The loan is the state after the change, and
+ * is null when the loan was deleted.
+ */
+public record LoanEvent(String type, Long loanId, LoanDTO loan) {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String RETURNED = "returned";
+    public static final String DELETED = "deleted";
+
+    public static LoanEvent created(LoanDTO loan) {
+        return new LoanEvent(CREATED, loan.getId(), loan);
+    }
+
+    public static LoanEvent updated(LoanDTO loan) {
+        return new LoanEvent(UPDATED, loan.getId(), loan);
+    }
+
+    public static LoanEvent returned(LoanDTO loan) {
+        return new LoanEvent(RETURNED, loan.getId(), loan);
+    }
+
+    public static LoanEvent deleted(Long loanId) {
+        return new LoanEvent(DELETED, loanId, null);
+    }
+}
@@ -0,0 +1,378 @@
+package com.example.demo.loan.event;
+
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.exception.LoanException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fans committed loan changes out to the Server-Sent Events subscribers of {@code GET /loans/stream}.
+ * <p>
+ * Every change is serialized once, when its transaction commits, into a ring buffer holding the last
+ * {@code app.loan-events.buffer-size} events. A subscriber is just a cursor into the buffer, so an idle dashboard
+ * costs its open connection and nothing else: no thread and no query. New events give each subscriber behind at
+ * most one drain task on a small pool, which sends what it has not seen yet. A client that falls a whole buffer
+ * behind, or resumes with a {@code Last-Event-ID} the buffer no longer covers (or from before a restart), gets a
+ * {@code reset} event instead of the events it missed and should reload {@code GET /loans}.
+ * <p>
+ * A send to a client that stopped reading blocks its pool thread until the socket gives up. A send blocked for
+ * longer than {@code app.loan-events.send-timeout} drops its subscriber, and the pool gets an extra thread until
+ * the send returns, so the other subscribers keep the whole pool.
+ */
+@Component
+public class LoanEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoanEventBroadcaster.class);
+
+    static final String RESET = "reset";
+
+    // Events sent to one subscriber before its drain task yields to the others
+    private static final int MAX_EVENTS_PER_DRAIN = 256;
+
+    // Value of Subscriber.sendingSince once the subscriber was dropped for a blocked send. Even, unlike send times
+    private static final long STALLED = Long.MIN_VALUE;
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxSubscribers;
+
+    private final long timeoutMillis;
+
+    // Event ids are "<epoch>-<sequence>", so ids handed out before a restart are not mistaken for new ones
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicReferenceArray<Entry> ring;
+
+    private final int mask;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    // Sequence of the newest event in the ring
+    private volatile long published;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor dispatcher;
+
+    private final long sendTimeoutNanos;
+
+    // Guards the resizing of the dispatcher, which takes two calls
+    private final ReentrantLock dispatcherLock = new ReentrantLock();
+
+    private final String resetData;
+
+    private final Counter resets;
+
+    private final Counter stalls;
+
+    public LoanEventBroadcaster(ObjectMapper objectMapper,
+                                @Value("${app.loan-events.buffer-size:4096}") int bufferSize,
+                                @Value("${app.loan-events.max-subscribers:10000}") int maxSubscribers,
+                                @Value("${app.loan-events.timeout:30m}") Duration timeout,
+                                @Value("${app.loan-events.dispatch-threads:4}") int dispatchThreads,
+                                @Value("${app.loan-events.send-timeout:10s}") Duration sendTimeout,
+                                MeterRegistry meterRegistry) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("The event buffer size must be positive: " + bufferSize);
+        }
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        // Rounded up to a power of two, so a slot is picked with a mask
+        int size = bufferSize == 1 ? 1 : Integer.highestOneBit(bufferSize - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("loan-events-"));
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.resetData = serialize(new LoanEvent(RESET, null, null));
+        Gauge.builder("library.loan.events.subscribers", subscribers, Set::size)
+                .description("Open subscriptions to the loan event stream")
+                .register(meterRegistry);
+        this.resets = Counter.builder("library.loan.events.resets")
+                .description("Subscribers sent a reset because the events they missed were no longer buffered")
+                .register(meterRegistry);
+        this.stalls = Counter.builder("library.loan.events.stalls")
+                .description("Subscribers dropped because a send to them blocked for longer than the send timeout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buffers a loan change once its transaction has committed, and wakes up the subscribers.
+     */
+    @TransactionalEventListener
+    public void publish(LoanEvent event) {
+        String data = serialize(event);
+        appendLock.lock();
+        try {
+            long sequence = published + 1;
+            ring.set((int) (sequence & mask), new Entry(sequence, epoch + "-" + sequence, event.type(), data));
+            published = sequence;
+        } finally {
+            appendLock.unlock();
+        }
+        subscribers.forEach(this::schedule);
+    }
+
+    /**
+     * Opens a subscription that starts after {@code lastEventId}, or with the next change if there is none.
+     * Throws a 503 {@link LoanException} when {@code app.loan-events.max-subscribers} are already connected.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        return subscribe(lastEventId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(String lastEventId, SseEmitter emitter) {
+        if (subscribers.size() >= maxSubscribers) {
+            logger.warn("LoanEventBroadcaster: Rejecting a subscriber, {} are already connected", subscribers.size());
+            throw new LoanException(new ExceptionEntity(503, "Too many subscribers to the loan events, please retry later"));
+        }
+        Subscriber subscriber = new Subscriber(emitter);
+        long newest = published;
+        subscriber.cursor = newest;
+        if (lastEventId != null) {
+            long resumeAfter = sequenceOf(lastEventId);
+            if (resumeAfter < 0 || resumeAfter > newest || resumeAfter < newest - ring.length()) {
+                subscriber.resetPending = true;
+            } else {
+                subscriber.cursor = resumeAfter;
+            }
+        }
+        // The response is not sent until something is written to it, so a quiet stream starts with a heartbeat
+        subscriber.heartbeatDue = true;
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Sends a comment to every subscriber that had nothing else to receive, so proxies keep idle connections open
+     * and connections closed by their client are noticed.
+     */
+    @Scheduled(fixedDelayString = "${app.loan-events.heartbeat:30s}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Drops the subscribers whose current send has been blocked for longer than {@code app.loan-events.send-timeout},
+     * and gives the pool a thread in place of each of theirs.
+     */
+    @Scheduled(fixedDelayString = "${app.loan-events.stall-check:1s}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long sendingSince = subscriber.sendingSince.get();
+            if (sendingSince == 0 || sendingSince == STALLED || now - sendingSince <= sendTimeoutNanos) {
+                continue;
+            }
+            // Grown first, so the blocked send, which shrinks it once it returns, never shrinks it below its size
+            resizeDispatcher(1);
+            if (subscriber.sendingSince.compareAndSet(sendingSince, STALLED)) {
+                subscribers.remove(subscriber);
+                stalls.increment();
+                logger.warn("LoanEventBroadcaster: Dropping a subscriber blocked in a send for {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(now - sendingSince));
+            } else {
+                // The send returned in the meantime
+                resizeDispatcher(-1);
+            }
+        }
+    }
+
+    int subscribers() {
+        return subscribers.size();
+    }
+
+    /**
+     * Ends every stream as soon as the application starts shutting down: open streams would otherwise hold up the
+     * graceful shutdown of the web server until it gives up on them. Clients reconnect with their Last-Event-ID.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void disconnect() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    @PreDestroy
+    void close() {
+        dispatcher.shutdownNow();
+        disconnect();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            send(subscriber);
+        } catch (IOException | IllegalStateException e) {
+            // The client is gone, the emitter already completed or a send blocked for too long
+            logger.debug("LoanEventBroadcaster: Dropping a subscriber: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            return;
+        }
+        subscriber.scheduled.set(false);
+        // Events published while this task was finishing found it still scheduled and left it to pick them up
+        if (subscriber.cursor < published || subscriber.resetPending || subscriber.heartbeatDue) {
+            schedule(subscriber);
+        }
+    }
+
+    private void send(Subscriber subscriber) throws IOException {
+        long newest = published;
+        int sent = 0;
+        if (subscriber.resetPending) {
+            subscriber.resetPending = false;
+            reset(subscriber, newest);
+            sent++;
+        }
+        while (subscriber.cursor < newest && sent < MAX_EVENTS_PER_DRAIN) {
+            long sequence = subscriber.cursor + 1;
+            Entry entry = ring.get((int) (sequence & mask));
+            if (entry == null || entry.sequence() != sequence) {
+                // Overwritten before this subscriber got to it: skip to the newest event there is now
+                newest = published;
+                reset(subscriber, newest);
+            } else {
+                write(subscriber, SseEmitter.event().id(entry.id()).name(entry.type()).data(entry.data(), MediaType.APPLICATION_JSON));
+                subscriber.cursor = sequence;
+            }
+            sent++;
+        }
+        if (subscriber.heartbeatDue) {
+            subscriber.heartbeatDue = false;
+            if (sent == 0) {
+                write(subscriber, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    private void reset(Subscriber subscriber, long newest) throws IOException {
+        resets.increment();
+        subscriber.cursor = newest;
+        write(subscriber, SseEmitter.event().id(epoch + "-" + newest).name(RESET).data(resetData, MediaType.APPLICATION_JSON));
+    }
+
+    private void write(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        // Odd, so never 0 (no send in progress) nor STALLED
+        subscriber.sendingSince.set(System.nanoTime() | 1);
+        boolean stalled;
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            stalled = subscriber.sendingSince.getAndSet(0) == STALLED;
+            if (stalled) {
+                // Dropped while blocked: hand back the extra thread now that the send returned
+                resizeDispatcher(-1);
+            }
+        }
+        if (stalled) {
+            subscriber.emitter.complete();
+            throw new IOException("A send blocked for longer than the send timeout");
+        }
+    }
+
+    /**
+     * Grows or shrinks the pool by {@code delta} threads. The core size must stay at most the maximum size, so the
+     * order of the two calls depends on the direction.
+     */
+    private void resizeDispatcher(int delta) {
+        dispatcherLock.lock();
+        try {
+            if (delta > 0) {
+                dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() + delta);
+                dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() + delta);
+            } else {
+                dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() + delta);
+                dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() + delta);
+            }
+        } finally {
+            dispatcherLock.unlock();
+        }
+    }
+
+    private long sequenceOf(String eventId) {
+        int separator = eventId.indexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String serialize(LoanEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Loan event could not be serialized", e);
+        }
+    }
+
+    private record Entry(long sequence, String id, String type, String data) {
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // Sequence of the last event sent. Only the drain task, one at a time, moves it
+        private long cursor;
+
+        private volatile boolean resetPending;
+
+        private volatile boolean heartbeatDue;
+
+        // System.nanoTime() when the send in progress started, 0 between sends, STALLED once dropped for it
+        private final AtomicLong sendingSince = new AtomicLong();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
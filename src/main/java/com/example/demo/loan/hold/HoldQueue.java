@@ -0,0 +1,154 @@
+package com.example.demo.loan.hold;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The waiting holds of one book, in the order they are served.
+ * <p>
+ * Holds take consecutive slots as they arrive, and a Fenwick tree over the slots counts the ones still waiting
+ * (1 per waiting hold, 0 once it is promoted or cancelled). A hold's position in the queue is the prefix sum up to
+ * its slot, and the next hold is the first slot whose prefix sum reaches 1, so enqueue, promote, cancel and
+ * position lookup are all O(log n) however long the queue gets. When the slots run out, the waiting holds are
+ * packed at the front again, doubling the capacity only if at least half of them are still waiting.
+ * <p>
+ * Instances are thread-safe. The lock is only held for the in-memory work.
+ */
+final class HoldQueue {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Hold ids by slot, in arrival order
+    private long[] ids;
+
+    // Fenwick tree over the slots, 1-based
+    private int[] waiting;
+
+    // Slot of every waiting hold
+    private final Map<Long, Integer> slots = new HashMap<>();
+
+    // Slots used so far
+    private int used;
+
+    HoldQueue(List<Long> holdIds) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < holdIds.size() * 2) {
+            capacity <<= 1;
+        }
+        ids = new long[capacity];
+        for (Long holdId : holdIds) {
+            slots.put(holdId, used);
+            ids[used++] = holdId;
+        }
+        waiting = build(capacity);
+    }
+
+    /**
+     * Appends a hold. Returns false, leaving the queue unchanged, if the hold is older than the last one queued: the
+     * queue no longer matches the table and has to be reloaded.
+     */
+    synchronized boolean add(long holdId) {
+        if (slots.containsKey(holdId)) {
+            return true;
+        }
+        if (used > 0 && holdId < ids[used - 1]) {
+            return false;
+        }
+        if (used == ids.length) {
+            repack();
+        }
+        slots.put(holdId, used);
+        ids[used++] = holdId;
+        update(used, 1);
+        return true;
+    }
+
+    /**
+     * Removes a promoted or cancelled hold. Unknown holds are ignored.
+     */
+    synchronized void remove(long holdId) {
+        Integer slot = slots.remove(holdId);
+        if (slot != null) {
+            update(slot + 1, -1);
+        }
+    }
+
+    /**
+     * The 1-based position of a waiting hold, or 0 if it is not waiting in this queue.
+     */
+    synchronized int position(long holdId) {
+        Integer slot = slots.get(holdId);
+        return slot == null ? 0 : prefix(slot + 1);
+    }
+
+    /**
+     * The hold to be promoted next, or null if nobody is waiting.
+     */
+    synchronized Long next() {
+        if (slots.isEmpty()) {
+            return null;
+        }
+        // Descends the tree to the first slot whose prefix sum is 1
+        int node = 0;
+        for (int step = Integer.highestOneBit(ids.length); step > 0; step >>= 1) {
+            if (node + step <= ids.length && waiting[node + step] == 0) {
+                node += step;
+            }
+        }
+        return ids[node];
+    }
+
+    synchronized int size() {
+        return slots.size();
+    }
+
+    synchronized int capacity() {
+        return ids.length;
+    }
+
+    private void repack() {
+        int capacity = slots.size() * 2 > ids.length ? ids.length * 2 : ids.length;
+        long[] packed = new long[capacity];
+        int packedUsed = 0;
+        for (int slot = 0; slot < used; slot++) {
+            long holdId = ids[slot];
+            if (slots.containsKey(holdId)) {
+                slots.put(holdId, packedUsed);
+                packed[packedUsed++] = holdId;
+            }
+        }
+        ids = packed;
+        used = packedUsed;
+        waiting = build(capacity);
+    }
+
+    // Builds the tree of the first used slots, all waiting, in O(capacity)
+    private int[] build(int capacity) {
+        int[] tree = new int[capacity + 1];
+        for (int node = 1; node <= capacity; node++) {
+            if (node <= used) {
+                tree[node]++;
+            }
+            int parent = node + (node & -node);
+            if (parent <= capacity) {
+                tree[parent] += tree[node];
+            }
+        }
+        return tree;
+    }
+
+    private void update(int node, int delta) {
+        for (; node <= ids.length; node += node & -node) {
+            waiting[node] += delta;
+        }
+    }
+
+    private int prefix(int node) {
+        int sum = 0;
+        for (; node > 0; node -= node & -node) {
+            sum += waiting[node];
+        }
+        return sum;
+    }
+}
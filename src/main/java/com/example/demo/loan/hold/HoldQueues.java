@@ -0,0 +1,98 @@
+package com.example.demo.loan.hold;
+
+import com.example.demo.loan.repository.HoldRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory hold queues of the books that have holds, loaded from the {@code holds} table the first time a book's
+ * queue is needed and dropped once it empties.
+ * <p>
+ * The table is the source of truth. Writers change it under the book's lock and report committed changes here with
+ * {@link #added} and {@link #removed}, so on this node a queue follows the table without reading it again. A queue
+ * that is found out of step (a hold older than its tail, or a head that is no longer in the table) is evicted and
+ * reloaded.
+ */
+@Component
+public class HoldQueues {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldQueues.class);
+
+    private final HoldRepository holdRepository;
+
+    private final ConcurrentHashMap<Long, HoldQueue> queues = new ConcurrentHashMap<>();
+
+    public HoldQueues(HoldRepository holdRepository) {
+        this.holdRepository = holdRepository;
+    }
+
+    /**
+     * The hold of the book to be promoted next, or null if nobody is waiting.
+     */
+    public Long next(Long bookId) {
+        return queueOf(bookId).next();
+    }
+
+    /**
+     * The 1-based position of a waiting hold of the book, or 0 if it is not waiting.
+     */
+    public int position(Long bookId, Long holdId) {
+        return queueOf(bookId).position(holdId);
+    }
+
+    public int size(Long bookId) {
+        return queueOf(bookId).size();
+    }
+
+    /**
+     * Appends a hold committed to the table and returns its position.
+     */
+    public int added(Long bookId, Long holdId) {
+        HoldQueue queue = queueOf(bookId);
+        HoldQueue cached = queues.putIfAbsent(bookId, queue);
+        if (cached != null) {
+            queue = cached;
+        }
+        if (!queue.add(holdId)) {
+            logger.warn("HoldQueues: Hold {} arrived out of order, reloading the queue of book {}", holdId, bookId);
+            evict(bookId);
+            queue = queueOf(bookId);
+        }
+        return queue.position(holdId);
+    }
+
+    /**
+     * Removes a hold whose promotion or cancellation was committed.
+     */
+    public void removed(Long bookId, Long holdId) {
+        HoldQueue queue = queues.get(bookId);
+        if (queue != null) {
+            queue.remove(holdId);
+            if (queue.size() == 0) {
+                queues.remove(bookId, queue);
+            }
+        }
+    }
+
+    public void evict(Long bookId) {
+        queues.remove(bookId);
+    }
+
+    private HoldQueue queueOf(Long bookId) {
+        HoldQueue queue = queues.get(bookId);
+        if (queue != null) {
+            return queue;
+        }
+        // Loaded outside the map so a long queue does not block other books. Empty queues are not kept, so books
+        // nobody waits for cost nothing
+        HoldQueue loaded = new HoldQueue(holdRepository.findIdsByBookId(bookId));
+        if (loaded.size() == 0) {
+            return loaded;
+        }
+        queue = queues.putIfAbsent(bookId, loaded);
+        return queue != null ? queue : loaded;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.demo.loan.lock;
+
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.exception.LoanException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-process locks keyed by book id: checkouts of the same book on this node run one at a time, while
+ * checkouts of different books go ahead in parallel. Books are hashed onto a fixed array of
+ * {@code app.book-lock.stripes} locks, so memory stays flat however many books there are; two books that share a
+ * stripe just take turns.
+ * <p>
+ * An uncontended acquisition is a single {@code tryLock}. Only a contended one waits, for at most
+ * {@code app.book-lock.timeout}, and is timed as {@code library.book.lock.wait}; acquisitions are counted as
+ * {@code library.book.lock.acquisitions} by path (fast, contended, timeout). {@code app.book-lock.fair=true} hands
+ * a contended lock to the longest waiter instead of whichever thread gets there first.
+ * <p>
+ * The database constraints still decide whether a book can be lent. The lock only keeps contended checkouts
+ * queuing here, without a connection, instead of on the {@code active_loans} row; other nodes are not covered.
+ */
+@Component
+public class BookLockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookLockManager.class);
+
+    private final boolean enabled;
+
+    private final boolean fair;
+
+    private final long timeoutNanos;
+
+    private final ReentrantLock[] stripes;
+
+    private final int mask;
+
+    private final Timer waitTimer;
+
+    private final Counter fastAcquisitions;
+
+    private final Counter contendedAcquisitions;
+
+    private final Counter timeouts;
+
+    public BookLockManager(@Value("${app.book-lock.enabled:true}") boolean enabled,
+                           @Value("${app.book-lock.stripes:1024}") int stripes,
+                           @Value("${app.book-lock.fair:false}") boolean fair,
+                           @Value("${app.book-lock.timeout:2s}") Duration timeout,
+                           MeterRegistry meterRegistry) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("The number of stripes must be positive: " + stripes);
+        }
+        this.enabled = enabled;
+        this.fair = fair;
+        this.timeoutNanos = timeout.toNanos();
+        // Rounded up to a power of two, so a stripe is picked with a mask
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock(fair);
+        }
+        this.mask = size - 1;
+        this.waitTimer = Timer.builder("library.book.lock.wait")
+                .description("Time spent waiting for a contended book lock")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.fastAcquisitions = acquisitions(meterRegistry, "fast");
+        this.contendedAcquisitions = acquisitions(meterRegistry, "contended");
+        this.timeouts = acquisitions(meterRegistry, "timeout");
+    }
+
+    private static Counter acquisitions(MeterRegistry meterRegistry, String path) {
+        return Counter.builder("library.book.lock.acquisitions")
+                .description("Book lock acquisitions by path")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action holding the lock of the book's stripe. Throws a 409 {@link LoanException} if the lock is not
+     * free within the timeout.
+     */
+    public <T> T withLock(Long bookId, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        ReentrantLock lock = stripeOf(bookId);
+        acquire(lock, bookId);
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int stripes() {
+        return stripes.length;
+    }
+
+    ReentrantLock stripeOf(Long bookId) {
+        int hash = Long.hashCode(bookId);
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private void acquire(ReentrantLock lock, Long bookId) {
+        try {
+            // tryLock() barges in even on a fair lock; a zero timeout respects the queue
+            if (fair ? lock.tryLock(0, TimeUnit.NANOSECONDS) : lock.tryLock()) {
+                fastAcquisitions.increment();
+                return;
+            }
+            long start = System.nanoTime();
+            boolean acquired = lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (acquired) {
+                contendedAcquisitions.increment();
+                return;
+            }
+            timeouts.increment();
+            logger.warn("BookLockManager: Timed out waiting for the lock of book {}", bookId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new LoanException(new ExceptionEntity(409, "The book with id " + bookId + " is busy, please retry"));
+    }
+}
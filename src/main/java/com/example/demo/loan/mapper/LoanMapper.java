@@ -3,6 +3,7 @@ package com.example.demo.loan.mapper;
 import com.example.demo.loan.dao.LoanDAO;
 import com.example.demo.loan.dto.LoanDTO;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
 import java.util.List;
@@ -14,5 +15,9 @@ public interface LoanMapper {
 
     LoanDTO loanDAOToLoanDTO(LoanDAO loanDAO);
     List<LoanDTO> loanDAOsToLoanDTOs(List<LoanDAO> listOfLoanDAOs);
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "returnedAt", ignore = true)
+    @Mapping(target = "book.version", ignore = true)
+    @Mapping(target = "user.version", ignore = true)
     LoanDAO loanDTOToLoanDAO(LoanDTO loanDTO);
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.example.demo.loan.reactive;
+
+import com.example.demo.loan.event.LoanEventBroadcaster;
+import com.example.demo.loan.reactive.controller.ReactiveLoanHandler;
+import com.example.demo.loan.reactive.repository.ReactiveLoanRepository;
+import com.example.demo.loan.reactive.service.ReactiveLoanService;
+import com.example.demo.loan.reactive.service.impl.ReactiveLoanServiceImpl;
+import com.example.demo.outbox.Outbox;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+/**
+ * Optional non-blocking loan API, enabled with {@code app.reactive.enabled=true}. It reaches the same H2 database as
+ * JPA through R2DBC ({@code app.reactive.r2dbc-url}, with the datasource credentials) and is served by its own Netty server on
+ * {@code app.reactive.port}.
+ * <p>
+ * The transaction manager is not exposed as a bean, so {@code @Transactional} keeps resolving to the JPA one.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveLoanConfiguration {
+
+    // The connection factory itself is not a bean either: the JDBC DataSource auto-configuration backs off when one exists
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(@Value("${app.reactive.r2dbc-url}") String url,
+                                                 @Value("${spring.datasource.username}") String username,
+                                                 @Value("${spring.datasource.password}") String password) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        return DatabaseClient.create(ConnectionFactories.get(options));
+    }
+
+    @Bean
+    public ReactiveLoanRepository reactiveLoanRepository(DatabaseClient reactiveDatabaseClient) {
+        return new ReactiveLoanRepository(reactiveDatabaseClient);
+    }
+
+    @Bean
+    public ReactiveLoanService reactiveLoanService(ReactiveLoanRepository reactiveLoanRepository,
+                                                   DatabaseClient reactiveDatabaseClient,
+                                                   LoanEventBroadcaster loanEventBroadcaster, Outbox outbox) {
+        TransactionalOperator transactionalOperator =
+                TransactionalOperator.create(new R2dbcTransactionManager(reactiveDatabaseClient.getConnectionFactory()));
+        return new ReactiveLoanServiceImpl(reactiveLoanRepository, transactionalOperator, loanEventBroadcaster, outbox);
+    }
+
+    @Bean
+    public ReactiveLoanServer reactiveLoanServer(ReactiveLoanService reactiveLoanService, ObjectMapper objectMapper,
+                                                 @Value("${app.reactive.port}") int port) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        ReactiveLoanHandler handler = new ReactiveLoanHandler(reactiveLoanService);
+        return new ReactiveLoanServer(RouterFunctions.toHttpHandler(handler.routes(), strategies), port);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.loan.reactive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Reactor Netty server for the non-blocking loan API. It runs next to the servlet container, on its own port, so
+ * the blocking API keeps Tomcat's thread pool and the reactive one the Netty event loops.
+ */
+public class ReactiveLoanServer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveLoanServer.class);
+
+    private final HttpHandler httpHandler;
+
+    private final int port;
+
+    private volatile DisposableServer server;
+
+    public ReactiveLoanServer(HttpHandler httpHandler, int port) {
+        this.httpHandler = httpHandler;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        logger.info("ReactiveLoanServer: Reactive loan API listening on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        server.disposeNow();
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Port the server is bound to, which differs from the configured one when that is 0.
+     */
+    public int getPort() {
+        return server.port();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.loan.reactive.controller;
+
+import com.example.demo.book.exception.BookException;
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.reactive.service.ReactiveLoanService;
+import com.example.demo.user.exception.UserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * WebFlux endpoints of the non-blocking loan API. Paths, bodies and status codes are the ones of
+ * {@code LoanController}; {@code GET /loans} is streamed as newline-delimited JSON, one loan per line, and reads
+ * further rows only as fast as the client consumes them.
+ */
+public class ReactiveLoanHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveLoanHandler.class);
+
+    private final ReactiveLoanService loanService;
+
+    public ReactiveLoanHandler(ReactiveLoanService loanService) {
+        this.loanService = loanService;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/loans", this::getLoans)
+                .GET("/loans/{id}", this::getLoanById)
+                .POST("/loans", this::createLoan)
+                .PUT("/loans/{id}", this::updateLoan)
+                .PATCH("/loans/{id}", this::partiallyUpdateLoan)
+                .DELETE("/loans/{id}", this::deleteLoan)
+                .build();
+    }
+
+    Mono<ServerResponse> getLoans(ServerRequest request) {
+        logger.info("ReactiveLoanHandler: Streaming all loans...");
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(loanService.getLoans(), LoanDTO.class);
+    }
+
+    Mono<ServerResponse> getLoanById(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        logger.info("ReactiveLoanHandler: Getting loan with id {}...", id);
+        return loanService.getLoanById(id)
+                .flatMap(loan -> ServerResponse.ok().bodyValue(loan))
+                .onErrorResume(LoanException.class, e -> error(HttpStatus.NOT_FOUND, e.getErr()));
+    }
+
+    Mono<ServerResponse> createLoan(ServerRequest request) {
+        logger.info("ReactiveLoanHandler: Creating a new loan...");
+        return request.bodyToMono(LoanDTO.class)
+                .flatMap(loanService::createLoan)
+                .flatMap(loan -> ServerResponse.ok().bodyValue(loan))
+                .onErrorResume(LoanException.class, e -> error(HttpStatus.BAD_REQUEST, e.getErr()))
+                .onErrorResume(BookException.class, e -> error(HttpStatus.NOT_FOUND, e.getErr()))
+                .onErrorResume(UserException.class, e -> error(HttpStatus.NOT_FOUND, e.getErr()));
+    }
+
+    Mono<ServerResponse> updateLoan(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        logger.info("ReactiveLoanHandler: Updating loan with id {}...", id);
+        return request.bodyToMono(LoanDTO.class)
+                .flatMap(loanDTO -> loanService.updateLoan(id, loanDTO))
+                .flatMap(loan -> ServerResponse.ok().bodyValue(loan))
+                .onErrorResume(LoanException.class, e -> error(statusOf(e.getErr()), e.getErr()))
+                .onErrorResume(BookException.class, e -> error(HttpStatus.NOT_FOUND, e.getErr()))
+                .onErrorResume(UserException.class, e -> error(HttpStatus.NOT_FOUND, e.getErr()));
+    }
+
+    Mono<ServerResponse> partiallyUpdateLoan(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        logger.info("ReactiveLoanHandler: Partially updating loan with id {}...", id);
+        return request.bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .flatMap(updates -> loanService.partiallyUpdateLoan(id, updates))
+                .flatMap(loan -> ServerResponse.ok().bodyValue(loan))
+                .onErrorResume(LoanException.class, e -> error(statusOf(e.getErr()), e.getErr()));
+    }
+
+    Mono<ServerResponse> deleteLoan(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        logger.info("ReactiveLoanHandler: Deleting loan with id {}...", id);
+        return loanService.deleteLoan(id)
+                .then(ServerResponse.ok().build())
+                .onErrorResume(LoanException.class, e -> error(HttpStatus.NOT_FOUND, e.getErr()));
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, ExceptionEntity err) {
+        logger.error("ReactiveLoanHandler: [{}] {}", err.getCode(), err.getMessage());
+        return ServerResponse.status(status).bodyValue(err);
+    }
+
+    private static HttpStatus statusOf(ExceptionEntity err) {
+        HttpStatus status = HttpStatus.resolve(err.getCode());
+        return status != null && status.isError() ? status : HttpStatus.NOT_FOUND;
+    }
+}
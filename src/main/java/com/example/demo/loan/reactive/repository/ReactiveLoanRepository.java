@@ -0,0 +1,230 @@
+package com.example.demo.loan.reactive.repository;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.loan.dao.ActiveLoanDAO;
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.outbox.OutboxEventDAO;
+import com.example.demo.user.dao.UserDAO;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * R2DBC access to the tables mapped by {@link LoanDAO}, {@link ActiveLoanDAO}, {@link BookDAO}, {@link UserDAO} and
+ * {@link OutboxEventDAO}.
+ * Loans are read with their book and user in a single join, like {@code LoanRepository.findAllWithBookAndUser()}.
+ */
+public class ReactiveLoanRepository {
+
+    private static final String SELECT_LOANS_WITH_BOOK_AND_USER = """
+            SELECT l.id, l.loan_date, l.return_date,
+                   b.id AS book_id, b.title, b.author, b.isbn, b.publication_date,
+                   u.id AS user_id, u.name, u.phone_number, u.registration_date
+            FROM loans l
+            JOIN books b ON b.id = l.book_id
+            JOIN users u ON u.id = l.user_id
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveLoanRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<LoanDAO> findAllWithBookAndUser() {
+        return databaseClient.sql(SELECT_LOANS_WITH_BOOK_AND_USER + "ORDER BY l.id")
+                .map(ReactiveLoanRepository::toLoanWithBookAndUser)
+                .all();
+    }
+
+    public Mono<LoanDAO> findByIdWithBookAndUser(Long id) {
+        return databaseClient.sql(SELECT_LOANS_WITH_BOOK_AND_USER + "WHERE l.id = :id")
+                .bind("id", id)
+                .map(ReactiveLoanRepository::toLoanWithBookAndUser)
+                .one();
+    }
+
+    public Mono<LoanDAO> findById(Long id) {
+        return databaseClient.sql("SELECT id, book_id, user_id, loan_date, return_date, returned_at, version FROM loans WHERE id = :id")
+                .bind("id", id)
+                .map(row -> LoanDAO.builder()
+                        .id(row.get("id", Long.class))
+                        .book(BookDAO.builder().id(row.get("book_id", Long.class)).build())
+                        .user(UserDAO.builder().id(row.get("user_id", Long.class)).build())
+                        .loanDate(row.get("loan_date", LocalDate.class))
+                        .returnDate(row.get("return_date", LocalDate.class))
+                        .returnedAt(row.get("returned_at", LocalDate.class))
+                        .version(row.get("version", Long.class))
+                        .build())
+                .one();
+    }
+
+    public Mono<BookDAO> findBookById(Long id) {
+        return databaseClient.sql("SELECT id AS book_id, title, author, isbn, publication_date FROM books WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveLoanRepository::toBook)
+                .one();
+    }
+
+    public Mono<UserDAO> findUserById(Long id) {
+        return databaseClient.sql("SELECT id AS user_id, name, phone_number, registration_date FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveLoanRepository::toUser)
+                .one();
+    }
+
+    /**
+     * Locks the availability row of the book until the end of the transaction, as
+     * {@code ActiveLoanRepository.findByBookIdForUpdate} does.
+     */
+    public Mono<ActiveLoanDAO> findActiveLoanByBookIdForUpdate(Long bookId) {
+        return databaseClient.sql("SELECT book_id, loan_id, return_date FROM active_loans WHERE book_id = :bookId FOR UPDATE")
+                .bind("bookId", bookId)
+                .map(row -> ActiveLoanDAO.builder()
+                        .bookId(row.get("book_id", Long.class))
+                        .loanId(row.get("loan_id", Long.class))
+                        .returnDate(row.get("return_date", LocalDate.class))
+                        .build())
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("SELECT COUNT(*) FROM loans WHERE id = :id")
+                .bind("id", id)
+                .map(row -> row.get(0, Long.class) > 0)
+                .one();
+    }
+
+    /**
+     * Takes a value of the loan sequence Hibernate allocates from. Each value hands out a whole block of ids to a
+     * single caller, so the ones used here never collide with the ones Hibernate assigns.
+     */
+    public Mono<Long> nextId() {
+        return databaseClient.sql("SELECT NEXT VALUE FOR loans_seq")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Mono<Void> insert(LoanDAO loanDAO) {
+        return databaseClient.sql("INSERT INTO loans (id, book_id, user_id, loan_date, return_date, version) "
+                        + "VALUES (:id, :bookId, :userId, :loanDate, :returnDate, 0)")
+                .bind("id", loanDAO.getId())
+                .bind("bookId", loanDAO.getBook().getId())
+                .bind("userId", loanDAO.getUser().getId())
+                .bind("loanDate", loanDAO.getLoanDate())
+                .bind("returnDate", loanDAO.getReturnDate())
+                .then();
+    }
+
+    /**
+     * Writes the loan if it still has the version it was read with, the check Hibernate makes for {@code @Version}.
+     *
+     * @return the number of rows written, 0 when another transaction changed the loan in between
+     */
+    public Mono<Long> update(LoanDAO loanDAO) {
+        return databaseClient.sql("UPDATE loans SET book_id = :bookId, user_id = :userId, loan_date = :loanDate, "
+                        + "return_date = :returnDate, version = version + 1 WHERE id = :id AND version = :version")
+                .bind("id", loanDAO.getId())
+                .bind("bookId", loanDAO.getBook().getId())
+                .bind("userId", loanDAO.getUser().getId())
+                .bind("loanDate", loanDAO.getLoanDate())
+                .bind("returnDate", loanDAO.getReturnDate())
+                .bind("version", loanDAO.getVersion())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Void> deleteById(Long id) {
+        return databaseClient.sql("DELETE FROM loans WHERE id = :id")
+                .bind("id", id)
+                .then();
+    }
+
+    public Mono<Void> insertActiveLoan(ActiveLoanDAO activeLoanDAO) {
+        return databaseClient.sql("INSERT INTO active_loans (book_id, loan_id, return_date) VALUES (:bookId, :loanId, :returnDate)")
+                .bind("bookId", activeLoanDAO.getBookId())
+                .bind("loanId", activeLoanDAO.getLoanId())
+                .bind("returnDate", activeLoanDAO.getReturnDate())
+                .then();
+    }
+
+    public Mono<Void> updateActiveLoan(ActiveLoanDAO activeLoanDAO) {
+        return databaseClient.sql("UPDATE active_loans SET loan_id = :loanId, return_date = :returnDate WHERE book_id = :bookId")
+                .bind("bookId", activeLoanDAO.getBookId())
+                .bind("loanId", activeLoanDAO.getLoanId())
+                .bind("returnDate", activeLoanDAO.getReturnDate())
+                .then();
+    }
+
+    public Mono<Void> deleteActiveLoanByLoanId(Long loanId) {
+        return databaseClient.sql("DELETE FROM active_loans WHERE loan_id = :loanId")
+                .bind("loanId", loanId)
+                .then();
+    }
+
+    /**
+     * Writes the event to the outbox, with an id taken from its sequence the way {@link #nextId()} takes loan ids.
+     */
+    public Mono<Void> insertOutboxEvent(OutboxEventDAO event) {
+        return databaseClient.sql("SELECT NEXT VALUE FOR outbox_events_seq")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> {
+                    DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO outbox_events "
+                                    + "(id, aggregate_type, aggregate_id, event_type, payload, created_at) "
+                                    + "VALUES (:id, :aggregateType, :aggregateId, :eventType, :payload, :createdAt)")
+                            .bind("id", id)
+                            .bind("aggregateType", event.getAggregateType())
+                            .bind("aggregateId", event.getAggregateId())
+                            .bind("eventType", event.getEventType())
+                            .bind("createdAt", event.getCreatedAt());
+                    return (event.getPayload() == null
+                            ? insert.bindNull("payload", String.class)
+                            : insert.bind("payload", event.getPayload())).then();
+                });
+    }
+
+    /**
+     * Bumps the version of the loan collection, see {@code CollectionVersions#bump}.
+     */
+    public Mono<Void> bumpLoansVersion() {
+        return databaseClient.sql("MERGE INTO collection_versions c USING (VALUES (CAST('loans' AS VARCHAR(20)))) s (name) "
+                        + "ON c.name = s.name "
+                        + "WHEN MATCHED THEN UPDATE SET version = c.version + 1 "
+                        + "WHEN NOT MATCHED THEN INSERT (name, version) VALUES (s.name, :now)")
+                .bind("now", System.currentTimeMillis())
+                .then();
+    }
+
+    private static LoanDAO toLoanWithBookAndUser(Readable row) {
+        return LoanDAO.builder()
+                .id(row.get("id", Long.class))
+                .book(toBook(row))
+                .user(toUser(row))
+                .loanDate(row.get("loan_date", LocalDate.class))
+                .returnDate(row.get("return_date", LocalDate.class))
+                .build();
+    }
+
+    private static BookDAO toBook(Readable row) {
+        return BookDAO.builder()
+                .id(row.get("book_id", Long.class))
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .isbn(row.get("isbn", String.class))
+                .publicationDate(row.get("publication_date", LocalDate.class))
+                .build();
+    }
+
+    private static UserDAO toUser(Readable row) {
+        return UserDAO.builder()
+                .id(row.get("user_id", Long.class))
+                .name(row.get("name", String.class))
+                .phoneNumber(row.get("phone_number", String.class))
+                .registrationDate(row.get("registration_date", LocalDate.class))
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.loan.reactive.service;
+
+import com.example.demo.loan.dto.LoanDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+public interface ReactiveLoanService {
+    Flux<LoanDTO> getLoans();
+    Mono<LoanDTO> getLoanById(Long id);
+    Mono<LoanDTO> createLoan(LoanDTO loanDTO);
+    Mono<LoanDTO> updateLoan(Long id, LoanDTO loanDTO);
+    Mono<LoanDTO> partiallyUpdateLoan(Long id, Map<String, Object> updates);
+    Mono<Void> deleteLoan(Long id);
+}
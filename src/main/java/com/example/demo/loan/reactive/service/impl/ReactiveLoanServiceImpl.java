@@ -0,0 +1,256 @@
+package com.example.demo.loan.reactive.service.impl;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.exception.BookException;
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.dao.ActiveLoanDAO;
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.event.LoanEvent;
+import com.example.demo.loan.event.LoanEventBroadcaster;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.mapper.LoanMapper;
+import com.example.demo.loan.reactive.repository.ReactiveLoanRepository;
+import com.example.demo.loan.reactive.service.ReactiveLoanService;
+import com.example.demo.loan.service.LoanValidator;
+import com.example.demo.outbox.Outbox;
+import com.example.demo.outbox.OutboxEvent;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.exception.UserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Non-blocking counterpart of {@code LoanServiceImpl}: same validation, same error codes and the same availability
+ * index rules, over R2DBC.
+ * <p>
+ * The R2DBC transactions are not seen by the listeners of {@link LoanEvent}s, so each change writes its outbox row
+ * within its transaction itself, and is handed to the {@link LoanEventBroadcaster} directly.
+ * {@code TransactionalOperator.transactional(Mono)} only emits once the transaction has committed, so the operators
+ * after it run for committed changes only.
+ */
+public class ReactiveLoanServiceImpl implements ReactiveLoanService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveLoanServiceImpl.class);
+
+    private static final LoanMapper loanMapper = LoanMapper.INSTANCE;
+
+    private final ReactiveLoanRepository loanRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final LoanEventBroadcaster loanEventBroadcaster;
+
+    private final Outbox outbox;
+
+    public ReactiveLoanServiceImpl(ReactiveLoanRepository loanRepository, TransactionalOperator transactionalOperator,
+                                   LoanEventBroadcaster loanEventBroadcaster, Outbox outbox) {
+        this.loanRepository = loanRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.loanEventBroadcaster = loanEventBroadcaster;
+        this.outbox = outbox;
+    }
+
+    @Override
+    public Flux<LoanDTO> getLoans() {
+        logger.debug("ReactiveLoanServiceImpl: Streaming all loans...");
+        return loanRepository.findAllWithBookAndUser().map(loanMapper::loanDAOToLoanDTO);
+    }
+
+    @Override
+    public Mono<LoanDTO> getLoanById(Long id) {
+        logger.debug("ReactiveLoanServiceImpl: Getting loan with id {}...", id);
+        return loanRepository.findByIdWithBookAndUser(id)
+                .switchIfEmpty(Mono.error(() -> new LoanException(new ExceptionEntity(404, "Loan not found with id: " + id))))
+                .map(loanMapper::loanDAOToLoanDTO);
+    }
+
+    @Override
+    public Mono<LoanDTO> createLoan(LoanDTO loanDTO) {
+        return Mono.fromRunnable(() -> LoanValidator.validateLoan(loanDTO))
+                .then(Mono.defer(() -> findBookAndUser(loanDTO)))
+                .flatMap(bookAndUser -> loanRepository.nextId().flatMap(id -> {
+                    LoanDAO loanDAO = loanMapper.loanDTOToLoanDAO(loanDTO);
+                    loanDAO.setId(id);
+                    loanDAO.setBook(bookAndUser.getT1());
+                    loanDAO.setUser(bookAndUser.getT2());
+                    return loanRepository.insert(loanDAO)
+                            .then(validateBookNotOnLoan(loanDAO))
+                            .thenReturn(loanDAO);
+                }))
+                .map(loanDAO -> LoanEvent.created(loanMapper.loanDAOToLoanDTO(loanDAO)))
+                .flatMap(event -> recordChange(event).thenReturn(event))
+                .as(transactionalOperator::transactional)
+                .doOnNext(loanEventBroadcaster::publish)
+                .map(LoanEvent::loan)
+                .doOnNext(createdLoan -> logger.debug("ReactiveLoanServiceImpl: createLoan() -> Loan created with id {}", createdLoan.getId()));
+    }
+
+    @Override
+    public Mono<LoanDTO> updateLoan(Long id, LoanDTO loanDTO) {
+        return Mono.fromRunnable(() -> LoanValidator.validateLoan(loanDTO))
+                .then(loanRepository.findById(id))
+                .switchIfEmpty(Mono.error(() -> new LoanException(new ExceptionEntity(404, "Loan not found with id: " + id))))
+                .zipWith(Mono.defer(() -> findBookAndUser(loanDTO)))
+                .flatMap(loanAndReferences -> {
+                    LoanDAO loanDAO = loanAndReferences.getT1();
+                    BookDAO book = loanAndReferences.getT2().getT1();
+                    Mono<Void> releasePreviousBook = book.getId().equals(loanDAO.getBook().getId())
+                            ? Mono.empty()
+                            : loanRepository.deleteActiveLoanByLoanId(id);
+                    loanDAO.setBook(book);
+                    loanDAO.setUser(loanAndReferences.getT2().getT2());
+                    loanDAO.setLoanDate(loanDTO.getLoanDate());
+                    loanDAO.setReturnDate(loanDTO.getReturnDate());
+                    return releasePreviousBook
+                            .then(updateIfUnchanged(loanDAO))
+                            .then(validateBookNotOnLoan(loanDAO))
+                            .thenReturn(loanDAO);
+                })
+                .map(loanDAO -> LoanEvent.updated(loanMapper.loanDAOToLoanDTO(loanDAO)))
+                .flatMap(event -> recordChange(event).thenReturn(event))
+                .as(transactionalOperator::transactional)
+                .doOnNext(loanEventBroadcaster::publish)
+                .map(LoanEvent::loan)
+                .doOnNext(updatedLoan -> logger.debug("ReactiveLoanServiceImpl: updateLoan() -> Loan with id {} updated", id));
+    }
+
+    /**
+     * Same fields as {@code LoanServiceImpl.partiallyUpdateLoan}: {@code loanDate}, {@code returnDate}, {@code bookId}
+     * and {@code userId}. Dates may be given as ISO strings, the way they arrive in a JSON body.
+     */
+    @Override
+    public Mono<LoanDTO> partiallyUpdateLoan(Long id, Map<String, Object> updates) {
+        logger.debug("ReactiveLoanServiceImpl: Partially updating loan with id {}...", id);
+        return loanRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new LoanException(new ExceptionEntity(404, "Loan not found with id: " + id))))
+                .flatMap(loanDAO -> applyUpdates(loanDAO, updates))
+                .flatMap(loanDAO -> updateIfUnchanged(loanDAO)
+                        .then(validateBookNotOnLoan(loanDAO))
+                        .thenReturn(loanDAO))
+                .map(loanDAO -> LoanEvent.updated(loanMapper.loanDAOToLoanDTO(loanDAO)))
+                .flatMap(event -> recordChange(event).thenReturn(event))
+                .as(transactionalOperator::transactional)
+                .doOnNext(loanEventBroadcaster::publish)
+                .map(LoanEvent::loan)
+                .doOnNext(updatedLoan -> logger.debug("ReactiveLoanServiceImpl: partiallyUpdateLoan() -> Loan updated: {}", updatedLoan));
+    }
+
+    @Override
+    public Mono<Void> deleteLoan(Long id) {
+        return loanRepository.existsById(id)
+                .flatMap(exists -> exists
+                        ? loanRepository.deleteActiveLoanByLoanId(id)
+                                .then(loanRepository.deleteById(id))
+                                .then(recordChange(LoanEvent.deleted(id)))
+                        : Mono.error(new LoanException(new ExceptionEntity(404, "Loan not found with id: " + id))))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(ignored -> loanEventBroadcaster.publish(LoanEvent.deleted(id)))
+                .doOnSuccess(ignored -> logger.debug("ReactiveLoanServiceImpl: deleteLoan() -> Loan deleted with id: {}", id));
+    }
+
+    // The book and user are read even when they do not change, so the loan is answered with both, as a PUT is
+    private Mono<LoanDAO> applyUpdates(LoanDAO loanDAO, Map<String, Object> updates) {
+        if (updates.containsKey("loanDate")) {
+            loanDAO.setLoanDate(toLocalDate(updates.get("loanDate")));
+        }
+        if (updates.containsKey("returnDate")) {
+            loanDAO.setReturnDate(toLocalDate(updates.get("returnDate")));
+        }
+        Long bookId = updates.containsKey("bookId") ? ((Number) updates.get("bookId")).longValue() : loanDAO.getBook().getId();
+        Long userId = updates.containsKey("userId") ? ((Number) updates.get("userId")).longValue() : loanDAO.getUser().getId();
+        Mono<Void> releasePreviousBook = bookId.equals(loanDAO.getBook().getId())
+                ? Mono.empty()
+                : loanRepository.deleteActiveLoanByLoanId(loanDAO.getId());
+        return Mono.zip(
+                        loanRepository.findBookById(bookId).switchIfEmpty(Mono.error(() ->
+                                new LoanException(new ExceptionEntity(404, "Book not found with id: " + bookId)))),
+                        loanRepository.findUserById(userId).switchIfEmpty(Mono.error(() ->
+                                new LoanException(new ExceptionEntity(404, "User not found with id: " + userId)))))
+                .flatMap(bookAndUser -> {
+                    loanDAO.setBook(bookAndUser.getT1());
+                    loanDAO.setUser(bookAndUser.getT2());
+                    return releasePreviousBook.thenReturn(loanDAO);
+                });
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof LocalDate date ? date : LocalDate.parse(value.toString());
+    }
+
+    /**
+     * Writes the loan unless another transaction changed it since it was read. The blocking service retries such an
+     * update; here the conflict is answered with 409 and the client retries.
+     */
+    private Mono<Void> updateIfUnchanged(LoanDAO loanDAO) {
+        return loanRepository.update(loanDAO)
+                .filter(updated -> updated > 0)
+                .switchIfEmpty(Mono.error(() -> {
+                    logger.warn("[Service] The loan with id {} was modified concurrently", loanDAO.getId());
+                    return new LoanException(new ExceptionEntity(409,
+                            "The loan with id " + loanDAO.getId() + " was modified concurrently, please retry."));
+                }))
+                .then();
+    }
+
+    // The outbox row and collection version the blocking service writes through Outbox and CollectionVersions
+    private Mono<Void> recordChange(LoanEvent event) {
+        return Mono.defer(() -> loanRepository.insertOutboxEvent(
+                        outbox.newEvent(OutboxEvent.LOAN, event.loanId(), event.type(), event.loan())))
+                .then(loanRepository.bumpLoansVersion());
+    }
+
+    // Deferred by the callers: the ids are only read once the loan has passed validation
+    private Mono<Tuple2<BookDAO, UserDAO>> findBookAndUser(LoanDTO loanDTO) {
+        return Mono.zip(findBook(loanDTO.getBook().getId()), findUser(loanDTO.getUser().getId()));
+    }
+
+    private Mono<BookDAO> findBook(Long bookId) {
+        return loanRepository.findBookById(bookId)
+                .switchIfEmpty(Mono.error(() -> new BookException(new ExceptionEntity(404, "Book not found with id: " + bookId))));
+    }
+
+    private Mono<UserDAO> findUser(Long userId) {
+        return loanRepository.findUserById(userId)
+                .switchIfEmpty(Mono.error(() -> new UserException(new ExceptionEntity(404, "User not found with id: " + userId))));
+    }
+
+    /**
+     * Same rules as {@code LoanServiceImpl.validateBookNotOnLoan}: a loan holds its book until it is returned, the
+     * availability row of the book is locked, a book held by another loan is rejected, and the primary key of the
+     * row rejects a concurrent checkout of a book that had none.
+     */
+    private Mono<Void> validateBookNotOnLoan(LoanDAO loanDAO) {
+        if (loanDAO.getReturnedAt() != null) {
+            return Mono.empty();
+        }
+        Long bookId = loanDAO.getBook().getId();
+        return loanRepository.findActiveLoanByBookIdForUpdate(bookId)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(current -> {
+                    ActiveLoanDAO activeLoan = current.orElse(null);
+                    if (activeLoan != null && !activeLoan.getLoanId().equals(loanDAO.getId())) {
+                        logger.warn("[Service] The book with id {} is currently on loan", bookId);
+                        return Mono.error(new LoanException(new ExceptionEntity(400, "The book is already on loan and cannot be assigned again.")));
+                    }
+                    ActiveLoanDAO claimed = new ActiveLoanDAO(bookId, loanDAO.getId(), loanDAO.getReturnDate());
+                    return activeLoan == null
+                            ? loanRepository.insertActiveLoan(claimed)
+                            : loanRepository.updateActiveLoan(claimed);
+                })
+                .onErrorMap(DataIntegrityViolationException.class, e -> {
+                    logger.warn("[Service] The book with id {} was lent concurrently", bookId);
+                    return new LoanException(new ExceptionEntity(400, "The book is already on loan and cannot be assigned again."));
+                });
+    }
+}
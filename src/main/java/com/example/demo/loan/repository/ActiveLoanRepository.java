@@ -0,0 +1,30 @@
+package com.example.demo.loan.repository;
+
+import com.example.demo.loan.dao.ActiveLoanDAO;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ActiveLoanRepository extends JpaRepository<ActiveLoanDAO, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from ActiveLoanDAO a where a.bookId = :bookId")
+    Optional<ActiveLoanDAO> findByBookIdForUpdate(@Param("bookId") Long bookId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from ActiveLoanDAO a where a.bookId in :bookIds")
+    List<ActiveLoanDAO> findAllByBookIdsForUpdate(@Param("bookIds") Collection<Long> bookIds);
+
+    @Modifying
+    @Query("delete from ActiveLoanDAO a where a.loanId = :loanId")
+    int deleteByLoanId(@Param("loanId") Long loanId);
+}
@@ -0,0 +1,27 @@
+package com.example.demo.loan.repository;
+
+import com.example.demo.loan.dao.HoldDAO;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface HoldRepository extends JpaRepository<HoldDAO, Long> {
+
+    @Query("select h.id from HoldDAO h where h.book.id = :bookId order by h.id")
+    List<Long> findIdsByBookId(@Param("bookId") Long bookId);
+
+    @Query("select h from HoldDAO h where h.id = :id and h.book.id = :bookId")
+    Optional<HoldDAO> findByIdAndBookId(@Param("id") Long id, @Param("bookId") Long bookId);
+
+    Optional<HoldDAO> findFirstByBookIdOrderByIdAsc(Long bookId);
+
+    @Modifying
+    @Query("delete from HoldDAO h where h.id = :id and h.book.id = :bookId")
+    int deleteByIdAndBookId(@Param("id") Long id, @Param("bookId") Long bookId);
+}
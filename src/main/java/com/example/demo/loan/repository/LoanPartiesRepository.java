@@ -0,0 +1,14 @@
+package com.example.demo.loan.repository;
+
+import com.example.demo.loan.dto.LoanPartiesDTO;
+
+import java.util.Optional;
+
+public interface LoanPartiesRepository {
+
+    /**
+     * The book and the user of a loan, or empty if either does not exist. Taken from the second-level cache when
+     * it holds both; otherwise both are loaded with a single statement.
+     */
+    Optional<LoanPartiesDTO> findLoanParties(Long bookId, Long userId);
+}
@@ -0,0 +1,53 @@
+package com.example.demo.loan.repository;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.mapper.BookMapper;
+import com.example.demo.cache.SecondLevelCache;
+import com.example.demo.loan.dto.LoanPartiesDTO;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.mapper.UserMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Optional;
+
+class LoanPartiesRepositoryImpl implements LoanPartiesRepository {
+
+    // Loads both entities rather than a scalar projection, so they land in the second-level cache for the next loan
+    private static final String FIND_LOAN_PARTIES =
+            "select b, u from BookDAO b, UserDAO u where b.id = :bookId and u.id = :userId";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    private static final BookMapper bookMapper = BookMapper.INSTANCE;
+
+    private static final UserMapper userMapper = UserMapper.INSTANCE;
+
+    @Override
+    public Optional<LoanPartiesDTO> findLoanParties(Long bookId, Long userId) {
+        BookDAO book;
+        UserDAO user;
+        if (secondLevelCache.contains(BookDAO.class, bookId) && secondLevelCache.contains(UserDAO.class, userId)) {
+            book = entityManager.find(BookDAO.class, bookId);
+            user = entityManager.find(UserDAO.class, userId);
+        } else {
+            Object[] row = entityManager.createQuery(FIND_LOAN_PARTIES, Object[].class)
+                    .setParameter("bookId", bookId)
+                    .setParameter("userId", userId)
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
+            book = row == null ? null : (BookDAO) row[0];
+            user = row == null ? null : (UserDAO) row[1];
+        }
+        if (book == null || user == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new LoanPartiesDTO(bookMapper.bookDAOToBookDTO(book), userMapper.userDAOToUserDTO(user)));
+    }
+}
@@ -1,11 +1,65 @@
 package com.example.demo.loan.repository;
 
 import com.example.demo.loan.dao.LoanDAO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface LoanRepository extends JpaRepository<LoanDAO, Long> {
-}
\ No newline at end of file
+public interface LoanRepository extends JpaRepository<LoanDAO, Long>, LoanPartiesRepository {
+
+    /**
+     * Every loan with its book and user, fetched in a single statement.
+     */
+    @Query("select l from LoanDAO l join fetch l.book join fetch l.user order by l.id")
+    List<LoanDAO> findAllWithBookAndUser();
+
+    @Query("select l from LoanDAO l join fetch l.book join fetch l.user where l.id = :id")
+    Optional<LoanDAO> findByIdWithBookAndUser(@Param("id") Long id);
+
+    @Query("select l.book.id from LoanDAO l where l.id = :id")
+    Optional<Long> findBookIdById(@Param("id") Long id);
+
+    /**
+     * Keyset page of loans: the next {@code limit} loans whose id is greater than {@code after}.
+     */
+    @Query("select l from LoanDAO l join fetch l.book join fetch l.user where l.id > :after order by l.id")
+    List<LoanDAO> findPageAfter(@Param("after") Long after, Limit limit);
+
+    /**
+     * Keyset page of loans still out and due before {@code before}, in (returnDate, id) order and starting after the
+     * loan at ({@code afterDate}, {@code afterId}). Walks the {@code idx_loans_return_date} index instead of the table.
+     */
+    @Query("select l from LoanDAO l join fetch l.book join fetch l.user where l.returnDate < :before and l.returnedAt is null"
+            + " and (l.returnDate > :afterDate or (l.returnDate = :afterDate and l.id > :afterId))"
+            + " order by l.returnDate, l.id")
+    List<LoanDAO> findDuePageAfter(@Param("before") LocalDate before, @Param("afterDate") LocalDate afterDate,
+                                   @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Streams every loan in id order from a database cursor. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select l from LoanDAO l join fetch l.book join fetch l.user order by l.id")
+    Stream<LoanDAO> streamAllOrderById();
+
+    /**
+     * Versions of the loan and of the book and user it embeds, as {@code loan.book.user}, without loading any of them.
+     */
+    @Query("select concat(cast(l.version as String), '.', cast(b.version as String), '.', cast(u.version as String))"
+            + " from LoanDAO l join l.book b join l.user u where l.id = :id")
+    Optional<String> findVersionById(@Param("id") Long id);
+}
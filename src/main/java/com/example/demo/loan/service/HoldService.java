@@ -0,0 +1,9 @@
+package com.example.demo.loan.service;
+
+import com.example.demo.loan.dto.HoldDTO;
+
+public interface HoldService {
+    HoldDTO placeHold(Long bookId, HoldDTO holdDTO);
+    HoldDTO getHold(Long bookId, Long holdId);
+    void cancelHold(Long bookId, Long holdId);
+}
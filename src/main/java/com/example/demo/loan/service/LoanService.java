@@ -1,17 +1,28 @@
 package com.example.demo.loan.service;
 
+import com.example.demo.loan.dto.LoanBatchResultDTO;
 import com.example.demo.loan.dto.LoanDTO;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface LoanService {
     List<LoanDTO> getLoans();
+    List<LoanDTO> getLoans(Long after, int limit);
+    List<LoanDTO> getOverdueLoans(LocalDate afterDate, Long afterId, int limit);
+    void streamLoans(Consumer<LoanDTO> consumer);
     LoanDTO getLoanById(Long id);
+    String getLoansVersion();
+    Optional<String> getLoanVersion(Long id);
     LoanDTO createLoan(LoanDTO loanDTO);
+    List<LoanBatchResultDTO> createLoans(List<LoanDTO> loanDTOs);
     LoanDTO updateLoan(Long id, LoanDTO loanDTO);
     LoanDTO partiallyUpdateLoan(Long id, Map<String, Object> updates);
+    LoanDTO returnLoan(Long id);
     void deleteLoan(Long id);
     //List<LoanDTO> getLoansByBookId(Long bookId);
     //List<LoanDTO> getLoansByUserId(Long userId);
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package com.example.demo.loan.service;
+
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.exception.LoanException;
+
+/**
+ * Field checks shared by the blocking and the reactive loan services.
+ */
+public final class LoanValidator {
+
+    private LoanValidator() {
+    }
+
+    public static void validateLoan(LoanDTO loanDTO) {
+        if (loanDTO.getBook() == null || loanDTO.getBook().getId() == null) {
+            throw new LoanException(new ExceptionEntity(400, "The loan must have an assigned book"));
+        }
+        if (loanDTO.getUser() == null || loanDTO.getUser().getId() == null) {
+            throw new LoanException(new ExceptionEntity(400, "The loan must have an assigned user"));
+        }
+        if (loanDTO.getLoanDate() == null) {
+            throw new LoanException(new ExceptionEntity(400, "The loan date cannot be empty"));
+        }
+        if (loanDTO.getReturnDate() == null) {
+            throw new LoanException(new ExceptionEntity(400, "The return date cannot be empty"));
+        }
+        if (loanDTO.getReturnDate().isBefore(loanDTO.getLoanDate())) {
+            throw new LoanException(new ExceptionEntity(400, "The return date cannot be before the loan date"));
+        }
+    }
+}
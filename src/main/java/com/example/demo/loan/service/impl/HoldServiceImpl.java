@@ -0,0 +1,161 @@
+package com.example.demo.loan.service.impl;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.exception.BookException;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.dao.ActiveLoanDAO;
+import com.example.demo.loan.dao.HoldDAO;
+import com.example.demo.loan.dto.HoldDTO;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.hold.HoldQueues;
+import com.example.demo.loan.lock.BookLockManager;
+import com.example.demo.loan.repository.ActiveLoanRepository;
+import com.example.demo.loan.repository.HoldRepository;
+import com.example.demo.loan.repository.LoanRepository;
+import com.example.demo.loan.service.HoldService;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.exception.UserException;
+import com.example.demo.user.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Holds are written under the lock of their book, the one checkouts and returns take too, so a hold cannot slip in
+ * between a return and the promotion of the next hold. Committed changes are then reported to {@link HoldQueues},
+ * which answers positions without reading the table.
+ */
+@Service
+@Timed(value = "library.service", histogram = true)
+public class HoldServiceImpl implements HoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldServiceImpl.class);
+
+    @Autowired
+    private HoldRepository holdRepository;
+
+    @Autowired
+    private HoldQueues holdQueues;
+
+    @Autowired
+    private ActiveLoanRepository activeLoanRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookLockManager bookLockManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static HoldDTO toHoldDTO(HoldDAO holdDAO, int position) {
+        return HoldDTO.builder()
+                .id(holdDAO.getId())
+                .bookId(holdDAO.getBook().getId())
+                .userId(holdDAO.getUser().getId())
+                .createdAt(holdDAO.getCreatedAt())
+                .position(position)
+                .build();
+    }
+
+    /**
+     * Holds are only taken on books that are on loan; a book on the shelf is borrowed instead.
+     */
+    @Override
+    public HoldDTO placeHold(Long bookId, HoldDTO holdDTO) {
+        logger.info("[Service] Placing a hold on book {}", bookId);
+        if (holdDTO == null || holdDTO.getUserId() == null) {
+            throw new LoanException(new ExceptionEntity(400, "The user of the hold is required."));
+        }
+        Long userId = holdDTO.getUserId();
+
+        return bookLockManager.withLock(bookId, () -> {
+            HoldDAO holdDAO = transactionTemplate.execute(status -> insertHold(bookId, userId));
+            int position = holdQueues.added(bookId, holdDAO.getId());
+            logger.info("[Service] Hold {} of user {} placed on book {} at position {}", holdDAO.getId(), userId, bookId, position);
+            return toHoldDTO(holdDAO, position);
+        });
+    }
+
+    private HoldDAO insertHold(Long bookId, Long userId) {
+        BookDAO bookDAO = bookRepository.findById(bookId).orElseThrow(() -> {
+            logger.warn("[Service] No book found with id {}", bookId);
+            return new BookException(new ExceptionEntity(404, "Book not found with id: " + bookId));
+        });
+        UserDAO userDAO = userRepository.findById(userId).orElseThrow(() -> {
+            logger.warn("[Service] No user found with id {}", userId);
+            return new UserException(new ExceptionEntity(404, "User not found with id: " + userId));
+        });
+
+        ActiveLoanDAO activeLoan = activeLoanRepository.findById(bookId).orElseThrow(() -> {
+            logger.warn("[Service] The book with id {} is not on loan", bookId);
+            return new LoanException(new ExceptionEntity(400, "The book is not on loan and can be borrowed right away."));
+        });
+        boolean borrower = loanRepository.findById(activeLoan.getLoanId())
+                .map(loanDAO -> loanDAO.getUser().getId().equals(userId))
+                .orElse(false);
+        if (borrower) {
+            logger.warn("[Service] The user with id {} already has the book with id {}", userId, bookId);
+            throw new LoanException(new ExceptionEntity(400, "The user already has the book on loan."));
+        }
+
+        HoldDAO holdDAO = HoldDAO.builder()
+                .book(bookDAO)
+                .user(userDAO)
+                .createdAt(LocalDateTime.now())
+                .build();
+        try {
+            return holdRepository.saveAndFlush(holdDAO);
+        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
+            logger.warn("[Service] The user with id {} already has a hold on the book with id {}", userId, bookId);
+            throw new LoanException(new ExceptionEntity(409, "The user already has a hold on this book."));
+        }
+    }
+
+    @Override
+    public HoldDTO getHold(Long bookId, Long holdId) {
+        logger.debug("HoldServiceImpl: Getting hold {} of book {}...", holdId, bookId);
+        HoldDAO holdDAO = holdRepository.findByIdAndBookId(holdId, bookId).orElseThrow(() -> {
+            logger.warn("HoldServiceImpl: getHold() -> Hold not found with id: {}", holdId);
+            return new LoanException(new ExceptionEntity(404, "Hold not found with id: " + holdId));
+        });
+        int position = holdQueues.position(bookId, holdId);
+        if (position == 0) {
+            // The hold is in the table but not in the queue of this node, which is therefore stale
+            holdQueues.evict(bookId);
+            position = holdQueues.position(bookId, holdId);
+        }
+        HoldDTO holdDTO = toHoldDTO(holdDAO, position);
+        logger.debug("HoldServiceImpl: getHold() -> Hold obtained: {}", holdDTO);
+        return holdDTO;
+    }
+
+    @Override
+    public void cancelHold(Long bookId, Long holdId) {
+        logger.debug("HoldServiceImpl: Cancelling hold {} of book {}...", holdId, bookId);
+        bookLockManager.withLock(bookId, () -> {
+            Integer deleted = transactionTemplate.execute(status -> holdRepository.deleteByIdAndBookId(holdId, bookId));
+            if (deleted == null || deleted == 0) {
+                throw new LoanException(new ExceptionEntity(404, "Hold not found with id: " + holdId));
+            }
+            holdQueues.removed(bookId, holdId);
+            return null;
+        });
+        logger.debug("HoldServiceImpl: cancelHold() -> Hold cancelled with id: {}", holdId);
+    }
+}
@@ -1,29 +1,60 @@
 package com.example.demo.loan.service.impl;
 
 import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
 import com.example.demo.book.exception.BookException;
 import com.example.demo.book.repository.BookRepository;
+import com.example.demo.cache.CollectionVersions;
 import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.dao.ActiveLoanDAO;
+import com.example.demo.loan.dao.HoldDAO;
 import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.dto.LoanBatchResultDTO;
 import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.dto.LoanPartiesDTO;
+import com.example.demo.loan.event.LoanEvent;
 import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.hold.HoldQueues;
+import com.example.demo.loan.lock.BookLockManager;
 import com.example.demo.loan.mapper.LoanMapper;
+import com.example.demo.loan.repository.ActiveLoanRepository;
+import com.example.demo.loan.repository.HoldRepository;
 import com.example.demo.loan.repository.LoanRepository;
 import com.example.demo.loan.service.LoanService;
+import com.example.demo.loan.service.LoanValidator;
+import com.example.demo.outbox.Outbox;
+import com.example.demo.outbox.OutboxEvent;
 import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.dto.UserDTO;
 import com.example.demo.user.exception.UserException;
 import com.example.demo.user.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "library.service", histogram = true)
 public class LoanServiceImpl implements LoanService {
 
     private static final Logger logger = LoggerFactory.getLogger(LoanServiceImpl.class);
@@ -37,50 +68,172 @@ public class LoanServiceImpl implements LoanService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ActiveLoanRepository activeLoanRepository;
+
+    @Autowired
+    private BookLockManager bookLockManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private HoldRepository holdRepository;
+
+    @Autowired
+    private HoldQueues holdQueues;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private Outbox outbox;
+
+    // Loan changes are published as LoanEvents, delivered to GET /loans/stream once their transaction commits
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Length of the loan a hold is promoted to when the book is returned
+    @Value("${app.holds.loan-days:14}")
+    private int holdLoanDays;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private static final LoanMapper loanMapper = LoanMapper.INSTANCE;
 
-    private void validateLoan(LoanDTO loanDTO) {
-        if (loanDTO.getBook() == null || loanDTO.getBook().getId() == null) {
-            throw new LoanException(new ExceptionEntity(400, "The loan must have an assigned book"));
-        }
-        if (loanDTO.getUser() == null || loanDTO.getUser().getId() == null) {
-            throw new LoanException(new ExceptionEntity(400, "The loan must have an assigned user"));
+    static final int MAX_PAGE_SIZE = 1000;
+
+    // Date cursor of the first overdue page. LocalDate.MIN does not survive the trip through H2
+    static final LocalDate FIRST_RETURN_DATE = LocalDate.of(1, 1, 1);
+
+    static final int MAX_BATCH_SIZE = 10000;
+
+    // Number of streamed loans after which the persistence context is cleared, so memory stays flat
+    private static final int STREAM_CLEAR_INTERVAL = 500;
+
+    /**
+     * Registers the loan in the availability index, rejecting it if another loan already holds the book. A loan
+     * holds its book from its creation until {@link #returnLoan} ends it, whatever its dates say: an overdue book is
+     * still out. The index row is locked for the rest of the transaction and the book id is its primary key, so
+     * concurrent checkouts of the same book cannot both succeed.
+     */
+    private void validateBookNotOnLoan(LoanDAO loanDAO) {
+        if (loanDAO.getReturnedAt() != null) {
+            // A returned loan can still have its dates corrected, but it no longer holds the book
+            return;
         }
-        if (loanDTO.getLoanDate() == null) {
-            throw new LoanException(new ExceptionEntity(400, "The loan date cannot be empty"));
+        Long bookId = loanDAO.getBook().getId();
+        ActiveLoanDAO activeLoan = activeLoanRepository.findByBookIdForUpdate(bookId).orElse(null);
+
+        if (activeLoan != null && !activeLoan.getLoanId().equals(loanDAO.getId())) {
+            logger.warn("[Service] The book with id {} is currently on loan", bookId);
+            throw new LoanException(new ExceptionEntity(400, "The book is already on loan and cannot be assigned again."));
         }
-        if (loanDTO.getReturnDate() == null) {
-            throw new LoanException(new ExceptionEntity(400, "The return date cannot be empty"));
+
+        boolean registered = activeLoan != null;
+        if (!registered) {
+            activeLoan = ActiveLoanDAO.builder().bookId(bookId).build();
         }
-        if (loanDTO.getReturnDate().isBefore(loanDTO.getLoanDate())) {
-            throw new LoanException(new ExceptionEntity(400, "The return date cannot be before the loan date"));
+        activeLoan.setLoanId(loanDAO.getId());
+        activeLoan.setReturnDate(loanDAO.getReturnDate());
+        try {
+            if (registered) {
+                activeLoanRepository.saveAndFlush(activeLoan);
+            } else {
+                // The book id is assigned, so save() would merge and select the row before inserting it
+                entityManager.persist(activeLoan);
+                entityManager.flush();
+            }
+        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
+            logger.warn("[Service] The book with id {} was lent concurrently", bookId);
+            throw new LoanException(new ExceptionEntity(400, "The book is already on loan and cannot be assigned again."));
         }
     }
 
-//    private void validateBookNotOnLoan(Long bookId) {
-//        boolean bookOnLoan = loanRepository.findByBookId(bookId).stream()
-//                .anyMatch(loan -> loan.getReturnDate().isAfter(LocalDate.now()));
-//
-//        if (bookOnLoan) {
-//            logger.warn("[Service] The book with id {} is currently on loan", bookId);
-//            throw new LoanException(new ExceptionEntity(400, "The book is already on loan and cannot be assigned again."));
-//        }
-//    }
+    /**
+     * Resolves the book and the user of a loan for the response, in a single statement at most, so the write can
+     * attach them as references instead of loading both entities. Only when that comes back empty is the book
+     * looked up again, to tell which of the two is missing.
+     */
+    private LoanPartiesDTO findLoanParties(Long bookId, Long userId) {
+        return loanRepository.findLoanParties(bookId, userId).orElseThrow(() -> {
+            if (!bookRepository.existsById(bookId)) {
+                logger.warn("[Service] No book found with id {}", bookId);
+                return new BookException(new ExceptionEntity(404, "Book not found with id: " + bookId));
+            }
+            logger.warn("[Service] No user found with id {}", userId);
+            return new UserException(new ExceptionEntity(404, "User not found with id: " + userId));
+        });
+    }
+
+    private static LoanDTO toLoanDTO(LoanDAO loanDAO, LoanPartiesDTO parties) {
+        return LoanDTO.builder()
+                .id(loanDAO.getId())
+                .book(parties.getBook())
+                .user(parties.getUser())
+                .loanDate(loanDAO.getLoanDate())
+                .returnDate(loanDAO.getReturnDate())
+                .build();
+    }
 
     @Override
     public List<LoanDTO> getLoans() {
         logger.debug("LoanServiceImpl: Getting all loans...");
-        List<LoanDAO> listOfLoansDAO = loanRepository.findAll();
+        List<LoanDAO> listOfLoansDAO = loanRepository.findAllWithBookAndUser();
         List<LoanDTO> listOfLoansDTOs = loanMapper.loanDAOsToLoanDTOs(listOfLoansDAO);
         logger.debug("LoanServiceImpl: getLoans() -> {} loans obtained.", listOfLoansDAO.size());
         return listOfLoansDTOs;
     }
 
+    @Override
+    public List<LoanDTO> getLoans(Long after, int limit) {
+        logger.debug("LoanServiceImpl: Getting {} loans after id {}...", limit, after);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new LoanException(new ExceptionEntity(400, "The limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        Long cursor = after == null ? 0L : after;
+        List<LoanDAO> pageOfLoansDAO = loanRepository.findPageAfter(cursor, Limit.of(limit));
+        List<LoanDTO> pageOfLoansDTOs = loanMapper.loanDAOsToLoanDTOs(pageOfLoansDAO);
+        logger.debug("LoanServiceImpl: getLoans() -> {} loans obtained after id {}.", pageOfLoansDAO.size(), cursor);
+        return pageOfLoansDTOs;
+    }
+
+    @Override
+    public List<LoanDTO> getOverdueLoans(LocalDate afterDate, Long afterId, int limit) {
+        logger.debug("LoanServiceImpl: Getting {} overdue loans after ({}, {})...", limit, afterDate, afterId);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new LoanException(new ExceptionEntity(400, "The limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        LocalDate dateCursor = afterDate == null ? FIRST_RETURN_DATE : afterDate;
+        Long idCursor = afterDate == null || afterId == null ? 0L : afterId;
+        List<LoanDAO> pageOfLoansDAO = loanRepository.findDuePageAfter(LocalDate.now(), dateCursor, idCursor, Limit.of(limit));
+        List<LoanDTO> pageOfLoansDTOs = loanMapper.loanDAOsToLoanDTOs(pageOfLoansDAO);
+        logger.debug("LoanServiceImpl: getOverdueLoans() -> {} overdue loans obtained.", pageOfLoansDAO.size());
+        return pageOfLoansDTOs;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamLoans(Consumer<LoanDTO> consumer) {
+        logger.debug("LoanServiceImpl: Streaming all loans...");
+        long streamed = 0;
+        try (Stream<LoanDAO> loans = loanRepository.streamAllOrderById()) {
+            for (LoanDAO loanDAO : (Iterable<LoanDAO>) loans::iterator) {
+                consumer.accept(loanMapper.loanDAOToLoanDTO(loanDAO));
+                if (++streamed % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        logger.debug("LoanServiceImpl: streamLoans() -> {} loans streamed.", streamed);
+    }
+
     @Override
     public LoanDTO getLoanById(Long id) {
         logger.debug("LoanServiceImpl: Getting loan with id {}...", id);
         ExceptionEntity err = new ExceptionEntity(404, "Loan not found with id: " + id);
-        LoanDAO loanDAO = loanRepository.findById(id).orElseThrow(() -> {
+        LoanDAO loanDAO = loanRepository.findByIdWithBookAndUser(id).orElseThrow(() -> {
             logger.warn("LoanServiceImpl: getLoanById() -> Loan not found with id: {}", id);
             return new LoanException(err);
         });
@@ -89,45 +242,152 @@ public class LoanServiceImpl implements LoanService {
         return loanDTO;
     }
 
+    /**
+     * Loans embed their book and user, so the collection changes whenever any of the three tables does.
+     */
+    @Override
+    public String getLoansVersion() {
+        return collectionVersions.find(CollectionVersions.LOANS, CollectionVersions.BOOKS, CollectionVersions.USERS);
+    }
+
+    @Override
+    public Optional<String> getLoanVersion(Long id) {
+        return loanRepository.findVersionById(id);
+    }
+
+    /**
+     * Checkouts of the same book are serialized on this node before their transaction starts, so a contended
+     * title queues on the in-process lock instead of holding connections while it waits for the active loan row.
+     */
     @Override
     public LoanDTO createLoan(LoanDTO loanDTO) {
         logger.info("[Service] Creating a new loan");
 
-        validateLoan(loanDTO);
-        //validateBookNotOnLoan(loanDTO.getBook().getId());
+        LoanValidator.validateLoan(loanDTO);
+
+        return bookLockManager.withLock(loanDTO.getBook().getId(),
+                () -> transactionTemplate.execute(status -> insertLoan(loanDTO)));
+    }
 
+    private LoanDTO insertLoan(LoanDTO loanDTO) {
         Long bookId = loanDTO.getBook().getId();
         Long userId = loanDTO.getUser().getId();
-
-        BookDAO book = bookRepository.findById(bookId)
-                .orElseThrow(() -> {
-                    logger.warn("[Service] No book found with id {}", bookId);
-                    return new BookException(new ExceptionEntity(404, "Book not found with id: " + bookId));
-                });
-
-        UserDAO user = userRepository.findById(userId)
-                .orElseThrow(() -> {
-                    logger.warn("[Service] No user found with id {}", userId);
-                    return new UserException(new ExceptionEntity(404, "User not found with id: " + userId));
-                });
+        LoanPartiesDTO parties = findLoanParties(bookId, userId);
 
         LoanDAO loanDAO = loanMapper.loanDTOToLoanDAO(loanDTO);
-        loanDAO.setBook(book);
-        loanDAO.setUser(user);
+        loanDAO.setBook(bookRepository.getReferenceById(bookId));
+        loanDAO.setUser(userRepository.getReferenceById(userId));
 
         LoanDAO createdLoanDAO = loanRepository.save(loanDAO);
-        LoanDTO createdLoanDTO = loanMapper.loanDAOToLoanDTO(createdLoanDAO);
+        validateBookNotOnLoan(createdLoanDAO);
+        LoanDTO createdLoanDTO = toLoanDTO(createdLoanDAO, parties);
+        outbox.record(OutboxEvent.LOAN, createdLoanDTO.getId(), OutboxEvent.CREATED, createdLoanDTO);
+        eventPublisher.publishEvent(LoanEvent.created(createdLoanDTO));
+        collectionVersions.bump(CollectionVersions.LOANS);
 
-        logger.info("[Service] Loan created with user {} and book {}", user.getName(), book.getTitle());
+        logger.info("[Service] Loan created with user {} and book {}", parties.getUser().getName(), parties.getBook().getTitle());
 
         return createdLoanDTO;
     }
 
     @Override
+    @Transactional
+    public List<LoanBatchResultDTO> createLoans(List<LoanDTO> loanDTOs) {
+        logger.info("[Service] Creating a batch of {} loans", loanDTOs.size());
+        if (loanDTOs.isEmpty() || loanDTOs.size() > MAX_BATCH_SIZE) {
+            throw new LoanException(new ExceptionEntity(400, "The batch must contain between 1 and " + MAX_BATCH_SIZE + " loans"));
+        }
+
+        LoanBatchResultDTO[] results = new LoanBatchResultDTO[loanDTOs.size()];
+        Set<Long> bookIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (int i = 0; i < loanDTOs.size(); i++) {
+            try {
+                LoanValidator.validateLoan(loanDTOs.get(i));
+                bookIds.add(loanDTOs.get(i).getBook().getId());
+                userIds.add(loanDTOs.get(i).getUser().getId());
+            } catch (LoanException e) {
+                results[i] = new LoanBatchResultDTO(i, e.getErr().getCode(), null, e.getErr());
+            }
+        }
+
+        // Resolve every referenced book, user and active loan with one IN query each
+        Map<Long, BookDAO> books = bookRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(BookDAO::getId, Function.identity()));
+        Map<Long, UserDAO> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(UserDAO::getId, Function.identity()));
+        Map<Long, ActiveLoanDAO> activeLoans = activeLoanRepository.findAllByBookIdsForUpdate(bookIds).stream()
+                .collect(Collectors.toMap(ActiveLoanDAO::getBookId, Function.identity()));
+
+        Map<Integer, LoanDAO> loansToCreate = new LinkedHashMap<>();
+        for (int i = 0; i < loanDTOs.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            LoanDTO loanDTO = loanDTOs.get(i);
+            BookDAO book = books.get(loanDTO.getBook().getId());
+            UserDAO user = users.get(loanDTO.getUser().getId());
+            ActiveLoanDAO activeLoan = activeLoans.get(loanDTO.getBook().getId());
+            if (book == null) {
+                results[i] = new LoanBatchResultDTO(i, 404, null, new ExceptionEntity(404, "Book not found with id: " + loanDTO.getBook().getId()));
+            } else if (user == null) {
+                results[i] = new LoanBatchResultDTO(i, 404, null, new ExceptionEntity(404, "User not found with id: " + loanDTO.getUser().getId()));
+            } else if (activeLoan != null) {
+                results[i] = new LoanBatchResultDTO(i, 400, null, new ExceptionEntity(400, "The book is already on loan and cannot be assigned again."));
+            } else {
+                LoanDAO loanDAO = loanMapper.loanDTOToLoanDAO(loanDTO);
+                loanDAO.setId(null);
+                loanDAO.setBook(book);
+                loanDAO.setUser(user);
+                loansToCreate.put(i, loanDAO);
+                // Claim the book so later items of the batch see it as taken
+                activeLoans.put(book.getId(), ActiveLoanDAO.builder()
+                        .bookId(book.getId())
+                        .returnDate(loanDAO.getReturnDate())
+                        .build());
+            }
+        }
+
+        try {
+            loanRepository.saveAll(loansToCreate.values());
+            for (LoanDAO loanDAO : loansToCreate.values()) {
+                ActiveLoanDAO activeLoan = activeLoans.get(loanDAO.getBook().getId());
+                activeLoan.setLoanId(loanDAO.getId());
+                entityManager.persist(activeLoan);
+            }
+            entityManager.flush();
+        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
+            logger.warn("[Service] The batch conflicted with concurrently created loans");
+            throw new LoanException(new ExceptionEntity(409, "Some books of the batch were lent concurrently, please retry"));
+        }
+
+        loansToCreate.forEach((i, loanDAO) -> {
+            LoanDTO createdLoanDTO = loanMapper.loanDAOToLoanDTO(loanDAO);
+            outbox.record(OutboxEvent.LOAN, createdLoanDTO.getId(), OutboxEvent.CREATED, createdLoanDTO);
+            eventPublisher.publishEvent(LoanEvent.created(createdLoanDTO));
+            results[i] = new LoanBatchResultDTO(i, 201, createdLoanDTO, null);
+        });
+        if (!loansToCreate.isEmpty()) {
+            collectionVersions.bump(CollectionVersions.LOANS);
+        }
+
+        logger.info("[Service] Batch processed: {} of {} loans created", loansToCreate.size(), loanDTOs.size());
+        return Arrays.asList(results);
+    }
+
+    /**
+     * A loan changed by a concurrent request fails its version check and is updated again from a fresh copy, a few
+     * times at most. The request sets absolute values, so applying it on top of the other change is safe.
+     */
+    @Override
+    @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${app.loan-update-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${app.loan-update-retry.delay:20}", multiplier = 2, random = true))
     public LoanDTO updateLoan(Long id, LoanDTO loanDTO) {
         logger.info("[Service] Updating loan with id {}", id);
 
-        validateLoan(loanDTO);
+        LoanValidator.validateLoan(loanDTO);
 
         LoanDAO loanDAO = loanRepository.findById(id)
                 .orElseThrow(() -> {
@@ -137,26 +397,24 @@ public class LoanServiceImpl implements LoanService {
 
         Long bookId = loanDTO.getBook().getId();
         Long userId = loanDTO.getUser().getId();
+        LoanPartiesDTO parties = findLoanParties(bookId, userId);
 
-        BookDAO book = bookRepository.findById(bookId)
-                .orElseThrow(() -> {
-                    logger.warn("[Service] No book found with id {}", bookId);
-                    return new BookException(new ExceptionEntity(404, "Book not found with id: " + bookId));
-                });
-
-        UserDAO user = userRepository.findById(userId)
-                .orElseThrow(() -> {
-                    logger.warn("[Service] No user found with id {}", userId);
-                    return new UserException(new ExceptionEntity(404, "User not found with id: " + userId));
-                });
+        if (!bookId.equals(loanDAO.getBook().getId())) {
+            activeLoanRepository.deleteByLoanId(id);
+        }
 
-        loanDAO.setUser(user);
-        loanDAO.setBook(book);
+        loanDAO.setUser(userRepository.getReferenceById(userId));
+        loanDAO.setBook(bookRepository.getReferenceById(bookId));
         loanDAO.setLoanDate(loanDTO.getLoanDate());
         loanDAO.setReturnDate(loanDTO.getReturnDate());
 
-        LoanDAO updatedLoanDAO = loanRepository.save(loanDAO);
-        LoanDTO updatedLoanDTO = loanMapper.loanDAOToLoanDTO(updatedLoanDAO);
+        // Flushed through the repository so a failed version check is translated and can be retried
+        LoanDAO updatedLoanDAO = loanRepository.saveAndFlush(loanDAO);
+        validateBookNotOnLoan(updatedLoanDAO);
+        LoanDTO updatedLoanDTO = toLoanDTO(updatedLoanDAO, parties);
+        outbox.record(OutboxEvent.LOAN, id, OutboxEvent.UPDATED, updatedLoanDTO);
+        eventPublisher.publishEvent(LoanEvent.updated(updatedLoanDTO));
+        collectionVersions.bump(CollectionVersions.LOANS);
 
         logger.info("[Service] Loan with id {} updated successfully", id);
 
@@ -164,6 +422,10 @@ public class LoanServiceImpl implements LoanService {
     }
 
     @Override
+    @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${app.loan-update-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${app.loan-update-retry.delay:20}", multiplier = 2, random = true))
     public LoanDTO partiallyUpdateLoan(Long id, Map<String, Object> updates) {
         logger.debug("LoanServiceImpl: Partially updating loan with id {}...", id);
         ExceptionEntity err = new ExceptionEntity(404, "Loan not found with id: " + id);
@@ -179,6 +441,9 @@ public class LoanServiceImpl implements LoanService {
             Long bookId = ((Number) updates.get("bookId")).longValue();
             BookDAO bookDAO = bookRepository.findById(bookId)
                     .orElseThrow(() -> new LoanException(new ExceptionEntity(404, "Book not found with id: " + bookId)));
+            if (!bookId.equals(loanDAO.getBook().getId())) {
+                activeLoanRepository.deleteByLoanId(id);
+            }
             loanDAO.setBook(bookDAO);
         }
 
@@ -189,20 +454,111 @@ public class LoanServiceImpl implements LoanService {
             loanDAO.setUser(userDAO);
         }
 
-        LoanDAO updatedLoanDAO = loanRepository.save(loanDAO);
+        LoanDAO updatedLoanDAO = loanRepository.saveAndFlush(loanDAO);
+        validateBookNotOnLoan(updatedLoanDAO);
         LoanDTO updatedLoanDTO = loanMapper.loanDAOToLoanDTO(updatedLoanDAO);
+        outbox.record(OutboxEvent.LOAN, id, OutboxEvent.UPDATED, updatedLoanDTO);
+        eventPublisher.publishEvent(LoanEvent.updated(updatedLoanDTO));
+        collectionVersions.bump(CollectionVersions.LOANS);
 
         logger.debug("LoanServiceImpl: partiallyUpdateLoan() -> Loan updated: {}", updatedLoanDTO);
         return updatedLoanDTO;
     }
 
+    /**
+     * Ends the loan today, or on its return date if it is already overdue, and lends the book to the first patron
+     * waiting for it, if any. Runs under the book's lock, like checkouts and holds, and only tells the hold queue
+     * about the promotion once it is committed.
+     */
+    @Override
+    public LoanDTO returnLoan(Long id) {
+        logger.info("[Service] Returning loan with id {}", id);
+        Long bookId = loanRepository.findBookIdById(id).orElseThrow(() -> {
+            logger.warn("[Service] No loan found with id {}", id);
+            return new LoanException(new ExceptionEntity(404, "Loan not found with id: " + id));
+        });
+
+        return bookLockManager.withLock(bookId, () -> {
+            ReturnedLoan returned = transactionTemplate.execute(status -> returnAndPromote(id, bookId));
+            if (returned.promotedHoldId() != null) {
+                holdQueues.removed(bookId, returned.promotedHoldId());
+            }
+            logger.info("[Service] Loan with id {} returned successfully", id);
+            return returned.loan();
+        });
+    }
+
+    private ReturnedLoan returnAndPromote(Long id, Long bookId) {
+        LoanDAO loanDAO = loanRepository.findById(id)
+                .orElseThrow(() -> new LoanException(new ExceptionEntity(404, "Loan not found with id: " + id)));
+        if (!loanDAO.getBook().getId().equals(bookId)) {
+            logger.warn("[Service] The loan with id {} was moved to another book while it was returned", id);
+            throw new LoanException(new ExceptionEntity(409, "The loan with id " + id + " was modified concurrently, please retry."));
+        }
+        if (loanDAO.getReturnedAt() != null) {
+            logger.warn("[Service] The loan with id {} is not active", id);
+            throw new LoanException(new ExceptionEntity(400, "The loan has already been returned."));
+        }
+
+        LocalDate today = LocalDate.now();
+        activeLoanRepository.findByBookIdForUpdate(bookId)
+                .filter(active -> active.getLoanId().equals(id))
+                .ifPresent(activeLoanRepository::delete);
+        if (loanDAO.getReturnDate().isAfter(today)) {
+            loanDAO.setReturnDate(today);
+        }
+        loanDAO.setReturnedAt(today);
+        // Also flushes the delete, so the promoted loan can claim the book again
+        LoanDTO returnedLoanDTO = loanMapper.loanDAOToLoanDTO(loanRepository.saveAndFlush(loanDAO));
+        outbox.record(OutboxEvent.LOAN, id, OutboxEvent.RETURNED, returnedLoanDTO);
+        eventPublisher.publishEvent(LoanEvent.returned(returnedLoanDTO));
+        collectionVersions.bump(CollectionVersions.LOANS);
+
+        HoldDAO holdDAO = nextHold(bookId);
+        if (holdDAO == null) {
+            return new ReturnedLoan(returnedLoanDTO, null);
+        }
+        holdRepository.delete(holdDAO);
+        Long userId = holdDAO.getUser().getId();
+        insertLoan(LoanDTO.builder()
+                .book(BookDTO.builder().id(bookId).build())
+                .user(UserDTO.builder().id(userId).build())
+                .loanDate(today)
+                .returnDate(today.plusDays(holdLoanDays))
+                .build());
+        logger.info("[Service] Book {} lent to user {} from hold {}", bookId, userId, holdDAO.getId());
+        return new ReturnedLoan(returnedLoanDTO, holdDAO.getId());
+    }
+
+    private HoldDAO nextHold(Long bookId) {
+        Long holdId = holdQueues.next(bookId);
+        if (holdId == null) {
+            return null;
+        }
+        Optional<HoldDAO> holdDAO = holdRepository.findById(holdId);
+        if (holdDAO.isPresent()) {
+            return holdDAO.get();
+        }
+        logger.warn("[Service] The hold queue of book {} was stale, reading the next hold from the table", bookId);
+        holdQueues.evict(bookId);
+        return holdRepository.findFirstByBookIdOrderByIdAsc(bookId).orElse(null);
+    }
+
+    private record ReturnedLoan(LoanDTO loan, Long promotedHoldId) {
+    }
+
     @Override
+    @Transactional
     public void deleteLoan(Long id) {
         logger.debug("LoanServiceImpl: Deleting loan with id {}...", id);
         if (!loanRepository.existsById(id)) {
             throw new LoanException(new ExceptionEntity(404, "Loan not found with id: " + id));
         }
+        activeLoanRepository.deleteByLoanId(id);
         loanRepository.deleteById(id);
+        outbox.record(OutboxEvent.LOAN, id, OutboxEvent.DELETED, null);
+        eventPublisher.publishEvent(LoanEvent.deleted(id));
+        collectionVersions.bump(CollectionVersions.LOANS);
         logger.debug("LoanServiceImpl: deleteLoan() -> Loan deleted with id: {}", id);
     }
 }
\ No newline at end of file
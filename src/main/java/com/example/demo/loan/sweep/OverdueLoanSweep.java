@@ -0,0 +1,83 @@
+package com.example.demo.loan.sweep;
+
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.service.LoanService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scheduled sweep over loans that have become overdue.
+ * <p>
+ * The sweep remembers the last loan it processed, in (returnDate, id) order, as its watermark. Each run reads the
+ * loans due since that watermark in chunks of {@code app.overdue-sweep.chunk-size} through
+ * {@link LoanService#getOverdueLoans}, so a run costs as much as the loans that fell due since the previous one.
+ * The first run after startup works through the whole backlog. Loans created or moved to a return date behind
+ * the watermark are not picked up again.
+ */
+@Component
+public class OverdueLoanSweep {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverdueLoanSweep.class);
+
+    private final LoanService loanService;
+
+    private final int chunkSize;
+
+    // Guards the watermark: a scheduled run and a direct call must not sweep from the same one at once
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private LocalDate watermarkDate;
+
+    private Long watermarkId;
+
+    private volatile long overdueLoans;
+
+    public OverdueLoanSweep(LoanService loanService, @Value("${app.overdue-sweep.chunk-size:500}") int chunkSize) {
+        this.loanService = loanService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Processes every loan that became overdue since the last run and returns how many there were.
+     */
+    @Scheduled(cron = "${app.overdue-sweep.cron:0 5 0 * * *}")
+    public int sweep() {
+        lock.lock();
+        try {
+            return sweepFromWatermark();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getOverdueLoans() {
+        return overdueLoans;
+    }
+
+    private int sweepFromWatermark() {
+        logger.debug("OverdueLoanSweep: Sweeping loans due after ({}, {})...", watermarkDate, watermarkId);
+        int swept = 0;
+        List<LoanDTO> chunk;
+        do {
+            chunk = loanService.getOverdueLoans(watermarkDate, watermarkId, chunkSize);
+            for (LoanDTO loan : chunk) {
+                logger.debug("OverdueLoanSweep: Loan {} of book {} to user {} is overdue since {}.",
+                        loan.getId(), loan.getBook().getId(), loan.getUser().getId(), loan.getReturnDate());
+                // Advance per loan so a failed chunk is resumed where it stopped
+                watermarkDate = loan.getReturnDate();
+                watermarkId = loan.getId();
+                swept++;
+            }
+        } while (chunk.size() == chunkSize);
+        overdueLoans += swept;
+        logger.info("OverdueLoanSweep: sweep() -> {} loans became overdue, {} since startup.", swept, overdueLoans);
+        return swept;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.logging;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Logs one INFO line per request with its method, path, status, result count and latency, as key=value pairs.
+ * <p>
+ * The result count is the size of the collection the controller returned, recorded by {@link ResultCountAdvice};
+ * it is left out for single entities and streamed responses. Only the count is logged, never the payload, so the
+ * cost of the line does not grow with the response.
+ */
+@Component
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestLoggingFilter.class);
+
+    static final String RESULT_COUNT_ATTRIBUTE = RequestLoggingFilter.class.getName() + ".resultCount";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                // Streamed responses are complete only when the async processing ends
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(request, response.getStatus(), start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(request, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(), start);
+            }
+        }
+    }
+
+    private static void log(HttpServletRequest request, int status, long start) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        long latencyMicros = (System.nanoTime() - start) / 1_000;
+        Object resultCount = request.getAttribute(RESULT_COUNT_ATTRIBUTE);
+        if (resultCount != null) {
+            logger.info("method={} path={} status={} count={} latencyUs={}",
+                    request.getMethod(), request.getRequestURI(), status, resultCount, latencyMicros);
+        } else {
+            logger.info("method={} path={} status={} latencyUs={}",
+                    request.getMethod(), request.getRequestURI(), status, latencyMicros);
+        }
+    }
+}
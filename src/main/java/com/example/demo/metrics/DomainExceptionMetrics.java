@@ -0,0 +1,49 @@
+package com.example.demo.metrics;
+
+import com.example.demo.book.exception.BookException;
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.user.exception.UserException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the domain exceptions thrown out of the service layer as {@code library.domain.exceptions}, tagged with
+ * the exception type and its error code.
+ */
+@Aspect
+@Component
+public class DomainExceptionMetrics {
+
+    static final String METRIC_NAME = "library.domain.exceptions";
+
+    private final MeterRegistry meterRegistry;
+
+    public DomainExceptionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @AfterThrowing(pointcut = "within(com.example.demo..service.impl.*)", throwing = "e")
+    public void count(RuntimeException e) {
+        ExceptionEntity err = errorOf(e);
+        if (err != null) {
+            meterRegistry.counter(METRIC_NAME, "exception", e.getClass().getSimpleName(), "code", String.valueOf(err.getCode()))
+                    .increment();
+        }
+    }
+
+    private static ExceptionEntity errorOf(RuntimeException e) {
+        if (e instanceof BookException bookException) {
+            return bookException.getErr();
+        }
+        if (e instanceof UserException userException) {
+            return userException.getErr();
+        }
+        if (e instanceof LoanException loanException) {
+            return loanException.getErr();
+        }
+        return null;
+    }
+}
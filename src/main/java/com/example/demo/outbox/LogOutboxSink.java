@@ -0,0 +1,30 @@
+package com.example.demo.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes every event as a line of JSON to the {@code com.example.demo.outbox.LogOutboxSink} logger, for
+ * development and for log shippers.
+ */
+public class LogOutboxSink implements OutboxSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogOutboxSink.class);
+
+    private final ObjectMapper objectMapper;
+
+    public LogOutboxSink(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void send(List<OutboxEvent> events) throws IOException {
+        for (OutboxEvent event : events) {
+            logger.info("{}", objectMapper.writeValueAsString(event));
+        }
+    }
+}
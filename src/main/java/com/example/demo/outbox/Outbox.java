@@ -0,0 +1,57 @@
+package com.example.demo.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records changes of books, users and loans in the {@code outbox_events} table. The row is written in the
+ * transaction that makes the change, which must already be running, so a change is recorded if and only if it
+ * commits. {@link OutboxDispatcher} delivers the rows afterwards.
+ */
+@Component
+public class Outbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public Outbox(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Records a change. The payload is the book, user or loan after the change, serialized now; null for a delete.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        outboxEventRepository.save(newEvent(aggregateType, aggregateId, eventType, payload));
+    }
+
+    /**
+     * The row recording a change, without its id, for a caller that writes it in a transaction of its own such as
+     * the reactive loan API.
+     */
+    public OutboxEventDAO newEvent(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        return OutboxEventDAO.builder()
+                .aggregateType(aggregateType)
+                .aggregateId(aggregateId)
+                .eventType(eventType)
+                .payload(payload == null ? null : serialize(payload))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private String serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox payload could not be serialized", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The sink the outbox is delivered to: the log by default, or a file with {@code app.outbox.sink=file}.
+ */
+@Configuration
+public class OutboxConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.outbox.sink", havingValue = "log", matchIfMissing = true)
+    OutboxSink logOutboxSink(ObjectMapper objectMapper) {
+        return new LogOutboxSink(objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.outbox.sink", havingValue = "file")
+    OutboxSink fileOutboxSink(ObjectMapper objectMapper, @Value("${app.outbox.file:./data/outbox.ndjson}") Path file) throws IOException {
+        return new FileOutboxSink(objectMapper, file);
+    }
+}
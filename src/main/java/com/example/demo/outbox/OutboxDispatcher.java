@@ -0,0 +1,127 @@
+package com.example.demo.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivers the outbox to the {@link OutboxSink} in batches.
+ * <p>
+ * Every {@code app.outbox.linger} the dispatcher reads the oldest {@code app.outbox.batch-size} events, sends them
+ * and deletes them, and goes on while it finds full batches, so a backlog is worked off without waiting. Events are
+ * deleted only after the sink accepted them: a failed batch stays in the outbox and is sent again on the next run,
+ * and so is the last batch when the application stops between sending and deleting it. Delivery is therefore at
+ * least once, oldest id first.
+ * <p>
+ * {@code library.outbox.lag} is the age of the oldest event waiting as of the last run, and keeps growing while
+ * the sink fails; {@code library.outbox.delivery} times each event from its change to its delivery.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final OutboxSink outboxSink;
+
+    private final int batchSize;
+
+    // One run at a time, so a scheduled run and a direct call never send the same batch twice
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Creation time of the oldest event found waiting by the last run, null when it emptied the outbox
+    private volatile LocalDateTime oldestPending;
+
+    private final Counter delivered;
+
+    private final Counter failures;
+
+    private final Timer delivery;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository, OutboxSink outboxSink,
+                            @Value("${app.outbox.batch-size:500}") int batchSize, MeterRegistry meterRegistry) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The outbox batch size must be positive: " + batchSize);
+        }
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxSink = outboxSink;
+        this.batchSize = batchSize;
+        TimeGauge.builder("library.outbox.lag", this, TimeUnit.MILLISECONDS, OutboxDispatcher::lagMillis)
+                .description("Age of the oldest outbox event not delivered yet")
+                .register(meterRegistry);
+        this.delivered = Counter.builder("library.outbox.delivered")
+                .description("Outbox events delivered to the sink")
+                .register(meterRegistry);
+        this.failures = Counter.builder("library.outbox.failures")
+                .description("Outbox batches the sink failed to take")
+                .register(meterRegistry);
+        this.delivery = Timer.builder("library.outbox.delivery")
+                .description("Time from a change to the delivery of its outbox event")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Delivers the events waiting in the outbox and returns how many were delivered.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.linger:1s}")
+    public int dispatch() {
+        lock.lock();
+        try {
+            return dispatchBatches();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int dispatchBatches() {
+        int dispatched = 0;
+        List<OutboxEventDAO> batch;
+        do {
+            batch = outboxEventRepository.findByOrderByIdAsc(Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            oldestPending = batch.get(0).getCreatedAt();
+            List<OutboxEvent> events = batch.stream().map(OutboxEvent::of).toList();
+            try {
+                outboxSink.send(events);
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                logger.warn("OutboxDispatcher: Delivering {} events failed, they will be sent again: {}", events.size(), e.toString());
+                return dispatched;
+            }
+            outboxEventRepository.deleteAllByIdInBatch(events.stream().map(OutboxEvent::id).toList());
+
+            LocalDateTime now = LocalDateTime.now();
+            events.forEach(event -> delivery.record(Duration.between(event.createdAt(), now)));
+            delivered.increment(events.size());
+            dispatched += events.size();
+        } while (batch.size() == batchSize);
+        oldestPending = null;
+        if (dispatched > 0) {
+            logger.debug("OutboxDispatcher: dispatch() -> {} events delivered.", dispatched);
+        }
+        return dispatched;
+    }
+
+    private double lagMillis() {
+        LocalDateTime oldest = oldestPending;
+        return oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change as handed to an {@link OutboxSink}. The id is unique and increasing per change, so consumers can drop
+ * the duplicates that at-least-once delivery may send; the payload is the JSON of the book, user or loan after the
+ * change, or null when it was deleted.
+ */
+public record OutboxEvent(Long id, String aggregateType, Long aggregateId, String eventType,
+                          @JsonRawValue String payload, LocalDateTime createdAt) {
+
+    public static final String BOOK = "book";
+    public static final String USER = "user";
+    public static final String LOAN = "loan";
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String RETURNED = "returned";
+    public static final String DELETED = "deleted";
+
+    static OutboxEvent of(OutboxEventDAO outboxEventDAO) {
+        return new OutboxEvent(outboxEventDAO.getId(), outboxEventDAO.getAggregateType(), outboxEventDAO.getAggregateId(),
+                outboxEventDAO.getEventType(), outboxEventDAO.getPayload(), outboxEventDAO.getCreatedAt());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.outbox;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventDAO, Long> {
+
+    /**
+     * The oldest undelivered events, by the primary key.
+     */
+    List<OutboxEventDAO> findByOrderByIdAsc(Limit limit);
+}
@@ -0,0 +1,18 @@
+package com.example.demo.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the outbox events, such as the downstream search and analytics feed. {@code app.outbox.sink}
+ * selects the log ({@code log}, the default) or a file ({@code file}); any other value leaves it to an
+ * {@code OutboxSink} bean of the application.
+ */
+public interface OutboxSink {
+
+    /**
+     * Delivers a batch of events, oldest first, and returns only once they are stored downstream. Throws if the
+     * batch could not be delivered: it is then sent again, in full, on the dispatcher's next run.
+     */
+    void send(List<OutboxEvent> events) throws IOException;
+}
@@ -0,0 +1,312 @@
+package com.example.demo.seed;
+
+import com.example.demo.cache.CollectionVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fills the database with a production-sized synthetic data set instead of the ten demo rows of the
+ * {@code Dataloader}, enabled with {@code app.seed.enabled=true} and sized with {@code app.seed.users},
+ * {@code app.seed.books} and {@code app.seed.loans}.
+ * <p>
+ * Rows are written with plain JDBC batches, one transaction per chunk of {@code app.seed.chunk-size} rows, by
+ * {@code app.seed.threads} threads in parallel; users and books first, then the loans that reference them. Ids are
+ * assigned here and the entity sequences are moved past them afterwards, so JPA keeps allocating from free blocks.
+ * Nothing is seeded into a database that already has users or books.
+ * <p>
+ * The data follows skewed distributions: readers and titles are picked for each loan by Zipf popularity, authors
+ * write a Zipf-distributed number of books and recent publication dates are more common than old ones. At most one
+ * loan per book is still running and it is registered in the availability index, as the loan service requires.
+ * The same {@code app.seed.random-seed} produces the same rows, up to which of two concurrent loans of a book
+ * stays running.
+ */
+@Component
+@ConditionalOnProperty(name = "app.seed.enabled", havingValue = "true")
+public class BulkDataSeeder implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkDataSeeder.class);
+
+    // Must match the allocationSize of the entity sequences
+    private static final int SEQUENCE_ALLOCATION_SIZE = 50;
+
+    private static final double READER_EXPONENT = 0.8;
+    private static final double TITLE_EXPONENT = 1.0;
+    private static final double AUTHOR_EXPONENT = 1.1;
+    private static final int BOOKS_PER_AUTHOR = 20;
+
+    // Random streams of the tables, so each one draws different numbers from the same seed
+    private static final long USER_STREAM = 1;
+    private static final long BOOK_STREAM = 2;
+    private static final long LOAN_STREAM = 3;
+
+    private static final int LOAN_HISTORY_DAYS = 730;
+    private static final int MIN_LOAN_DAYS = 7;
+    private static final int MAX_LOAN_DAYS = 30;
+    private static final int REGISTRATION_HISTORY_DAYS = 3650;
+    private static final int PUBLICATION_HISTORY_DAYS = 70 * 365;
+
+    private static final String[] FIRST_NAMES = {"Ana", "Luis", "Marta", "Javier", "Lucia", "Carlos", "Elena",
+            "Pablo", "Sara", "Diego", "Laura", "Miguel", "Paula", "Jorge", "Irene", "Alvaro", "Carmen", "David",
+            "Nuria", "Sergio"};
+    private static final String[] LAST_NAMES = {"Garcia", "Martinez", "Lopez", "Sanchez", "Perez", "Gomez",
+            "Martin", "Jimenez", "Ruiz", "Hernandez", "Diaz", "Moreno", "Alvarez", "Romero", "Navarro", "Torres",
+            "Dominguez", "Vazquez", "Ramos", "Gil"};
+    private static final String[] TITLE_ADJECTIVES = {"Silent", "Lost", "Hidden", "Broken", "Golden", "Last",
+            "Distant", "Secret", "Burning", "Forgotten", "Endless", "Crimson", "Quiet", "Wild", "Northern", "Empty"};
+    private static final String[] TITLE_NOUNS = {"River", "Garden", "Empire", "Letter", "Winter", "City", "Road",
+            "Kingdom", "Island", "Shadow", "Promise", "Harbor", "Mountain", "Storm", "Library", "Journey"};
+
+    private static final String INSERT_USER =
+            "INSERT INTO users (id, name, phone_number, registration_date, version) VALUES (?, ?, ?, ?, 0)";
+    private static final String INSERT_BOOK =
+            "INSERT INTO books (id, title, author, isbn, publication_date, version) VALUES (?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_LOAN =
+            "INSERT INTO loans (id, book_id, user_id, loan_date, return_date, returned_at, version) VALUES (?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_ACTIVE_LOAN =
+            "INSERT INTO active_loans (book_id, loan_id, return_date) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CollectionVersions collectionVersions;
+    private final int users;
+    private final int books;
+    private final int loans;
+    private final int chunkSize;
+    private final int threads;
+    private final long randomSeed;
+
+    public BulkDataSeeder(DataSource dataSource,
+                          CollectionVersions collectionVersions,
+                          @Value("${app.seed.users}") int users,
+                          @Value("${app.seed.books}") int books,
+                          @Value("${app.seed.loans}") int loans,
+                          @Value("${app.seed.chunk-size}") int chunkSize,
+                          @Value("${app.seed.threads}") int threads,
+                          @Value("${app.seed.random-seed}") long randomSeed) {
+        if (users < 1 || books < 1 || loans < 0 || chunkSize < 1) {
+            throw new IllegalArgumentException("app.seed needs at least one user and one book, no negative loans and a positive chunk size");
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.collectionVersions = collectionVersions;
+        this.users = users;
+        this.books = books;
+        this.loans = loans;
+        this.chunkSize = chunkSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.randomSeed = randomSeed;
+    }
+
+    @Override
+    public void run(String... args) throws InterruptedException {
+        if (hasRows("users") || hasRows("books")) {
+            logger.info("BulkDataSeeder: The database already has data, skipping the seeding.");
+            return;
+        }
+        logger.info("BulkDataSeeder: Seeding {} users, {} books and {} loans with {} threads...", users, books, loans, threads);
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ZipfSampler authors = new ZipfSampler(Math.max(1, books / BOOKS_PER_AUTHOR), AUTHOR_EXPONENT);
+            List<Future<?>> chunks = new ArrayList<>();
+            chunks.addAll(submitChunks(executor, USER_STREAM, users, (from, to, random) -> insertUsers(from, to, random, today)));
+            chunks.addAll(submitChunks(executor, BOOK_STREAM, books, (from, to, random) -> insertBooks(from, to, random, today, authors)));
+            await(chunks, start, users + books, "users and books");
+
+            ZipfSampler readers = new ZipfSampler(users, READER_EXPONENT);
+            ZipfSampler titles = new ZipfSampler(books, TITLE_EXPONENT);
+            AtomicLongArray booksOnLoan = new AtomicLongArray((books + 63) / 64);
+            AtomicLong running = new AtomicLong();
+            long loansStart = System.nanoTime();
+            chunks = submitChunks(executor, LOAN_STREAM, loans, (from, to, random) -> running.addAndGet(insertLoans(
+                    from, to, random, today, readers, titles, booksOnLoan)));
+            await(chunks, loansStart, loans, "loans");
+            logger.info("BulkDataSeeder: {} of the loans are still running", running.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        restartSequence("users_seq", users);
+        restartSequence("books_seq", books);
+        restartSequence("loans_seq", loans);
+        collectionVersions.bump(CollectionVersions.USERS);
+        collectionVersions.bump(CollectionVersions.BOOKS);
+        collectionVersions.bump(CollectionVersions.LOANS);
+
+        long rows = users + books + loans;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("BulkDataSeeder: Seeded {} rows in {} s ({} rows/s)", rows, String.format("%.2f", seconds), Math.round(rows / seconds));
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(int from, int to, SplittableRandom random);
+    }
+
+    /**
+     * Splits {@code 0..count-1} into chunks written by the executor. Each chunk draws from its own random
+     * source, derived from the seed, the table and its position, so the rows do not depend on which thread writes them.
+     */
+    private List<Future<?>> submitChunks(ExecutorService executor, long stream, int count, ChunkWriter writer) {
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < count; from += chunkSize) {
+            int chunkFrom = from;
+            int chunkTo = Math.min(count, from + chunkSize);
+            SplittableRandom random = new SplittableRandom(randomSeed ^ (stream << 32) ^ chunkFrom);
+            chunks.add(executor.submit(() -> transactionTemplate.executeWithoutResult(
+                    status -> writer.write(chunkFrom, chunkTo, random))));
+        }
+        return chunks;
+    }
+
+    private static void await(List<Future<?>> chunks, long start, long rows, String what) throws InterruptedException {
+        for (Future<?> chunk : chunks) {
+            try {
+                chunk.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("BulkDataSeeder: Seeding " + what + " failed", e.getCause());
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("BulkDataSeeder: {} {} in {} s ({} rows/s)", rows, what, String.format("%.2f", seconds), Math.round(rows / seconds));
+    }
+
+    private void insertUsers(int from, int to, SplittableRandom random, LocalDate today) {
+        List<Object[]> rows = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            rows.add(new Object[]{i + 1L, personName(random), "6" + (10_000_000 + random.nextInt(90_000_000)),
+                    today.minusDays(random.nextInt(REGISTRATION_HISTORY_DAYS))});
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER, rows);
+    }
+
+    private void insertBooks(int from, int to, SplittableRandom random, LocalDate today, ZipfSampler authors) {
+        List<Object[]> rows = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            long id = i + 1L;
+            String title = "The " + pick(TITLE_ADJECTIVES, random) + " " + pick(TITLE_NOUNS, random);
+            // Recent books are more common: the age is the square of a uniform fraction of the history
+            double age = random.nextDouble();
+            rows.add(new Object[]{id, title, authorName(authors.sample(random)), isbn(id),
+                    today.minusDays((long) (age * age * PUBLICATION_HISTORY_DAYS))});
+        }
+        jdbcTemplate.batchUpdate(INSERT_BOOK, rows);
+    }
+
+    /**
+     * Writes loans spread over the last two years. A loan that would still be running when its book already has a
+     * running loan is moved two months back, so it is returned. Every loan that is not running is returned on its
+     * return date.
+     *
+     * @return the number of loans of the chunk that are still running
+     */
+    private int insertLoans(int from, int to, SplittableRandom random, LocalDate today, ZipfSampler readers,
+                            ZipfSampler titles, AtomicLongArray booksOnLoan) {
+        List<Object[]> rows = new ArrayList<>(to - from);
+        List<Object[]> activeRows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            long id = i + 1L;
+            int book = scatter(titles.sample(random), books);
+            long userId = 1L + scatter(readers.sample(random), users);
+            long bookId = 1L + book;
+            LocalDate loanDate = today.minusDays(random.nextInt(LOAN_HISTORY_DAYS));
+            LocalDate returnDate = loanDate.plusDays(MIN_LOAN_DAYS + random.nextInt(MAX_LOAN_DAYS - MIN_LOAN_DAYS + 1));
+            boolean running = false;
+            if (returnDate.isAfter(today)) {
+                if (claim(booksOnLoan, book)) {
+                    activeRows.add(new Object[]{bookId, id, returnDate});
+                    running = true;
+                } else {
+                    loanDate = loanDate.minusDays(60);
+                    returnDate = returnDate.minusDays(60);
+                }
+            }
+            rows.add(new Object[]{id, bookId, userId, loanDate, returnDate, running ? null : returnDate});
+        }
+        jdbcTemplate.batchUpdate(INSERT_LOAN, rows);
+        if (!activeRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ACTIVE_LOAN, activeRows);
+        }
+        return activeRows.size();
+    }
+
+    private static boolean claim(AtomicLongArray booksOnLoan, int book) {
+        int word = book >>> 6;
+        long bit = 1L << book;
+        long current;
+        do {
+            current = booksOnLoan.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+        } while (!booksOnLoan.compareAndSet(word, current, current | bit));
+        return true;
+    }
+
+    /**
+     * Maps a popularity rank to a row, so the most popular users and books are spread over the table instead of
+     * being its first rows. Multiplying by a prime that does not divide {@code n} is a bijection of {@code 0..n-1}.
+     */
+    private static int scatter(int rank, int n) {
+        long prime = n % 1_000_003 == 0 ? 999_983 : 1_000_003;
+        return (int) (rank * prime % n);
+    }
+
+    private boolean hasRows(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + table + ")", Boolean.class));
+    }
+
+    /**
+     * Moves a sequence past the seeded ids. Hibernate's pooled optimizer uses the block of ids that ends at the value
+     * it reads, so the next value must be at least a whole block beyond the last seeded id.
+     */
+    private void restartSequence(String sequence, long lastId) {
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (lastId + SEQUENCE_ALLOCATION_SIZE + 1));
+    }
+
+    private static String personName(SplittableRandom random) {
+        return pick(FIRST_NAMES, random) + " " + pick(LAST_NAMES, random);
+    }
+
+    private static String authorName(int author) {
+        return FIRST_NAMES[author % FIRST_NAMES.length] + " " + LAST_NAMES[(author / FIRST_NAMES.length) % LAST_NAMES.length]
+                + (author < FIRST_NAMES.length * LAST_NAMES.length ? "" : " " + (author / (FIRST_NAMES.length * LAST_NAMES.length) + 1));
+    }
+
+    /**
+     * A valid, unique ISBN-13 per book id: the 978 prefix, the id as the nine-digit body and the check digit.
+     */
+    static String isbn(long id) {
+        String body = "978" + String.format("%09d", id);
+        int sum = 0;
+        for (int i = 0; i < body.length(); i++) {
+            sum += (body.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return body + (10 - sum % 10) % 10;
+    }
+
+    private static String pick(String[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+}
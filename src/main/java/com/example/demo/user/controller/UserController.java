@@ -7,12 +7,15 @@ import com.example.demo.user.service.UserService;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/users")
@@ -24,19 +27,29 @@ public class UserController {
     private final UserService userService;
 
     @GetMapping
-    List<UserDTO> getUsers() {
+    List<UserDTO> getUsers(WebRequest webRequest) {
         logger.info("Getting all users...");
+        if (webRequest.checkNotModified(userService.getUsersVersion())) {
+            logger.info("UserController: getUsers() -> Users not modified.");
+            return null;
+        }
         List<UserDTO> listOfUsers = userService.getUsers();
-        logger.info("UserController: getUsers() -> {} users obtained.", listOfUsers);
+        logger.info("UserController: getUsers() -> {} users obtained.", listOfUsers.size());
+        logger.debug("UserController: getUsers() -> {}", listOfUsers);
         return listOfUsers;
     }
 
     @GetMapping("/{id}")
-    ResponseEntity<Object> getUserById(@PathVariable Long id) {
+    ResponseEntity<Object> getUserById(@PathVariable Long id, WebRequest webRequest) {
         logger.info("Getting user with id {}...", id);
+        Optional<String> version = userService.getUserVersion(id);
+        if (version.isPresent() && webRequest.checkNotModified(version.get())) {
+            logger.debug("UserController: getUserById() -> User {} not modified.", id);
+            return null;
+        }
         try {
             UserDTO user = userService.getUserById(id);
-            logger.info("UserController: getUserById() -> User obtained: {}", user);
+            logger.debug("UserController: getUserById() -> User obtained: {}", user);
             return ResponseEntity.ok(user);
         } catch (UserException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
@@ -47,7 +60,7 @@ public class UserController {
     UserDTO createUser(@RequestBody UserDTO userDTO) {
         logger.info("Creating a new user...");
         UserDTO createdUser = userService.createUser(userDTO);
-        logger.info("UserController: createUser() -> User created: {}", createdUser);
+        logger.debug("UserController: createUser() -> User created: {}", createdUser);
         return createdUser;
     }
 
@@ -56,11 +69,14 @@ public class UserController {
         logger.info("Updating user with id {}...", id);
         try {
             UserDTO updatedUser = userService.updateUser(id, userDTO);
-            logger.info("UserController: updateUser() -> User updated: {}", updatedUser);
+            logger.debug("UserController: updateUser() -> User updated: {}", updatedUser);
             return ResponseEntity.ok(updatedUser);
         } catch (UserException e) {
             logger.error("UserController: Error updating user with id {}: {}", id, e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("UserController: User with id {} was changed concurrently while it was updated", id);
+            return conflict(id);
         }
     }
 
@@ -69,11 +85,14 @@ public class UserController {
         logger.info("Partially updating user with id {}...", id);
         try {
             UserDTO updatedUser = userService.partiallyUpdateUser(id, updates);
-            logger.info("UserController: partiallyUpdateUser() -> User updated: {}", updatedUser);
+            logger.debug("UserController: partiallyUpdateUser() -> User updated: {}", updatedUser);
             return ResponseEntity.ok(updatedUser);
         } catch (UserException e) {
             logger.error("UserController: Error partially updating user with id {}: {}", id, e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getErr());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("UserController: User with id {} was changed concurrently while it was partially updated", id);
+            return conflict(id);
         }
     }
 
@@ -83,4 +102,12 @@ public class UserController {
         userService.deleteUser(id);
         logger.info("UserController: deleteUser() -> User deleted with id: {}", id);
     }
+
+    /**
+     * Answer to an update that lost the version check to a concurrent change of the same user.
+     */
+    private static ResponseEntity<Object> conflict(Long id) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ExceptionEntity(409, "The user with id " + id + " was modified concurrently, please retry."));
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.example.demo.user.mapper;
 import com.example.demo.user.dao.UserDAO;
 import com.example.demo.user.dto.UserDTO;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
 import java.util.List;
@@ -14,5 +15,6 @@ public interface UserMapper {
 
     UserDTO userDAOToUserDTO(UserDAO userDAO);
     List<UserDTO> userDAOsToUserDTOs(List<UserDAO> listOfUserDAOs);
+    @Mapping(target = "version", ignore = true)
     UserDAO userDTOToUserDAO(UserDTO userDTO);
 }
\ No newline at end of file
@@ -4,10 +4,13 @@ import com.example.demo.user.dto.UserDTO;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface UserService {
     List<UserDTO> getUsers();
     UserDTO getUserById(Long id);
+    String getUsersVersion();
+    Optional<String> getUserVersion(Long id);
     UserDTO createUser(UserDTO userDTO);
     UserDTO updateUser(Long id, UserDTO userDTO);
     UserDTO partiallyUpdateUser(Long id, Map<String, Object> updates);
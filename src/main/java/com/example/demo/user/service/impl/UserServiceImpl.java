@@ -1,22 +1,29 @@
 package com.example.demo.user.service.impl;
 
+import com.example.demo.cache.CollectionVersions;
 import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.outbox.Outbox;
+import com.example.demo.outbox.OutboxEvent;
 import com.example.demo.user.dao.UserDAO;
 import com.example.demo.user.dto.UserDTO;
 import com.example.demo.user.exception.UserException;
 import com.example.demo.user.mapper.UserMapper;
 import com.example.demo.user.repository.UserRepository;
 import com.example.demo.user.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
+@Timed(value = "library.service", histogram = true)
 public class UserServiceImpl implements UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
@@ -24,6 +31,12 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
     private static final UserMapper userMapper = UserMapper.INSTANCE;
 
     @Override
@@ -46,16 +59,33 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    public String getUsersVersion() {
+        return collectionVersions.find(CollectionVersions.USERS);
+    }
+
+    /**
+     * Version of the user, usually answered by the second-level cache without a query.
+     */
+    @Override
+    public Optional<String> getUserVersion(Long id) {
+        return userRepository.findById(id).map(userDAO -> String.valueOf(userDAO.getVersion()));
+    }
+
+    @Override
+    @Transactional
     public UserDTO createUser(UserDTO userDTO) {
         logger.debug("UserServiceImpl: Creating a new user...");
         UserDAO userDAO = userMapper.userDTOToUserDAO(userDTO);
         UserDAO createdUserDAO = userRepository.save(userDAO);
         UserDTO createdUserDTO = userMapper.userDAOToUserDTO(createdUserDAO);
+        outbox.record(OutboxEvent.USER, createdUserDTO.getId(), OutboxEvent.CREATED, createdUserDTO);
+        collectionVersions.bump(CollectionVersions.USERS);
         logger.debug("UserServiceImpl: createUser() -> User created: {}", createdUserDTO);
         return createdUserDTO;
     }
 
     @Override
+    @Transactional
     public UserDTO updateUser(Long id, UserDTO userDTO) {
         logger.debug("UserServiceImpl: Updating user with id {}...", id);
         ExceptionEntity err = new ExceptionEntity(501, "User not found with id: " + id);
@@ -66,12 +96,15 @@ public class UserServiceImpl implements UserService {
         userDAO.setRegistrationDate(userDTO.getRegistrationDate());
         UserDAO updatedUserDAO = userRepository.save(userDAO);
         UserDTO updatedUserDTO = userMapper.userDAOToUserDTO(updatedUserDAO);
+        outbox.record(OutboxEvent.USER, id, OutboxEvent.UPDATED, updatedUserDTO);
+        collectionVersions.bump(CollectionVersions.USERS);
 
         logger.debug("UserServiceImpl: updateUser() -> User updated: {}", updatedUserDTO);
         return updatedUserDTO;
     }
 
     @Override
+    @Transactional
     public UserDTO partiallyUpdateUser(Long id, Map<String, Object> updates) {
         logger.debug("UserServiceImpl: Partially updating user with id {}...", id);
         ExceptionEntity err = new ExceptionEntity(501, "User not found with id: " + id);
@@ -89,15 +122,24 @@ public class UserServiceImpl implements UserService {
 
         UserDAO updatedUserDAO = userRepository.save(userDAO);
         UserDTO updatedUserDTO = userMapper.userDAOToUserDTO(updatedUserDAO);
+        outbox.record(OutboxEvent.USER, id, OutboxEvent.UPDATED, updatedUserDTO);
+        collectionVersions.bump(CollectionVersions.USERS);
 
         logger.debug("UserServiceImpl: partiallyUpdateUser() -> User updated: {}", updatedUserDTO);
         return updatedUserDTO;
     }
 
     @Override
+    @Transactional
     public void deleteUser(Long id) {
         logger.debug("UserServiceImpl: Deleting user with id {}...", id);
+        if (!userRepository.existsById(id)) {
+            logger.debug("UserServiceImpl: deleteUser() -> No user with id: {}", id);
+            return;
+        }
         userRepository.deleteById(id);
+        outbox.record(OutboxEvent.USER, id, OutboxEvent.DELETED, null);
+        collectionVersions.bump(CollectionVersions.USERS);
         logger.debug("UserServiceImpl: deleteUser() -> User deleted with id: {}", id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+-- Schema of the JPA entities. Used by the file profile, where Hibernate only validates it (ddl-auto=validate)
+
+-- Pooled sequences: each value hands out a block of 50 ids (allocationSize = 50 on the entities)
+create sequence books_seq start with 1 increment by 50;
+create sequence users_seq start with 1 increment by 50;
+create sequence loans_seq start with 1 increment by 50;
+
+create table books (
+    id               bigint       not null,
+    title            varchar(100) not null,
+    author           varchar(100) not null,
+    isbn             varchar(13)  not null,
+    publication_date date         not null,
+    primary key (id),
+    constraint uk_books_isbn unique (isbn)
+);
+
+create table users (
+    id                bigint       not null,
+    name              varchar(100) not null,
+    phone_number      varchar(15)  not null,
+    registration_date date         not null,
+    primary key (id)
+);
+
+create table loans (
+    id          bigint not null,
+    book_id     bigint not null,
+    user_id     bigint not null,
+    loan_date   date   not null,
+    return_date date   not null,
+    primary key (id)
+);
+
+-- Created before the foreign keys, so these are the indexes the constraints use
+create index idx_loans_book_id on loans (book_id);
+create index idx_loans_user_id on loans (user_id);
+create index idx_loans_return_date on loans (return_date, id);
+
+alter table loans add constraint fk_loans_book foreign key (book_id) references books;
+alter table loans add constraint fk_loans_user foreign key (user_id) references users;
+
+-- Availability index: one row per book on loan
+create table active_loans (
+    book_id     bigint not null,
+    loan_id     bigint not null,
+    return_date date   not null,
+    primary key (book_id),
+    constraint uk_active_loans_loan_id unique (loan_id)
+);
@@ -0,0 +1,13 @@
+-- Idempotency keys of the create endpoints, used when app.idempotency.store=jdbc. A row without a status is a
+-- request still in progress; expires_at is in epoch milliseconds
+create table idempotency_keys (
+    idempotency_key varchar(300) not null,
+    fingerprint     varchar(64)  not null,
+    status          integer,
+    content_type    varchar(255),
+    body            blob,
+    expires_at      bigint       not null,
+    primary key (idempotency_key)
+);
+
+create index idx_idempotency_keys_expires_at on idempotency_keys (expires_at);
@@ -0,0 +1,5 @@
+-- Optimistic-lock versions of books, users and loans (@Version on the entities). They also back the ETags of the
+-- GET endpoints, so existing rows start at 0 like the ones Hibernate inserts
+alter table books add column version bigint default 0 not null;
+alter table users add column version bigint default 0 not null;
+alter table loans add column version bigint default 0 not null;
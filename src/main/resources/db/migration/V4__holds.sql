@@ -0,0 +1,17 @@
+-- Holds (reservations) of books that are on loan. Only waiting holds are kept; a book's holds are served in id
+-- order, which the index covers
+create sequence holds_seq start with 1 increment by 50;
+
+create table holds (
+    id         bigint    not null,
+    book_id    bigint    not null,
+    user_id    bigint    not null,
+    created_at timestamp not null,
+    primary key (id),
+    constraint uk_holds_book_id_user_id unique (book_id, user_id)
+);
+
+create index idx_holds_book_id on holds (book_id, id);
+
+alter table holds add constraint fk_holds_book foreign key (book_id) references books;
+alter table holds add constraint fk_holds_user foreign key (user_id) references users;
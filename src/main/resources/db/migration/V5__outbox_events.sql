@@ -0,0 +1,13 @@
+-- Transactional outbox: changes of books, users and loans written with the change itself and deleted once the
+-- dispatcher has delivered them, oldest id first
+create sequence outbox_events_seq start with 1 increment by 50;
+
+create table outbox_events (
+    id             bigint        not null,
+    aggregate_type varchar(20)   not null,
+    aggregate_id   bigint        not null,
+    event_type     varchar(20)   not null,
+    payload        varchar(4000),
+    created_at     timestamp     not null,
+    primary key (id)
+);
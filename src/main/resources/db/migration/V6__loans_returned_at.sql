@@ -0,0 +1,7 @@
+-- Day a loan was returned, null while the book is still out. Overdue queries only look at loans that are out;
+-- a loan without an active_loans row was returned before this column existed and is taken as returned on its
+-- return date
+alter table loans add column returned_at date;
+
+update loans set returned_at = return_date
+where not exists (select 1 from active_loans a where a.loan_id = loans.id);
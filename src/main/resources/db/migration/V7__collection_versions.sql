@@ -0,0 +1,7 @@
+-- One version per collection (books, users, loans), bumped by every write and used as the ETag of its GET
+-- endpoint. Rows are created by the first write of each collection
+create table collection_versions (
+    name    varchar(20) not null,
+    version bigint      not null,
+    primary key (name)
+);
@@ -0,0 +1,120 @@
+package com.example.demo;
+
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.service.BookService;
+import com.example.demo.loan.repository.LoanRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Polls the GET endpoints with If-None-Match and checks what a 304 costs and when the ETags change.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:conditional-get",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class ConditionalGetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void unchangedBookIsAnsweredFromTheSecondLevelCache() throws Exception {
+        Long bookId = bookService.getBooks().get(0).getId();
+        String etag = etagOf("/books/" + bookId);
+
+        statistics.clear();
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + bookId).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void loanETagChangesWhenItsBookChanges() throws Exception {
+        Long loanId = loanRepository.findAll().get(0).getId();
+        String etag = etagOf("/loans/" + loanId);
+
+        statistics.clear();
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans/" + loanId).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        Long bookId = loanRepository.findByIdWithBookAndUser(loanId).orElseThrow().getBook().getId();
+        bookService.partiallyUpdateBook(bookId, Map.of("title", "Renamed while on loan"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans/" + loanId).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+        assertNotEquals(etag, etagOf("/loans/" + loanId));
+    }
+
+    @Test
+    void collectionETagChangesOnInsertUpdateAndDelete() throws Exception {
+        String initial = etagOf("/books");
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").header("If-None-Match", initial))
+                .andExpect(status().isNotModified());
+
+        BookDTO created = bookService.createBook(new BookDTO(null, "Watermark", "Author", "9780000000020", LocalDate.now()));
+        String afterInsert = etagOf("/books");
+        bookService.partiallyUpdateBook(created.getId(), Map.of("title", "Watermark, revised"));
+        String afterUpdate = etagOf("/books");
+        bookService.deleteBook(created.getId());
+        String afterDelete = etagOf("/books");
+
+        assertNotEquals(initial, afterInsert);
+        assertNotEquals(afterInsert, afterUpdate);
+        assertNotEquals(afterUpdate, afterDelete);
+    }
+
+    @Test
+    void loanCollectionETagChangesWhenABookChanges() throws Exception {
+        String etag = etagOf("/loans");
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        Long bookId = bookService.getBooks().get(1).getId();
+        bookService.partiallyUpdateBook(bookId, Map.of("author", "Renamed author"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    private String etagOf(String path) throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Follows {@code GET /loans/stream} over HTTP while loans change: only committed changes are sent, and a client
+ * that reconnects with the last id it saw gets what it missed.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-event-stream",
+        "spring.jpa.show-sql=false"
+})
+class LoanEventStreamIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private final List<Stream<String>> connections = new ArrayList<>();
+
+    private BookDAO book;
+
+    private UserDAO user;
+
+    @BeforeEach
+    void setUp() {
+        book = bookRepository.save(BookDAO.builder().title("Streamed book").author("Author")
+                .isbn("SSE" + System.nanoTime() % 1_000_000_000).publicationDate(LocalDate.now()).build());
+        user = userRepository.save(UserDAO.builder().name("Subscriber").phoneNumber("600000000")
+                .registrationDate(LocalDate.now()).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        connections.forEach(Stream::close);
+    }
+
+    @Test
+    void committedChangesAreStreamedAndRolledBackOnesAreNot() throws Exception {
+        BlockingQueue<Event> events = connect(null);
+
+        LoanDTO loan = lend();
+        // The book is already on loan, so this checkout rolls back
+        assertThrows(LoanException.class, this::lend);
+        loanService.returnLoan(loan.getId());
+
+        Event created = next(events);
+        assertEquals("created", created.name());
+        assertTrue(created.data().contains("\"loanId\":" + loan.getId()), created.data());
+        assertEquals("returned", next(events).name());
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void reconnectingWithTheLastEventIdResumesTheStream() throws Exception {
+        BlockingQueue<Event> events = connect(null);
+        LoanDTO loan = lend();
+        String lastEventId = next(events).id();
+
+        loanService.partiallyUpdateLoan(loan.getId(), Map.of("returnDate", LocalDate.now().plusDays(30)));
+        loanService.deleteLoan(loan.getId());
+        BlockingQueue<Event> resumed = connect(lastEventId);
+
+        assertEquals("updated", next(resumed).name());
+        assertEquals("deleted", next(resumed).name());
+    }
+
+    private LoanDTO lend() {
+        return loanService.createLoan(LoanDTO.builder()
+                .book(BookDTO.builder().id(book.getId()).build())
+                .user(UserDTO.builder().id(user.getId()).build())
+                .loanDate(LocalDate.now())
+                .returnDate(LocalDate.now().plusDays(14))
+                .build());
+    }
+
+    /**
+     * Opens the stream and parses what arrives into events on a background thread.
+     */
+    private BlockingQueue<Event> connect(String lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/loans/stream"));
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<Stream<String>> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+        connections.add(response.body());
+
+        BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> {
+            String[] event = new String[3];
+            try {
+                response.body().forEach(line -> {
+                    if (line.startsWith("id:")) {
+                        event[0] = line.substring(3);
+                    } else if (line.startsWith("event:")) {
+                        event[1] = line.substring(6);
+                    } else if (line.startsWith("data:")) {
+                        event[2] = line.substring(5);
+                    } else if (line.isEmpty() && event[1] != null) {
+                        events.add(new Event(event[0], event[1], event[2]));
+                        event[0] = event[1] = event[2] = null;
+                    }
+                });
+            } catch (RuntimeException e) {
+                // The connection was closed by the test
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+        return events;
+    }
+
+    private static Event next(BlockingQueue<Event> events) throws InterruptedException {
+        Event event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event, "No event received");
+        return event;
+    }
+
+    private record Event(String id, String name, String data) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.book.search.BookSearchIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Search latency of {@link BookSearchIndex} over a million synthetic titles, mixing whole-word, prefix,
+ * multi-term and ISBN queries. Title and author words are drawn from a random vocabulary, so no single word
+ * matches a large share of the catalog. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class BookSearchBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchBenchmarkTest.class);
+
+    private static final int BOOKS = 1_000_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int FIRST_NAMES = 2_000;
+    private static final int WARMUP_QUERIES = 20_000;
+    private static final int QUERIES = 20_000;
+
+    @Test
+    void searchP99UnderOneMillisecond() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = word(random);
+        }
+
+        BookSearchIndex index = new BookSearchIndex(mock(BookRepository.class));
+        long start = System.nanoTime();
+        for (int i = 1; i <= BOOKS; i++) {
+            index.index(new BookDTO((long) i, title(random, words), words[i % FIRST_NAMES] + " " + words[random.nextInt(VOCABULARY)], isbn(i), LocalDate.now()));
+        }
+        logger.info("Indexed {} books in {} ms", BOOKS, (System.nanoTime() - start) / 1_000_000);
+
+        String[] queries = new String[WARMUP_QUERIES + QUERIES];
+        for (int i = 0; i < queries.length; i++) {
+            String word = words[random.nextInt(VOCABULARY)];
+            queries[i] = switch (i % 4) {
+                case 0 -> word;
+                case 1 -> word.substring(0, 3);
+                case 2 -> word + " " + words[random.nextInt(VOCABULARY)].substring(0, 2);
+                default -> isbn(1 + random.nextInt(BOOKS));
+            };
+        }
+
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            index.search(queries[i], 20);
+        }
+        long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long queryStart = System.nanoTime();
+            index.search(queries[WARMUP_QUERIES + i], 20);
+            latencies[i] = System.nanoTime() - queryStart;
+        }
+
+        Arrays.sort(latencies);
+        long p50 = latencies[QUERIES / 2];
+        long p99 = latencies[QUERIES * 99 / 100];
+        logger.info("Search over {} books: p50 {} us, p99 {} us", BOOKS, p50 / 1_000, p99 / 1_000);
+        assertTrue(p99 < 1_000_000, "p99 was " + p99 / 1_000 + " us");
+    }
+
+    private static String word(Random random) {
+        char[] letters = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+
+    private static String title(Random random, String[] words) {
+        StringBuilder title = new StringBuilder(words[random.nextInt(words.length)]);
+        for (int i = 1 + random.nextInt(4); i > 0; i--) {
+            title.append(' ').append(words[random.nextInt(words.length)]);
+        }
+        return title.toString();
+    }
+
+    private static String isbn(int i) {
+        return String.format("978-%010d", i);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.user.dao.UserDAO;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rows per second inserting users one statement at a time (what IDENTITY ids forced on every insert)
+ * versus JDBC batches of 50 (what pooled sequence ids allow). Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class BulkInsertBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkInsertBenchmarkTest.class);
+
+    private static final int ROWS = 20_000;
+    private static final int FLUSH_INTERVAL = 50;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void insertRowsPerSecond() {
+        // Warm up both paths before measuring
+        insertUsers(1);
+        insertUsers(FLUSH_INTERVAL);
+
+        double unbatched = insertUsers(1);
+        double batched = insertUsers(FLUSH_INTERVAL);
+
+        logger.info("BulkInsertBenchmark: {} rows -> unbatched {} rows/s, batched {} rows/s ({}x)",
+                ROWS, Math.round(unbatched), Math.round(batched), String.format("%.1f", batched / unbatched));
+        assertTrue(batched > 0 && unbatched > 0);
+    }
+
+    private double insertUsers(int jdbcBatchSize) {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            for (int i = 0; i < ROWS; i++) {
+                UserDAO userDAO = new UserDAO();
+                userDAO.setName("Benchmark user " + i);
+                userDAO.setPhoneNumber("600000000");
+                userDAO.setRegistrationDate(LocalDate.now());
+                entityManager.persist(userDAO);
+                if ((i + 1) % FLUSH_INTERVAL == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        return ROWS / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
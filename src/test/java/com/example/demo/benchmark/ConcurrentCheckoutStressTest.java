@@ -0,0 +1,207 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.repository.ActiveLoanRepository;
+import com.example.demo.loan.repository.LoanRepository;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fires thousands of concurrent checkouts of the same book and asserts that exactly one of them lends it, that
+ * every other one is refused with a domain error (never a 500), and reports the throughput achieved. Then races
+ * PUTs and PATCHes of one loan, which must either apply on top of each other or end in a 409, never overwrite one
+ * another. Run with {@code mvn test -Pbenchmark -Dtest=ConcurrentCheckoutStressTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkout-stress",
+        "spring.jpa.show-sql=false",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "logging.level.com.example.demo.loan=ERROR"
+})
+class ConcurrentCheckoutStressTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentCheckoutStressTest.class);
+
+    private static final int CHECKOUTS_PER_BOOK = 2000;
+    private static final int BOOKS = 5;
+    private static final int THREADS = 64;
+    private static final int UPDATES = 2000;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private ActiveLoanRepository activeLoanRepository;
+
+    @Test
+    void exactlyOneConcurrentCheckoutOfABookSucceeds() throws Exception {
+        List<UserDAO> users = userRepository.saveAll(IntStream.range(0, THREADS)
+                .mapToObj(i -> UserDAO.builder().name("Stress user " + i).phoneNumber("600000000")
+                        .registrationDate(LocalDate.now()).build())
+                .toList());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long attempts = 0;
+            long nanos = 0;
+            for (int round = 0; round < BOOKS; round++) {
+                BookDAO book = bookRepository.save(BookDAO.builder().title("Contended book " + round).author("Author")
+                        .isbn("STRESS" + round).publicationDate(LocalDate.now()).build());
+                Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> checkouts = new ArrayList<>(CHECKOUTS_PER_BOOK);
+                for (int i = 0; i < CHECKOUTS_PER_BOOK; i++) {
+                    UserDAO user = users.get(i % users.size());
+                    checkouts.add(executor.submit(() -> {
+                        start.await();
+                        outcomes.computeIfAbsent(checkout(book.getId(), user.getId()), outcome -> new LongAdder()).increment();
+                        return null;
+                    }));
+                }
+
+                long begin = System.nanoTime();
+                start.countDown();
+                for (Future<?> checkout : checkouts) {
+                    checkout.get();
+                }
+                long elapsed = System.nanoTime() - begin;
+                attempts += CHECKOUTS_PER_BOOK;
+                nanos += elapsed;
+
+                logger.info("Book {}: {} concurrent checkouts in {} ms, outcomes {}", round, CHECKOUTS_PER_BOOK,
+                        elapsed / 1_000_000, outcomes);
+                assertEquals(1, outcomes.get("lent").sum());
+                assertTrue(outcomes.keySet().stream().allMatch(outcome -> outcome.equals("lent") || outcome.startsWith("refused")),
+                        outcomes.toString());
+                assertEquals(1, loanRepository.findAll().stream()
+                        .filter(loan -> loan.getBook().getId().equals(book.getId())).count());
+                assertTrue(activeLoanRepository.findById(book.getId()).isPresent());
+            }
+            logger.info("{} checkouts of {} contended books: {} checkouts/s", attempts, BOOKS,
+                    String.format("%.0f", attempts / (nanos / 1e9)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentUpdatesOfALoanNeverOverwriteEachOther() throws Exception {
+        BookDAO book = bookRepository.save(BookDAO.builder().title("Updated book").author("Author")
+                .isbn("STRESSUPD").publicationDate(LocalDate.now()).build());
+        UserDAO user = userRepository.save(UserDAO.builder().name("Updating user").phoneNumber("600000000")
+                .registrationDate(LocalDate.now()).build());
+        LoanDAO loan = loanRepository.save(LoanDAO.builder().book(book).user(user)
+                .loanDate(LocalDate.now()).returnDate(LocalDate.now().plusDays(1)).build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> updates = new ArrayList<>(UPDATES);
+            for (int i = 0; i < UPDATES; i++) {
+                // Every update moves the return date somewhere else, so each one that succeeds changes the row
+                LocalDate returnDate = LocalDate.now().plusDays(2 + i);
+                boolean put = i % 2 == 0;
+                updates.add(executor.submit(() -> {
+                    start.await();
+                    outcomes.computeIfAbsent(update(loan.getId(), book.getId(), user.getId(), returnDate, put),
+                            outcome -> new LongAdder()).increment();
+                    return null;
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> update : updates) {
+                update.get();
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+
+            long updated = outcomes.getOrDefault("updated", new LongAdder()).sum();
+            logger.info("{} concurrent PUT and PATCH of one loan in {} s ({} updates/s), outcomes {}", UPDATES,
+                    String.format("%.2f", seconds), String.format("%.0f", UPDATES / seconds), outcomes);
+            assertTrue(outcomes.keySet().stream().allMatch(outcome -> outcome.equals("updated") || outcome.equals("conflict")),
+                    outcomes.toString());
+            // Each successful update bumped the version exactly once: none of them was written over a stale copy
+            assertEquals(loan.getVersion() + updated, loanRepository.findById(loan.getId()).orElseThrow().getVersion());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String update(Long loanId, Long bookId, Long userId, LocalDate returnDate, boolean put) {
+        try {
+            if (put) {
+                loanService.updateLoan(loanId, LoanDTO.builder()
+                        .book(BookDTO.builder().id(bookId).build())
+                        .user(UserDTO.builder().id(userId).build())
+                        .loanDate(LocalDate.now())
+                        .returnDate(returnDate)
+                        .build());
+            } else {
+                loanService.partiallyUpdateLoan(loanId, Map.of("returnDate", returnDate));
+            }
+            return "updated";
+        } catch (OptimisticLockingFailureException e) {
+            return "conflict";
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private String checkout(Long bookId, Long userId) {
+        LoanDTO loanDTO = LoanDTO.builder()
+                .book(BookDTO.builder().id(bookId).build())
+                .user(UserDTO.builder().id(userId).build())
+                .loanDate(LocalDate.now())
+                .returnDate(LocalDate.now().plusDays(14))
+                .build();
+        try {
+            loanService.createLoan(loanDTO);
+            return "lent";
+        } catch (LoanException e) {
+            return "refused " + e.getErr().getCode();
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+}
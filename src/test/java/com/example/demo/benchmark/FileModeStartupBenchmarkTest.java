@@ -0,0 +1,118 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.EvTecnicaApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cold-start budget of the file profile: a restart on a database that already holds a seeded data set must not take
+ * much longer than a first start on an empty one, because nothing is rebuilt or re-inserted. Each start is a new JVM,
+ * timed from launch until the readiness probe reports the application ready.
+ * Run with {@code mvn test -Pbenchmark -Dtest=FileModeStartupBenchmarkTest}.
+ */
+@Tag("benchmark")
+class FileModeStartupBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileModeStartupBenchmarkTest.class);
+
+    private static final String[] SEED = {"--app.seed.users=200000", "--app.seed.books=100000", "--app.seed.loans=400000"};
+
+    // A restart on the seeded database may take at most this much longer than a first start on an empty one. The
+    // margin is for the book search index, which is rebuilt in memory from every book before the application is
+    // ready (about 5 s per 100k books on a single CPU); everything else is independent of the data size
+    private static final double STARTUP_BUDGET_RATIO = 1.5;
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(5);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void restartOnSeededDatabaseStaysWithinBudget() throws Exception {
+        Path seeded = tempDir.resolve("seeded");
+        Duration seeding = start(seeded, true, "seed");
+        Duration emptyStart = start(tempDir.resolve("empty"), false, "empty");
+        Duration seededRestart = start(seeded, true, "restart");
+
+        logger.info("File profile: seeding start {} ms, first start on an empty database {} ms, restart on the seeded database {} ms",
+                seeding.toMillis(), emptyStart.toMillis(), seededRestart.toMillis());
+        assertTrue(Files.readString(tempDir.resolve("restart.log")).contains("skipping the seeding"));
+        assertTrue(seededRestart.toMillis() <= emptyStart.toMillis() * STARTUP_BUDGET_RATIO,
+                "restart took " + seededRestart.toMillis() + " ms, budget " + Math.round(emptyStart.toMillis() * STARTUP_BUDGET_RATIO) + " ms");
+    }
+
+    /**
+     * Starts the application in a new JVM on the given data directory and stops it once it is ready.
+     */
+    private Duration start(Path dataDir, boolean seed, String name) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                EvTecnicaApplication.class.getName(),
+                "--spring.profiles.active=file",
+                "--app.data-dir=" + dataDir,
+                "--server.port=" + port,
+                "--spring.jpa.show-sql=false",
+                "--management.endpoint.health.probes.enabled=true",
+                "--app.seed.enabled=" + seed));
+        if (seed) {
+            command.addAll(List.of(SEED));
+        }
+        Path log = tempDir.resolve(name + ".log");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            awaitReady(process, port, log);
+            return Duration.ofNanos(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private void awaitReady(Process process, int port, Path log) throws Exception {
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness")).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The application exited during startup, see " + log);
+            }
+            try {
+                if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("The application was not ready after " + STARTUP_TIMEOUT + ", see " + log);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.repository.LoanRepository;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Database round trips per {@code createLoan}: loading the book and the user as entities (the former write path)
+ * versus the single query that loads both, with a cold and a warm second-level cache, plus the statements and the
+ * throughput of the whole call. Run with {@code mvn test -Pbenchmark -Dtest=LoanWriteRoundTripBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-round-trips",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session.events.log=false",
+        "logging.level.com.example.demo.loan=WARN"
+})
+class LoanWriteRoundTripBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoanWriteRoundTripBenchmarkTest.class);
+
+    private static final int LOANS = 2000;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void roundTripsPerLoan() {
+        List<BookDAO> books = bookRepository.saveAll(IntStream.range(0, 2 * LOANS)
+                .mapToObj(i -> BookDAO.builder().title("Round trip book " + i).author("Author")
+                        .isbn("RT" + i).publicationDate(LocalDate.now()).build())
+                .toList());
+        List<UserDAO> users = userRepository.saveAll(IntStream.range(0, LOANS)
+                .mapToObj(i -> UserDAO.builder().name("Round trip user " + i).phoneNumber("600000000")
+                        .registrationDate(LocalDate.now()).build())
+                .toList());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        double fullLoads = statementsPerLoan(statistics, true, i -> transactionTemplate.executeWithoutResult(status -> {
+            bookRepository.findById(books.get(i).getId()).orElseThrow();
+            userRepository.findById(users.get(i).getId()).orElseThrow();
+        }));
+        double combinedCold = statementsPerLoan(statistics, true, i -> transactionTemplate.executeWithoutResult(status ->
+                loanRepository.findLoanParties(books.get(i).getId(), users.get(i).getId()).orElseThrow()));
+        warmCache(books, users);
+        double combinedWarm = statementsPerLoan(statistics, false, i -> transactionTemplate.executeWithoutResult(status ->
+                loanRepository.findLoanParties(books.get(i).getId(), users.get(i).getId()).orElseThrow()));
+
+        long start = System.nanoTime();
+        double createCold = statementsPerLoan(statistics, true, i -> loanService.createLoan(loan(books.get(i), users.get(i))));
+        double coldLoansPerSecond = LOANS / ((System.nanoTime() - start) / 1_000_000_000.0);
+        warmCache(books, users);
+        start = System.nanoTime();
+        double createWarm = statementsPerLoan(statistics, false, i -> loanService.createLoan(loan(books.get(LOANS + i), users.get(i))));
+        double warmLoansPerSecond = LOANS / ((System.nanoTime() - start) / 1_000_000_000.0);
+
+        logger.info("LoanWriteRoundTripBenchmark: book and user lookup -> full loads {} statements/loan, combined query {} (cold cache), {} (warm cache)",
+                fullLoads, combinedCold, combinedWarm);
+        logger.info("LoanWriteRoundTripBenchmark: createLoan -> {} statements/loan and {} loans/s (cold cache), {} statements/loan and {} loans/s (warm cache)",
+                createCold, Math.round(coldLoansPerSecond), createWarm, Math.round(warmLoansPerSecond));
+        assertEquals(2.0, fullLoads);
+        assertEquals(1.0, combinedCold);
+        assertEquals(0.0, combinedWarm);
+        assertTrue(createWarm < createCold);
+    }
+
+    /**
+     * Runs the action once per loan and returns the average number of JDBC statements it prepared. A cold run
+     * empties the second-level cache before every call.
+     */
+    private double statementsPerLoan(Statistics statistics, boolean cold, IntConsumer action) {
+        long statements = 0;
+        for (int i = 0; i < LOANS; i++) {
+            if (cold) {
+                entityManagerFactory.getCache().evictAll();
+            }
+            statistics.clear();
+            action.accept(i);
+            statements += statistics.getPrepareStatementCount();
+        }
+        return (double) statements / LOANS;
+    }
+
+    /**
+     * Puts every book and user in the second-level cache, as their first loan would.
+     */
+    private void warmCache(List<BookDAO> books, List<UserDAO> users) {
+        transactionTemplate.executeWithoutResult(status -> {
+            books.forEach(book -> bookRepository.findById(book.getId()));
+            users.forEach(user -> userRepository.findById(user.getId()));
+        });
+    }
+
+    private static LoanDTO loan(BookDAO book, UserDAO user) {
+        return LoanDTO.builder()
+                .book(BookDTO.builder().id(book.getId()).build())
+                .user(UserDTO.builder().id(user.getId()).build())
+                .loanDate(LocalDate.now())
+                .returnDate(LocalDate.now().plusDays(14))
+                .build();
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.EvTecnicaApplication;
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.reactive.ReactiveLoanServer;
+import com.example.demo.loan.repository.LoanRepository;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the blocking loan API (Spring MVC on Tomcat over JPA) with the reactive one (WebFlux on Netty over R2DBC)
+ * in the same application and database: reading every loan in one response, and many concurrent single-loan reads.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ReactiveLoanBenchmarkTest}.
+ */
+@Tag("benchmark")
+class ReactiveLoanBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveLoanBenchmarkTest.class);
+
+    private static final int LOANS = 50_000;
+    private static final int FULL_READS = 5;
+    private static final int CLIENTS = 2000;
+    private static final int READS_PER_CLIENT = 10;
+
+    private static ConfigurableApplicationContext context;
+    private static ExecutorService clientExecutor;
+    private static HttpClient client;
+    private static String mvcBaseUrl;
+    private static String reactiveBaseUrl;
+    private static List<Long> loanIds;
+
+    @BeforeAll
+    static void startApplication() {
+        context = new SpringApplicationBuilder(EvTecnicaApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:reactive-benchmark;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.demo.benchmark=INFO",
+                        "--app.reactive.enabled=true",
+                        "--app.reactive.port=0",
+                        "--app.reactive.r2dbc-url=r2dbc:pool:h2:mem:///reactive-benchmark?maxSize=20");
+        mvcBaseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        reactiveBaseUrl = "http://localhost:" + context.getBean(ReactiveLoanServer.class).getPort();
+        loanIds = seedLoans();
+        clientExecutor = Executors.newFixedThreadPool(4);
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(clientExecutor)
+                .build();
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        clientExecutor.shutdownNow();
+        context.close();
+    }
+
+    @Test
+    void readAllLoans() throws Exception {
+        readAll("MVC", mvcBaseUrl + "/loans", "application/json");
+        readAll("Reactive", reactiveBaseUrl + "/loans", "application/x-ndjson");
+    }
+
+    @Test
+    void concurrentSingleLoanReads() {
+        concurrentReads("MVC", mvcBaseUrl);
+        concurrentReads("Reactive", reactiveBaseUrl);
+    }
+
+    private static void readAll(String api, String url, String accept) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).header("Accept", accept).build();
+        long firstByteNanos = 0;
+        long totalNanos = 0;
+        for (int i = 0; i <= FULL_READS; i++) {
+            long start = System.nanoTime();
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long bytes;
+            long firstByte;
+            try (InputStream body = response.body()) {
+                body.read();
+                firstByte = System.nanoTime() - start;
+                bytes = 1 + body.transferTo(OutputStream.nullOutputStream());
+            }
+            long total = System.nanoTime() - start;
+            assertEquals(200, response.statusCode());
+            // The first read warms up the path
+            if (i > 0) {
+                firstByteNanos += firstByte;
+                totalNanos += total;
+            }
+            if (i == FULL_READS) {
+                logger.info("{} GET /loans ({} KB): first byte after {} ms, complete after {} ms", api, bytes / 1024, firstByteNanos / FULL_READS / 1_000_000, totalNanos / FULL_READS / 1_000_000);
+            }
+        }
+    }
+
+    private static void concurrentReads(String api, String baseUrl) {
+        run(baseUrl, CLIENTS / 10);
+        long start = System.nanoTime();
+        int ok = run(baseUrl, CLIENTS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(CLIENTS * READS_PER_CLIENT, ok);
+        logger.info("{} GET /loans/{id}, {} concurrent clients: {} reads in {} s, {} reads/s", api, CLIENTS, ok,
+                String.format("%.2f", seconds), String.format("%.0f", ok / seconds));
+    }
+
+    private static int run(String baseUrl, int clients) {
+        AtomicInteger ok = new AtomicInteger();
+        List<CompletableFuture<?>> running = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            CompletableFuture<?> chain = CompletableFuture.completedFuture(null);
+            for (int i = 0; i < READS_PER_CLIENT; i++) {
+                Long loanId = loanIds.get((c * READS_PER_CLIENT + i) % loanIds.size());
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/loans/" + loanId))
+                        .timeout(Duration.ofSeconds(120))
+                        .build();
+                chain = chain.thenCompose(ignored -> client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .thenAccept(response -> {
+                            if (response.statusCode() == 200) {
+                                ok.incrementAndGet();
+                            }
+                        }));
+            }
+            running.add(chain);
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+        return ok.get();
+    }
+
+    private static List<Long> seedLoans() {
+        UserDAO user = context.getBean(UserRepository.class).save(UserDAO.builder()
+                .name("Benchmark user").phoneNumber("600000000").registrationDate(LocalDate.now()).build());
+        List<BookDAO> books = context.getBean(BookRepository.class).saveAll(IntStream.range(0, LOANS)
+                .mapToObj(i -> BookDAO.builder()
+                        .title("Benchmark book " + i).author("Author").isbn("RB" + i).publicationDate(LocalDate.now())
+                        .build())
+                .toList());
+        // Returned loans, so the availability index stays out of the picture
+        return context.getBean(LoanRepository.class).saveAll(books.stream()
+                        .map(book -> LoanDAO.builder()
+                                .book(book).user(user).loanDate(LocalDate.now().minusDays(30)).returnDate(LocalDate.now().minusDays(1))
+                                .build())
+                        .toList())
+                .stream().map(LoanDAO::getId).toList();
+    }
+}
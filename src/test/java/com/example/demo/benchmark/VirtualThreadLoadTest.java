@@ -0,0 +1,149 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.EvTecnicaApplication;
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput of {@code POST /loans} with 5000 concurrent clients, each creating loans one after another, on the
+ * default Tomcat platform-thread pool and, on Java 21+, with the {@code virtual-threads} profile. Both runs use
+ * the same connection pool and Tomcat connection limits, so only the threading model differs.
+ * Run with {@code mvn test -Pbenchmark -Dtest=VirtualThreadLoadTest}.
+ */
+@Tag("benchmark")
+class VirtualThreadLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadLoadTest.class);
+
+    private static final int CLIENTS = 5000;
+    private static final int LOANS_PER_CLIENT = 4;
+    private static final int WARMUP_CLIENTS = 500;
+
+    private static final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void platformThreads() throws Exception {
+        measure(false);
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreadsVersusPlatformThreads() throws Exception {
+        double platform = measure(false);
+        double virtual = measure(true);
+        logger.info("Virtual threads: {}x the platform-thread throughput", String.format("%.2f", virtual / platform));
+    }
+
+    private double measure(boolean virtualThreads) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(EvTecnicaApplication.class);
+        if (virtualThreads) {
+            builder.profiles("virtual-threads");
+        }
+        // Command-line arguments, which take precedence over application.properties
+        String[] args = {"--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:load-" + runs.incrementAndGet() + ";DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.demo.benchmark=INFO",
+                "--server.tomcat.max-connections=10000",
+                "--server.tomcat.accept-count=1000",
+                "--spring.datasource.hikari.maximum-pool-size=20",
+                "--spring.datasource.hikari.connection-timeout=10000"};
+
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        try (ConfigurableApplicationContext context = builder.run(args)) {
+            List<Long> books = seedBooks(context, (WARMUP_CLIENTS + CLIENTS) * LOANS_PER_CLIENT);
+            Long userId = context.getBean(UserRepository.class).save(UserDAO.builder()
+                    .name("Load test user").phoneNumber("600000000").registrationDate(LocalDate.now()).build()).getId();
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .executor(clientExecutor)
+                    .build();
+            URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/loans");
+
+            run(client, uri, books.subList(0, WARMUP_CLIENTS * LOANS_PER_CLIENT), userId, WARMUP_CLIENTS);
+
+            long start = System.nanoTime();
+            int created = run(client, uri, books.subList(WARMUP_CLIENTS * LOANS_PER_CLIENT, books.size()), userId, CLIENTS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertEquals(CLIENTS * LOANS_PER_CLIENT, created);
+            double throughput = created / seconds;
+            logger.info("{} threads, {} concurrent clients: {} loans in {} s, {} loans/s",
+                    virtualThreads ? "Virtual" : "Platform", CLIENTS, created,
+                    String.format("%.2f", seconds), String.format("%.0f", throughput));
+            return throughput;
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Each client creates its loans one after another, every loan on a book of its own.
+     */
+    private static int run(HttpClient client, URI uri, List<Long> books, Long userId, int clients) {
+        AtomicInteger created = new AtomicInteger();
+        List<CompletableFuture<?>> running = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            CompletableFuture<?> chain = CompletableFuture.completedFuture(null);
+            for (int i = 0; i < LOANS_PER_CLIENT; i++) {
+                Long bookId = books.get(c * LOANS_PER_CLIENT + i);
+                chain = chain.thenCompose(ignored -> client.sendAsync(loanRequest(uri, bookId, userId), HttpResponse.BodyHandlers.discarding())
+                        .thenAccept(response -> {
+                            if (response.statusCode() == 200) {
+                                created.incrementAndGet();
+                            }
+                        }));
+            }
+            running.add(chain);
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+        return created.get();
+    }
+
+    private static HttpRequest loanRequest(URI uri, Long bookId, Long userId) {
+        String body = "{\"book\":{\"id\":" + bookId + "},\"user\":{\"id\":" + userId + "},\"loanDate\":\""
+                + LocalDate.now() + "\",\"returnDate\":\"" + LocalDate.now().plusDays(30) + "\"}";
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(120))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static List<Long> seedBooks(ConfigurableApplicationContext context, int count) {
+        List<BookDAO> books = IntStream.range(0, count)
+                .mapToObj(i -> BookDAO.builder()
+                        .title("Load test book " + i).author("Author").isbn("LT" + i).publicationDate(LocalDate.now())
+                        .build())
+                .toList();
+        return context.getBean(BookRepository.class).saveAll(books).stream().map(BookDAO::getId).toList();
+    }
+}
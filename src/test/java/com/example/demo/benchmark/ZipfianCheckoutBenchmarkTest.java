@@ -0,0 +1,169 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.EvTecnicaApplication;
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.seed.ZipfSampler;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checkout throughput when book popularity follows a Zipf distribution (a few bestsellers take most of the
+ * requests), with the striped book locks off, on, and on in fair mode. Every run starts from a fresh database and
+ * the default connection pool, so the runs differ only in where contended checkouts wait: on the active loan row
+ * holding a connection, or on the in-process lock without one.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ZipfianCheckoutBenchmarkTest}.
+ */
+@Tag("benchmark")
+class ZipfianCheckoutBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZipfianCheckoutBenchmarkTest.class);
+
+    private static final int BOOKS = 1000;
+    private static final double EXPONENT = 1.1;
+    private static final int THREADS = 64;
+    private static final int CHECKOUTS = 20000;
+    private static final int WARMUP_CHECKOUTS = 4000;
+    private static final int ROUNDS = 3;
+
+    private static int runs;
+
+    @Test
+    void checkoutThroughputUnderZipfianPopularity() throws Exception {
+        // One discarded run warms up the JIT, then the modes take turns so none of them benefits from going last
+        measure(false, false);
+        double unlocked = 0;
+        double striped = 0;
+        double fair = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            unlocked = Math.max(unlocked, measure(false, false));
+            striped = Math.max(striped, measure(true, false));
+            fair = Math.max(fair, measure(true, true));
+        }
+        logger.info("Best of {}: {} checkouts/s without book locks, {} with them ({}x), {} in fair mode ({}x)", ROUNDS,
+                String.format("%.0f", unlocked), String.format("%.0f", striped), String.format("%.2f", striped / unlocked),
+                String.format("%.0f", fair), String.format("%.2f", fair / unlocked));
+    }
+
+    private double measure(boolean locks, boolean fair) throws Exception {
+        String[] args = {"--spring.main.web-application-type=none",
+                "--spring.datasource.url=jdbc:h2:mem:zipf-checkout-" + ++runs + ";DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.demo.loan=ERROR",
+                "--logging.level.com.example.demo.benchmark=INFO",
+                "--app.book-lock.enabled=" + locks,
+                "--app.book-lock.fair=" + fair};
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(EvTecnicaApplication.class).run(args)) {
+            LoanService loanService = context.getBean(LoanService.class);
+            List<Long> users = seedUsers(context);
+            ZipfSampler popularity = new ZipfSampler(BOOKS, EXPONENT);
+
+            // Separate books for the warm-up, so the measured run starts with every book on the shelf
+            run(executor, loanService, seedBooks(context, "W"), users, popularity, WARMUP_CHECKOUTS);
+            List<Long> books = seedBooks(context, "Z");
+            long start = System.nanoTime();
+            Map<String, Integer> outcomes = run(executor, loanService, books, users, popularity, CHECKOUTS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertEquals(CHECKOUTS, outcomes.values().stream().mapToInt(Integer::intValue).sum());
+            double throughput = CHECKOUTS / seconds;
+            Timer wait = context.getBean(MeterRegistry.class).get("library.book.lock.wait").timer();
+            logger.info("Book locks {}: {} checkouts in {} s, {} checkouts/s, outcomes {}, lock waits {} (mean {} ms, max {} ms)",
+                    locks ? (fair ? "fair" : "on") : "off", CHECKOUTS, String.format("%.2f", seconds),
+                    String.format("%.0f", throughput), outcomes, wait.count(),
+                    String.format("%.2f", wait.mean(TimeUnit.MILLISECONDS)), String.format("%.2f", wait.max(TimeUnit.MILLISECONDS)));
+            return throughput;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, Integer> run(ExecutorService executor, LoanService loanService, List<Long> books,
+                                            List<Long> users, ZipfSampler popularity, int checkouts) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> workers = new ArrayList<>(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            int worker = t;
+            workers.add(executor.submit(() -> {
+                SplittableRandom random = new SplittableRandom(worker);
+                List<String> outcomes = new ArrayList<>();
+                start.await();
+                for (int i = worker; i < checkouts; i += THREADS) {
+                    outcomes.add(checkout(loanService, books.get(popularity.sample(random)), users.get(worker % users.size())));
+                }
+                return outcomes;
+            }));
+        }
+        start.countDown();
+        Map<String, Integer> outcomes = new TreeMap<>();
+        for (Future<List<String>> worker : workers) {
+            for (String outcome : worker.get()) {
+                outcomes.merge(outcome, 1, Integer::sum);
+            }
+        }
+        return outcomes;
+    }
+
+    private static String checkout(LoanService loanService, Long bookId, Long userId) {
+        try {
+            loanService.createLoan(LoanDTO.builder()
+                    .book(BookDTO.builder().id(bookId).build())
+                    .user(UserDTO.builder().id(userId).build())
+                    .loanDate(LocalDate.now())
+                    .returnDate(LocalDate.now().plusDays(14))
+                    .build());
+            return "lent";
+        } catch (LoanException e) {
+            return "refused " + e.getErr().getCode();
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private static List<Long> seedBooks(ConfigurableApplicationContext context, String prefix) {
+        List<BookDAO> books = IntStream.range(0, BOOKS)
+                .mapToObj(i -> BookDAO.builder()
+                        .title("Zipf book " + prefix + i).author("Author").isbn(prefix + i).publicationDate(LocalDate.now())
+                        .build())
+                .toList();
+        return context.getBean(BookRepository.class).saveAll(books).stream().map(BookDAO::getId).toList();
+    }
+
+    private static List<Long> seedUsers(ConfigurableApplicationContext context) {
+        List<UserDAO> users = IntStream.range(0, THREADS)
+                .mapToObj(i -> UserDAO.builder().name("Zipf user " + i).phoneNumber("600000000")
+                        .registrationDate(LocalDate.now()).build())
+                .toList();
+        return context.getBean(UserRepository.class).saveAll(users).stream().map(UserDAO::getId).toList();
+    }
+}
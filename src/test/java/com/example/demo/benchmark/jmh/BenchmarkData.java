@@ -0,0 +1,63 @@
+package com.example.demo.benchmark.jmh;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.user.dao.UserDAO;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed input data for the JMH benchmarks. Dates are constants so every run measures the same objects.
+ */
+final class BenchmarkData {
+
+    static final LocalDate DATE = LocalDate.of(2024, 1, 15);
+
+    private BenchmarkData() {
+    }
+
+    static List<BookDAO> books(int size) {
+        List<BookDAO> books = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            books.add(BookDAO.builder()
+                    .id((long) i)
+                    .title("Book " + i)
+                    .author("Author " + i)
+                    .isbn(String.format("978%010d", i))
+                    .publicationDate(DATE.minusDays(i))
+                    .build());
+        }
+        return books;
+    }
+
+    static List<UserDAO> users(int size) {
+        List<UserDAO> users = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            users.add(UserDAO.builder()
+                    .id((long) i)
+                    .name("User " + i)
+                    .phoneNumber(String.format("6%08d", i))
+                    .registrationDate(DATE.minusDays(i))
+                    .build());
+        }
+        return users;
+    }
+
+    static List<LoanDAO> loans(int size) {
+        List<BookDAO> books = books(size);
+        List<UserDAO> users = users(size);
+        List<LoanDAO> loans = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            loans.add(LoanDAO.builder()
+                    .id((long) i + 1)
+                    .book(books.get(i))
+                    .user(users.get(i))
+                    .loanDate(DATE)
+                    .returnDate(DATE.plusDays(30))
+                    .build());
+        }
+        return loans;
+    }
+}
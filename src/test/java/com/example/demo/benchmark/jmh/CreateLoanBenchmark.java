@@ -0,0 +1,83 @@
+package com.example.demo.benchmark.jmh;
+
+import com.example.demo.EvTecnicaApplication;
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code LoanServiceImpl.createLoan} end to end against an embedded H2 database: validation, book and user
+ * lookups, the insert and the availability index update, in one transaction.
+ * <p>
+ * Loans rotate over a fixed pool of books and are due today, so each book is free again for its next loan and
+ * every call takes the same path through the availability index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class CreateLoanBenchmark {
+
+    private static final int BOOKS = 1000;
+
+    private ConfigurableApplicationContext context;
+
+    private LoanService loanService;
+
+    private List<BookDAO> books;
+
+    private List<UserDAO> users;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(EvTecnicaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:jmh-create-loan;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        loanService = context.getBean(LoanService.class);
+        books = context.getBean(BookRepository.class).saveAll(BenchmarkData.books(BOOKS).stream()
+                .peek(book -> {
+                    book.setId(null);
+                    book.setIsbn("JMH" + book.getIsbn().substring(3));
+                })
+                .toList());
+        users = context.getBean(UserRepository.class).saveAll(BenchmarkData.users(BOOKS).stream()
+                .peek(user -> user.setId(null))
+                .toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public LoanDTO createLoan() {
+        int i = next++ % BOOKS;
+        LocalDate today = LocalDate.now();
+        return loanService.createLoan(LoanDTO.builder()
+                .book(BookDTO.builder().id(books.get(i).getId()).build())
+                .user(UserDTO.builder().id(users.get(i).getId()).build())
+                .loanDate(today)
+                .returnDate(today)
+                .build());
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.benchmark.jmh;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs the JMH benchmarks in this package and writes the results as JSON to {@code target/jmh-result.json}.
+ * Run with {@code mvn test -Pbenchmark -Dtest=JmhBenchmarkTest}; {@code -Djmh.include=<regex>} narrows the
+ * benchmarks that run, for example {@code -Djmh.include=MapperBenchmark}.
+ */
+@Tag("benchmark")
+class JmhBenchmarkTest {
+
+    @Test
+    void runBenchmarks() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(getClass().getPackageName() + "\\..*(" + System.getProperty("jmh.include", "Benchmark") + ").*")
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        assertFalse(results.isEmpty());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.benchmark.jmh;
+
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.mapper.LoanMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of loan lists, with an {@link ObjectMapper} configured like the one Spring MVC uses for
+ * {@code GET /loans}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class LoanJsonBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+
+    private List<LoanDTO> loans;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        loans = LoanMapper.INSTANCE.loanDAOsToLoanDTOs(BenchmarkData.loans(size));
+    }
+
+    @Benchmark
+    public byte[] writeLoanList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loans);
+    }
+}
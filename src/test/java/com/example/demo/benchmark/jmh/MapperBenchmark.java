@@ -0,0 +1,56 @@
+package com.example.demo.benchmark.jmh;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.mapper.BookMapper;
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.mapper.LoanMapper;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List mapping throughput of the MapStruct mappers, the step every list endpoint goes through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class MapperBenchmark {
+
+    @Param({"1000"})
+    private int size;
+
+    private List<BookDAO> books;
+    private List<UserDAO> users;
+    private List<LoanDAO> loans;
+
+    @Setup
+    public void setUp() {
+        books = BenchmarkData.books(size);
+        users = BenchmarkData.users(size);
+        loans = BenchmarkData.loans(size);
+    }
+
+    @Benchmark
+    public List<BookDTO> bookDAOsToBookDTOs() {
+        return BookMapper.INSTANCE.bookDAOsToBookDTOs(books);
+    }
+
+    @Benchmark
+    public List<UserDTO> userDAOsToUserDTOs() {
+        return UserMapper.INSTANCE.userDAOsToUserDTOs(users);
+    }
+
+    @Benchmark
+    public List<LoanDTO> loanDAOsToLoanDTOs() {
+        return LoanMapper.INSTANCE.loanDAOsToLoanDTOs(loans);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.book.controller;
 
+import com.example.demo.book.dao.BookDAO;
 import com.example.demo.book.dto.BookDTO;
 import com.example.demo.book.exception.BookException;
 import com.example.demo.book.service.BookService;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
@@ -16,11 +18,16 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -79,6 +86,40 @@ class BookControllerTest {
 
     }
 
+    @Test
+    void getBookByIdSendsTheVersionAsETag() throws Exception {
+
+        when(bookService.getBookVersion(1L)).thenReturn(Optional.of("3"));
+        when(bookService.getBookById(1L)).thenReturn(bookDTOList.get(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+    }
+
+    @Test
+    void getBookByIdIsNotModifiedWhenTheETagMatches() throws Exception {
+
+        when(bookService.getBookVersion(1L)).thenReturn(Optional.of("3"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+        verify(bookService, never()).getBookById(any(Long.class));
+    }
+
+    @Test
+    void getBooksIsNotModifiedWhenTheETagMatches() throws Exception {
+
+        when(bookService.getBooksVersion()).thenReturn("10-10-4");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").header("If-None-Match", "\"10-10-4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(bookService, never()).getBooks();
+    }
+
     @Test
     void getBookByIdNotFoundException() throws Exception {
 
@@ -91,6 +132,65 @@ class BookControllerTest {
                 .andExpect(jsonPath("$.message", is("Book not found with id: 1")));
     }
 
+    @Test
+    void getBookByIsbn() throws Exception {
+
+        // Mock the service
+        when(bookService.getBookByIsbn("ISBN 1")).thenReturn(bookDTOList.get(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/isbn/ISBN 1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(1)))
+                .andExpect(jsonPath("$.isbn", is(bookDTOList.get(0).getIsbn())));
+    }
+
+    @Test
+    void getBookByIsbnNotFoundException() throws Exception {
+
+        // Mock the service
+        when(bookService.getBookByIsbn("ISBN 99")).thenThrow(new BookException(new ExceptionEntity(501, "Book not found with ISBN: ISBN 99")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/isbn/ISBN 99"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code", is(501)));
+    }
+
+    @Test
+    void createBookDuplicateIsbn() throws Exception {
+
+        // Mock the service
+        when(bookService.createBook(any(BookDTO.class))).thenThrow(new BookException(new ExceptionEntity(409, "A book with ISBN ISBN 1 already exists.")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books")
+                        .contentType("application/json")
+                        .content("{\"title\":\"New Book\",\"author\":\"New Author\",\"isbn\":\"ISBN 1\",\"publicationDate\":\"" + LocalDate.now() + "\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code", is(409)));
+    }
+
+    @Test
+    void searchBooks() throws Exception {
+
+        // Mock the service
+        when(bookService.searchBooks("book 1", 20)).thenReturn(bookDTOList.subList(0, 1));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/search").param("q", "book 1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].title", is(bookDTOList.get(0).getTitle())));
+    }
+
+    @Test
+    void searchBooksInvalidLimit() throws Exception {
+
+        // Mock the service
+        when(bookService.searchBooks("book", 0)).thenThrow(new BookException(new ExceptionEntity(400, "The limit must be between 1 and 100.")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/search").param("q", "book").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)));
+    }
+
     @Test
     void createBook() throws Exception {
         BookDTO newBookDTO = new BookDTO(
@@ -153,6 +253,20 @@ class BookControllerTest {
                 .andExpect(jsonPath("$.message", is("Book not found with id: " + bookId)));
     }
 
+    @Test
+    void updateBookModifiedConcurrently() throws Exception {
+        Long bookId = 1L;
+
+        when(bookService.updateBook(any(Long.class), any(BookDTO.class))).thenThrow(new ObjectOptimisticLockingFailureException(BookDAO.class, bookId));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/books/{id}", bookId)
+                        .contentType("application/json")
+                        .content("{\"id\":1,\"title\":\"Updated Book\",\"author\":\"Updated Author\",\"isbn\":\"Updated ISBN\",\"publicationDate\":\"" + LocalDate.now() + "\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code", is(409)))
+                .andExpect(jsonPath("$.message", is("The book with id " + bookId + " was modified concurrently, please retry.")));
+    }
+
     @Test
     void partiallyUpdateBook() throws Exception {
         Long bookId = 1L;
@@ -191,6 +305,19 @@ class BookControllerTest {
                 .andExpect(jsonPath("$.message", is("Book not found with id: " + bookId)));
     }
 
+    @Test
+    void partiallyUpdateBookModifiedConcurrently() throws Exception {
+        Long bookId = 1L;
+
+        when(bookService.partiallyUpdateBook(any(Long.class), any(Map.class))).thenThrow(new ObjectOptimisticLockingFailureException(BookDAO.class, bookId));
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/books/{id}", bookId)
+                        .contentType("application/json")
+                        .content("{\"title\":\"Partially Updated Book\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code", is(409)));
+    }
+
     @Test
     void deleteBook() throws Exception {
         Long bookId = 1L;
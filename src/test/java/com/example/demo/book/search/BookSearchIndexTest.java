@@ -0,0 +1,121 @@
+package com.example.demo.book.search;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.mapper.BookMapper;
+import com.example.demo.book.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class BookSearchIndexTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private BookSearchIndex bookSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        when(bookRepository.findAll()).thenReturn(List.of(
+                book(1L, "The Lord of the Rings", "J. R. R. Tolkien", "978-0618640157"),
+                book(2L, "The Hobbit", "J. R. R. Tolkien", "978-0547928227"),
+                book(3L, "Cien años de soledad", "Gabriel García Márquez", "978-0307474728"),
+                book(4L, "Tolkien: A Biography", "Humphrey Carpenter", "978-0618057023")
+        ));
+        bookSearchIndex = new BookSearchIndex(bookRepository);
+        bookSearchIndex.rebuild();
+    }
+
+    @Test
+    void rebuildIndexesEveryBook() {
+        assertEquals(4, bookSearchIndex.size());
+    }
+
+    @Test
+    void searchMatchesPrefixesAndRanksTitleMatchesFirst() {
+        List<BookDTO> result = bookSearchIndex.search("tolk", 10);
+
+        assertEquals(List.of(4L, 1L, 2L), ids(result));
+    }
+
+    @Test
+    void searchRequiresEveryTerm() {
+        assertEquals(List.of(2L), ids(bookSearchIndex.search("hobbit tolkien", 10)));
+        assertTrue(bookSearchIndex.search("hobbit carpenter", 10).isEmpty());
+    }
+
+    @Test
+    void searchIgnoresCaseAndAccents() {
+        assertEquals(List.of(3L), ids(bookSearchIndex.search("GARCIA anos", 10)));
+    }
+
+    @Test
+    void searchFindsIsbnWithOrWithoutHyphens() {
+        assertEquals(List.of(2L), ids(bookSearchIndex.search("978-0547928227", 10)));
+        assertEquals(List.of(2L), ids(bookSearchIndex.search("9780547928227", 10)));
+    }
+
+    @Test
+    void searchHonoursTheLimit() {
+        assertEquals(List.of(4L), ids(bookSearchIndex.search("tolkien", 1)));
+    }
+
+    @Test
+    void indexReplacesTheOldVersionOfABook() {
+        bookSearchIndex.index(BookMapper.INSTANCE.bookDAOToBookDTO(book(2L, "There and Back Again", "J. R. R. Tolkien", "978-0547928227")));
+
+        assertTrue(bookSearchIndex.search("hobbit", 10).isEmpty());
+        assertEquals(List.of(2L), ids(bookSearchIndex.search("back again", 10)));
+        assertEquals(4, bookSearchIndex.size());
+    }
+
+    @Test
+    void removeDropsTheBookFromResults() {
+        bookSearchIndex.remove(1L);
+
+        assertEquals(List.of(4L, 2L), ids(bookSearchIndex.search("tolkien", 10)));
+        assertEquals(3, bookSearchIndex.size());
+    }
+
+    @Test
+    void findByIsbnFollowsUpdatesAndDeletes() {
+        assertEquals(2L, bookSearchIndex.findByIsbn("978-0547928227").orElseThrow().getId());
+
+        bookSearchIndex.index(BookMapper.INSTANCE.bookDAOToBookDTO(book(2L, "The Hobbit", "J. R. R. Tolkien", "9780547928227")));
+        assertTrue(bookSearchIndex.findByIsbn("978-0547928227").isEmpty());
+        assertEquals(2L, bookSearchIndex.findByIsbn("9780547928227").orElseThrow().getId());
+
+        bookSearchIndex.remove(2L);
+        assertTrue(bookSearchIndex.findByIsbn("9780547928227").isEmpty());
+    }
+
+    @Test
+    void searchWithoutTermsReturnsNothing() {
+        assertTrue(bookSearchIndex.search("  - ", 10).isEmpty());
+    }
+
+    private static BookDAO book(Long id, String title, String author, String isbn) {
+        return BookDAO.builder()
+                .id(id)
+                .title(title)
+                .author(author)
+                .isbn(isbn)
+                .publicationDate(LocalDate.now())
+                .build();
+    }
+
+    private static List<Long> ids(List<BookDTO> books) {
+        return books.stream().map(BookDTO::getId).toList();
+    }
+}
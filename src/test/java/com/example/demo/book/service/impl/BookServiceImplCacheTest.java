@@ -0,0 +1,124 @@
+package com.example.demo.book.service.impl;
+
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.book.search.BookSearchIndex;
+import com.example.demo.book.service.BookService;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:book-cache",
+        "spring.jpa.show-sql=false"
+})
+class BookServiceImplCacheTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @SpyBean
+    private BookRepository bookRepository;
+
+    // ISBNs are unique and the context (and its database) is shared by every test
+    private static int isbnSequence;
+
+    private BookDTO book;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        book = bookService.createBook(new BookDTO(null, "Cached Book", "Cached Author", "CACHE-" + ++isbnSequence, LocalDate.now()));
+        clearInvocations(bookRepository);
+    }
+
+    @Test
+    void getBookByIdIsServedFromCache() {
+        bookService.getBookById(book.getId());
+        BookDTO cached = bookService.getBookById(book.getId());
+
+        assertEquals("Cached Book", cached.getTitle());
+        verify(bookRepository, never()).findById(anyLong());
+        assertTrue(nativeCache("books").stats().hitCount() >= 2);
+    }
+
+    @Test
+    void getBooksSnapshotIsInvalidatedByWrites() {
+        int size = bookService.getBooks().size();
+        bookService.getBooks();
+        verify(bookRepository, times(1)).findAll();
+
+        bookService.createBook(new BookDTO(null, "Another Book", "Author", "CACHE-" + ++isbnSequence, LocalDate.now()));
+        List<BookDTO> books = bookService.getBooks();
+
+        assertEquals(size + 1, books.size());
+        verify(bookRepository, times(2)).findAll();
+    }
+
+    @Test
+    void updatesRefreshTheCachedBook() {
+        bookService.partiallyUpdateBook(book.getId(), Map.of("title", "Renamed Book"));
+
+        assertEquals("Renamed Book", bookService.getBookById(book.getId()).getTitle());
+        verify(bookRepository, times(1)).findById(book.getId());
+    }
+
+    @Test
+    void deleteEvictsTheCachedBook() {
+        bookService.deleteBook(book.getId());
+
+        assertEquals(null, nativeCache("books").getIfPresent(book.getId()));
+    }
+
+    @Test
+    void writesReachTheCacheAndTheIndexOnlyWhenTheyCommit() {
+        bookService.getBookById(book.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            bookService.partiallyUpdateBook(book.getId(), Map.of("title", "Uncommitted Title"));
+            BookDTO created = bookService.createBook(new BookDTO(null, "Uncommitted Book", "Author", "CACHE-" + ++isbnSequence, LocalDate.now()));
+
+            assertEquals("Cached Book", ((BookDTO) nativeCache("books").getIfPresent(book.getId())).getTitle());
+            assertNull(nativeCache("books").getIfPresent(created.getId()));
+            assertTrue(bookSearchIndex.search("uncommitted", 10).isEmpty());
+            status.setRollbackOnly();
+        });
+
+        assertEquals("Cached Book", bookService.getBookById(book.getId()).getTitle());
+        assertTrue(bookSearchIndex.search("uncommitted", 10).isEmpty());
+
+        bookService.partiallyUpdateBook(book.getId(), Map.of("title", "Committed Title"));
+
+        assertEquals("Committed Title", ((BookDTO) nativeCache("books").getIfPresent(book.getId())).getTitle());
+        assertEquals(List.of(book.getId()), bookSearchIndex.search("committed title", 10).stream().map(BookDTO::getId).toList());
+    }
+
+    private Cache<Object, Object> nativeCache(String name) {
+        return ((CaffeineCache) cacheManager.getCache(name)).getNativeCache();
+    }
+}
@@ -2,19 +2,30 @@ package com.example.demo.book.service.impl;
 
 import com.example.demo.book.dao.BookDAO;
 import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.event.BookEvent;
+import com.example.demo.book.exception.BookException;
 import com.example.demo.book.mapper.BookMapper;
 import com.example.demo.book.repository.BookRepository;
+import com.example.demo.book.search.BookSearchIndex;
+import com.example.demo.cache.CollectionVersions;
+import com.example.demo.outbox.Outbox;
+import com.example.demo.outbox.OutboxEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.time.LocalDate;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class BookServiceImplTest {
@@ -25,6 +36,18 @@ class BookServiceImplTest {
     @Mock
     private BookMapper bookMapper;
 
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private Outbox outbox;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private BookServiceImpl bookService;
 
@@ -69,6 +92,109 @@ class BookServiceImplTest {
         assertEquals(bookDAOList.get(0).getPublicationDate(), bookDTO.getPublicationDate());
     }
 
+    @Test
+    void getBookByIsbn() {
+
+        BookDTO indexed = new BookDTO(1L, "Book 1", "Author 1", "ISBN 1", LocalDate.now());
+        when(bookSearchIndex.findByIsbn("ISBN 1")).thenReturn(Optional.of(indexed));
+
+        BookDTO bookDTO = bookService.getBookByIsbn("ISBN 1");
+
+        assertEquals(indexed, bookDTO);
+        verify(bookRepository, never()).findByIsbn(anyString());
+    }
+
+    @Test
+    void getBookByIsbnNotIndexed() {
+
+        when(bookSearchIndex.findByIsbn("ISBN 1")).thenReturn(Optional.empty());
+        when(bookRepository.findByIsbn("ISBN 1")).thenReturn(Optional.of(bookDAOList.get(0)));
+
+        BookDTO bookDTO = bookService.getBookByIsbn("ISBN 1");
+
+        assertEquals(bookDAOList.get(0).getId(), bookDTO.getId());
+    }
+
+    @Test
+    void getBookByIsbnNotFound() {
+
+        when(bookSearchIndex.findByIsbn("ISBN 99")).thenReturn(Optional.empty());
+        when(bookRepository.findByIsbn("ISBN 99")).thenReturn(Optional.empty());
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.getBookByIsbn("ISBN 99"));
+
+        assertEquals(501, exception.getErr().getCode());
+    }
+
+    @Test
+    void createBookDuplicateIsbn() {
+
+        BookDTO newBookDTO = BookDTO.builder().title("New Book").author("New Author").isbn("ISBN 1").publicationDate(LocalDate.now()).build();
+        BookDTO indexed = new BookDTO(1L, "Book 1", "Author 1", "ISBN 1", LocalDate.now());
+        when(bookSearchIndex.findByIsbn("ISBN 1")).thenReturn(Optional.of(indexed));
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.createBook(newBookDTO));
+
+        assertEquals(409, exception.getErr().getCode());
+        verify(bookRepository, never()).save(any());
+    }
+
+    @Test
+    void createBookDuplicateIsbnRejectedByDatabase() {
+
+        BookDTO newBookDTO = BookDTO.builder().title("New Book").author("New Author").isbn("ISBN 1").publicationDate(LocalDate.now()).build();
+        doThrow(new DataIntegrityViolationException("Unique index or primary key violation: \"PUBLIC.UK_BOOKS_ISBN_INDEX_3\""))
+                .when(bookRepository).flush();
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.createBook(newBookDTO));
+
+        assertEquals(409, exception.getErr().getCode());
+        verifyNoInteractions(outbox);
+    }
+
+    @Test
+    void createBookOtherConstraintViolation() {
+
+        BookDTO newBookDTO = BookDTO.builder().title("New Book").author("New Author").isbn("ISBN 1").publicationDate(LocalDate.now()).build();
+        doThrow(new DataIntegrityViolationException("NULL not allowed for column \"TITLE\"")).when(bookRepository).flush();
+
+        assertThrows(DataIntegrityViolationException.class, () -> bookService.createBook(newBookDTO));
+    }
+
+    @Test
+    void updateBookKeepingItsIsbn() {
+
+        BookDAO existingBookDAO = bookDAOList.get(0);
+        BookDTO indexed = new BookDTO(1L, "Book 1", "Author 1", "ISBN 1", LocalDate.now());
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(existingBookDAO));
+        when(bookSearchIndex.findByIsbn("ISBN 1")).thenReturn(Optional.of(indexed));
+        when(bookRepository.save(existingBookDAO)).thenReturn(existingBookDAO);
+
+        BookDTO result = bookService.partiallyUpdateBook(1L, Map.of("title", "Renamed Book"));
+
+        assertEquals("Renamed Book", result.getTitle());
+    }
+
+    @Test
+    void searchBooks() {
+
+        List<BookDTO> found = List.of(new BookDTO(1L, "Book 1", "Author 1", "ISBN 1", LocalDate.now()));
+        when(bookSearchIndex.search("book", 20)).thenReturn(found);
+
+        List<BookDTO> result = bookService.searchBooks("book", 20);
+
+        assertEquals(found, result);
+    }
+
+    @Test
+    void searchBooksInvalidLimit() {
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.searchBooks("book", 0));
+
+        assertEquals(400, exception.getErr().getCode());
+        verifyNoInteractions(bookSearchIndex);
+    }
+
     @Test
     void createBook() {
 
@@ -116,6 +242,8 @@ class BookServiceImplTest {
         assertEquals("New Author", result.getAuthor());
         assertEquals("New ISBN", result.getIsbn());
         assertEquals(LocalDate.now(), result.getPublicationDate());
+        verify(eventPublisher).publishEvent(BookEvent.saved(result));
+        verify(outbox).record(OutboxEvent.BOOK, 11L, OutboxEvent.CREATED, result);
     }
 
     @Test
@@ -182,7 +310,19 @@ class BookServiceImplTest {
     void deleteBook() {
 
         Long bookId = 1L;
+        when(bookRepository.existsById(bookId)).thenReturn(true);
         doNothing().when(bookRepository).deleteById(bookId);
         bookService.deleteBook(bookId);
+        verify(eventPublisher).publishEvent(BookEvent.deleted(bookId));
+        verify(outbox).record(OutboxEvent.BOOK, bookId, OutboxEvent.DELETED, null);
+    }
+
+    @Test
+    void deleteBookNotFoundRecordsNothing() {
+        Long bookId = 99L;
+        when(bookRepository.existsById(bookId)).thenReturn(false);
+        bookService.deleteBook(bookId);
+        verify(bookRepository, never()).deleteById(bookId);
+        verifyNoInteractions(outbox, eventPublisher, collectionVersions);
     }
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.example.demo.idempotency;
+
+import com.example.demo.book.controller.BookController;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.service.BookService;
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.controller.LoanController;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.event.LoanEventBroadcaster;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.controller.UserController;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = {BookController.class, UserController.class, LoanController.class})
+@Import({IdempotencyConfiguration.class, SimpleMeterRegistry.class})
+class IdempotencyFilterTest {
+
+    private static final String USER_JSON = "{\"name\":\"User 1\",\"phoneNumber\":\"600000000\",\"registrationDate\":\"2024-01-01\"}";
+
+    private static final String LOAN_JSON = "{\"book\":{\"id\":1},\"user\":{\"id\":1},\"loanDate\":\"2024-01-01\",\"returnDate\":\"2024-01-15\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+
+    @MockBean
+    private BookService bookService;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private LoanService loanService;
+
+    @MockBean
+    private LoanEventBroadcaster loanEventBroadcaster;
+
+    @Test
+    void repeatedKeyReplaysTheResponseWithoutCallingTheService() throws Exception {
+        when(userService.createUser(any())).thenReturn(new UserDTO(7L, "User 1", "600000000", LocalDate.of(2024, 1, 1)));
+
+        String first = mockMvc.perform(createUser("replay-key"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+                .andReturn().getResponse().getContentAsString();
+        String second = mockMvc.perform(createUser("replay-key"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, second);
+        verify(userService, times(1)).createUser(any());
+        assertEquals(1, meterRegistry.get(IdempotencyFilter.METRIC_NAME).tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    void requestsWithoutKeyAreNotDeduplicated() throws Exception {
+        when(bookService.createBook(any())).thenReturn(new BookDTO(1L, "Title", "Author", "9780000000002", LocalDate.of(2024, 1, 1)));
+        String book = "{\"title\":\"Title\",\"author\":\"Author\",\"isbn\":\"9780000000002\",\"publicationDate\":\"2024-01-01\"}";
+
+        mockMvc.perform(post("/books").contentType(MediaType.APPLICATION_JSON).content(book)).andExpect(status().isOk());
+        mockMvc.perform(post("/books").contentType(MediaType.APPLICATION_JSON).content(book)).andExpect(status().isOk());
+
+        verify(bookService, times(2)).createBook(any());
+    }
+
+    @Test
+    void keyReusedForADifferentBodyIsRejected() throws Exception {
+        when(userService.createUser(any())).thenReturn(new UserDTO(7L, "User 1", "600000000", LocalDate.of(2024, 1, 1)));
+        mockMvc.perform(createUser("reused-key")).andExpect(status().isOk());
+
+        mockMvc.perform(post("/users").header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "reused-key")
+                        .contentType(MediaType.APPLICATION_JSON).content(USER_JSON.replace("User 1", "User 2")))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value(422));
+
+        verify(userService, times(1)).createUser(any());
+    }
+
+    @Test
+    void keyStillInProgressIsRejected() throws Exception {
+        idempotencyStore.claim("/loans in-flight-key", sha256(LOAN_JSON));
+
+        mockMvc.perform(createLoan("in-flight-key"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value(409));
+
+        verify(loanService, never()).createLoan(any());
+    }
+
+    @Test
+    void clientErrorsAreReplayedButServerErrorsCanBeRetried() throws Exception {
+        when(loanService.createLoan(any()))
+                .thenThrow(new LoanException(new ExceptionEntity(400, "The book is already on loan and cannot be assigned again.")));
+        mockMvc.perform(createLoan("rejected-key")).andExpect(status().isBadRequest());
+        mockMvc.perform(createLoan("rejected-key"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+        verify(loanService, times(1)).createLoan(any());
+
+        reset(loanService);
+        when(loanService.createLoan(any()))
+                .thenThrow(new IllegalStateException("Database unavailable"))
+                .thenReturn(LoanDTO.builder().id(3L).build());
+        assertThrows(Exception.class, () -> mockMvc.perform(createLoan("failed-key")));
+        mockMvc.perform(createLoan("failed-key"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(3));
+        verify(loanService, times(2)).createLoan(any());
+    }
+
+    @Test
+    void sameKeyOnAnotherEndpointIsIndependent() throws Exception {
+        when(userService.createUser(any())).thenReturn(new UserDTO(7L, "User 1", "600000000", LocalDate.of(2024, 1, 1)));
+        when(loanService.createLoan(any())).thenReturn(LoanDTO.builder().id(3L).build());
+
+        mockMvc.perform(createUser("shared-key")).andExpect(status().isOk());
+        mockMvc.perform(createLoan("shared-key")).andExpect(status().isOk());
+
+        verify(userService, times(1)).createUser(any());
+        verify(loanService, times(1)).createLoan(any());
+    }
+
+    @Test
+    void overlongKeyIsRejected() throws Exception {
+        mockMvc.perform(createUser("k".repeat(IdempotencyFilter.MAX_KEY_LENGTH + 1)))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).createUser(any());
+    }
+
+    private static MockHttpServletRequestBuilder createUser(String key) {
+        return post("/users").header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON).content(USER_JSON);
+    }
+
+    private static MockHttpServletRequestBuilder createLoan(String key) {
+        return post("/loans").header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON).content(LOAN_JSON);
+    }
+
+    private static String sha256(String body) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryIdempotencyStoreTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final InMemoryIdempotencyStore store =
+            new InMemoryIdempotencyStore(100, Duration.ofHours(24), Duration.ofMinutes(1), nanos::get);
+
+    @Test
+    void onlyOneOfConcurrentClaimsWins() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Callable<IdempotencyRecord> claim = () -> {
+                start.await();
+                return store.claim("key", "fingerprint");
+            };
+            List<Future<IdempotencyRecord>> claims = IntStream.range(0, threads).mapToObj(i -> executor.submit(claim)).toList();
+            start.countDown();
+
+            long winners = 0;
+            for (Future<IdempotencyRecord> result : claims) {
+                winners += result.get() == null ? 1 : 0;
+            }
+            assertEquals(1, winners);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void completedRecordIsReturnedUntilTheTtl() {
+        assertNull(store.claim("key", "fingerprint"));
+        store.complete("key", new IdempotencyRecord("fingerprint", 201, "application/json", new byte[]{'{', '}'}));
+
+        nanos.addAndGet(Duration.ofHours(23).toNanos());
+        IdempotencyRecord stored = store.claim("key", "fingerprint");
+
+        assertTrue(Objects.requireNonNull(stored).isComplete());
+        assertEquals(201, stored.status());
+        nanos.addAndGet(Duration.ofHours(2).toNanos());
+        assertNull(store.claim("key", "fingerprint"));
+    }
+
+    @Test
+    void unfinishedClaimExpiresAfterTheInProgressTimeout() {
+        assertNull(store.claim("key", "fingerprint"));
+        assertFalse(store.claim("key", "fingerprint").isComplete());
+
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        assertNull(store.claim("key", "fingerprint"));
+    }
+
+    @Test
+    void releasedKeyCanBeClaimedAgain() {
+        assertNull(store.claim("key", "fingerprint"));
+        store.release("key");
+
+        assertNull(store.claim("key", "fingerprint"));
+    }
+}
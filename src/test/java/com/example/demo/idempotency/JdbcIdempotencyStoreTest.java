@@ -0,0 +1,88 @@
+package com.example.demo.idempotency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency-jdbc",
+        "spring.jpa.show-sql=false",
+        "app.idempotency.store=jdbc"
+})
+class JdbcIdempotencyStoreTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys");
+        store = new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(24), Duration.ofMinutes(1), new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now;
+            }
+        });
+    }
+
+    @Test
+    void jdbcStoreIsSelectedByProperty() {
+        assertInstanceOf(JdbcIdempotencyStore.class, idempotencyStore);
+    }
+
+    @Test
+    void claimIsExclusiveUntilCompletedAndThenReturnsTheResponse() {
+        assertNull(store.claim("key", "fingerprint"));
+        assertFalse(store.claim("key", "fingerprint").isComplete());
+
+        store.complete("key", new IdempotencyRecord("fingerprint", 201, "application/json", "{\"id\":1}".getBytes()));
+        IdempotencyRecord stored = store.claim("key", "other");
+
+        assertEquals("fingerprint", stored.fingerprint());
+        assertEquals(201, stored.status());
+        assertEquals("application/json", stored.contentType());
+        assertArrayEquals("{\"id\":1}".getBytes(), stored.body());
+    }
+
+    @Test
+    void expiredKeysAreReclaimedAndPurged() {
+        assertNull(store.claim("unfinished", "fingerprint"));
+        assertNull(store.claim("completed", "fingerprint"));
+        store.complete("completed", new IdempotencyRecord("fingerprint", 201, "application/json", new byte[0]));
+
+        now = now.plus(Duration.ofMinutes(2));
+        assertNull(store.claim("unfinished", "fingerprint"));
+        assertTrue(store.claim("completed", "fingerprint").isComplete());
+
+        now = now.plus(Duration.ofHours(25));
+        store.purgeExpired();
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_keys", Integer.class));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.loan.controller;
+
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.dto.HoldDTO;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.service.HoldService;
+import com.example.demo.user.exception.UserException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(HoldController.class)
+class HoldControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private HoldService holdService;
+
+    private static HoldDTO hold(int position) {
+        return HoldDTO.builder()
+                .id(5L)
+                .bookId(1L)
+                .userId(2L)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 10, 0))
+                .position(position)
+                .build();
+    }
+
+    @Test
+    void placeHold() throws Exception {
+        when(holdService.placeHold(eq(1L), any(HoldDTO.class))).thenReturn(hold(3));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/1/holds")
+                        .contentType("application/json")
+                        .content("{\"userId\":2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(5)))
+                .andExpect(jsonPath("$.userId", is(2)))
+                .andExpect(jsonPath("$.position", is(3)));
+    }
+
+    @Test
+    void placeHoldOnABookThatIsNotOnLoan() throws Exception {
+        when(holdService.placeHold(eq(1L), any(HoldDTO.class)))
+                .thenThrow(new LoanException(new ExceptionEntity(400, "The book is not on loan and can be borrowed right away.")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/1/holds")
+                        .contentType("application/json")
+                        .content("{\"userId\":2}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)));
+    }
+
+    @Test
+    void placeHoldTwice() throws Exception {
+        when(holdService.placeHold(eq(1L), any(HoldDTO.class)))
+                .thenThrow(new LoanException(new ExceptionEntity(409, "The user already has a hold on this book.")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/1/holds")
+                        .contentType("application/json")
+                        .content("{\"userId\":2}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code", is(409)));
+    }
+
+    @Test
+    void placeHoldUserNotFoundException() throws Exception {
+        when(holdService.placeHold(eq(1L), any(HoldDTO.class)))
+                .thenThrow(new UserException(new ExceptionEntity(404, "User not found with id: 2")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/1/holds")
+                        .contentType("application/json")
+                        .content("{\"userId\":2}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message", is("User not found with id: 2")));
+    }
+
+    @Test
+    void getHold() throws Exception {
+        when(holdService.getHold(1L, 5L)).thenReturn(hold(1));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1/holds/5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookId", is(1)))
+                .andExpect(jsonPath("$.position", is(1)));
+    }
+
+    @Test
+    void getHoldNotFoundException() throws Exception {
+        when(holdService.getHold(1L, 5L)).thenThrow(new LoanException(new ExceptionEntity(404, "Hold not found with id: 5")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1/holds/5"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code", is(404)));
+    }
+
+    @Test
+    void cancelHold() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/books/1/holds/5"))
+                .andExpect(status().isOk());
+
+        verify(holdService).cancelHold(1L, 5L);
+    }
+
+    @Test
+    void cancelHoldNotFoundException() throws Exception {
+        doThrow(new LoanException(new ExceptionEntity(404, "Hold not found with id: 5"))).when(holdService).cancelHold(1L, 5L);
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/books/1/holds/5"))
+                .andExpect(status().isNotFound());
+    }
+}
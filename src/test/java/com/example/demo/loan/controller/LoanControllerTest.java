@@ -1,7 +1,10 @@
 package com.example.demo.loan.controller;
 
 import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.dto.LoanBatchResultDTO;
 import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.event.LoanEventBroadcaster;
 import com.example.demo.loan.exception.LoanException;
 import com.example.demo.loan.service.LoanService;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,21 +12,35 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(LoanController.class)
@@ -35,6 +52,9 @@ class LoanControllerTest {
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private LoanEventBroadcaster loanEventBroadcaster;
+
     private List<LoanDTO> loanDTOList;
 
     @BeforeEach
@@ -60,6 +80,93 @@ class LoanControllerTest {
                 .andExpect(jsonPath("$.size()", is(loanDTOList.size())));
     }
 
+    @Test
+    void getLoansPage() throws Exception {
+        when(loanService.getLoans(eq(5L), eq(3))).thenReturn(loanDTOList.subList(5, 8));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans").param("after", "5").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(3)))
+                .andExpect(jsonPath("$[0].id", is(6)));
+    }
+
+    @Test
+    void getLoansPageInvalidLimit() throws Exception {
+        when(loanService.getLoans(any(), anyInt())).thenThrow(new LoanException(new ExceptionEntity(400, "The limit must be between 1 and 1000")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)));
+    }
+
+    @Test
+    void getOverdueLoans() throws Exception {
+        LocalDate afterDate = LocalDate.of(2024, 1, 31);
+        when(loanService.getOverdueLoans(eq(afterDate), eq(5L), eq(3))).thenReturn(loanDTOList.subList(5, 8));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans/overdue")
+                        .param("afterDate", afterDate.toString()).param("afterId", "5").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(3)))
+                .andExpect(jsonPath("$[0].id", is(6)));
+    }
+
+    @Test
+    void getOverdueLoansInvalidLimit() throws Exception {
+        when(loanService.getOverdueLoans(any(), any(), anyInt())).thenThrow(new LoanException(new ExceptionEntity(400, "The limit must be between 1 and 1000")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans/overdue").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamLoans() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<LoanDTO> consumer = invocation.getArgument(0);
+            loanDTOList.forEach(consumer);
+            return null;
+        }).when(loanService).streamLoans(any(Consumer.class));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/loans").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(loanDTOList.size())))
+                .andExpect(jsonPath("$[9].id", is(10)));
+    }
+
+    @Test
+    void streamLoansCannotBePaged() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans").param("stream", "true").param("limit", "10"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)));
+
+        verify(loanService, never()).getLoans(any(), anyInt());
+    }
+
+    @Test
+    void streamLoanEvents() throws Exception {
+        when(loanEventBroadcaster.subscribe("abc-41")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans/stream").header("Last-Event-ID", "abc-41"))
+                .andExpect(request().asyncStarted());
+
+        verify(loanEventBroadcaster).subscribe("abc-41");
+    }
+
+    @Test
+    void streamLoanEventsTooManySubscribers() throws Exception {
+        when(loanEventBroadcaster.subscribe(null)).thenThrow(new LoanException(new ExceptionEntity(503, "Too many subscribers to the loan events, please retry later")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans/stream"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+
     @Test
     void getLoanById() throws Exception {
         when(loanService.getLoanById(anyLong())).thenReturn(loanDTOList.get(0));
@@ -70,6 +177,28 @@ class LoanControllerTest {
                 .andExpect(jsonPath("$.returnDate", is(loanDTOList.get(0).getReturnDate().toString())));
     }
 
+    @Test
+    void getLoanByIdIsNotModifiedWhenTheETagMatches() throws Exception {
+        when(loanService.getLoanVersion(1L)).thenReturn(Optional.of("2.0.1"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans/1").header("If-None-Match", "\"2.0.1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"2.0.1\""))
+                .andExpect(content().string(""));
+        verify(loanService, never()).getLoanById(anyLong());
+    }
+
+    @Test
+    void getLoanByIdSendsTheNewETagWhenTheLoanChanged() throws Exception {
+        when(loanService.getLoanVersion(1L)).thenReturn(Optional.of("3.0.1"));
+        when(loanService.getLoanById(1L)).thenReturn(loanDTOList.get(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans/1").header("If-None-Match", "\"2.0.1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3.0.1\""))
+                .andExpect(jsonPath("$.loanDate", is(loanDTOList.get(0).getLoanDate().toString())));
+    }
+
     @Test
     void getLoanById_NotFound() throws Exception {
         when(loanService.getLoanById(anyLong())).thenThrow(new LoanException(new ExceptionEntity(404, "Loan not found")));
@@ -100,6 +229,48 @@ class LoanControllerTest {
                 .andExpect(jsonPath("$.returnDate", is(createdLoanDTO.getReturnDate().toString())));
     }
 
+    @Test
+    void createLoanBookAlreadyOnLoan() throws Exception {
+        when(loanService.createLoan(any(LoanDTO.class))).thenThrow(new LoanException(new ExceptionEntity(400, "The book is already on loan and cannot be assigned again.")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/loans")
+                        .contentType("application/json")
+                        .content("{\"loanDate\":\"" + LocalDate.now() + "\",\"returnDate\":\"" + LocalDate.now().plusDays(30) + "\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)))
+                .andExpect(jsonPath("$.message", is("The book is already on loan and cannot be assigned again.")));
+    }
+
+    @Test
+    void createLoans() throws Exception {
+        List<LoanBatchResultDTO> results = List.of(
+                new LoanBatchResultDTO(0, 201, loanDTOList.get(0), null),
+                new LoanBatchResultDTO(1, 404, null, new ExceptionEntity(404, "Book not found with id: 99")));
+
+        when(loanService.createLoans(any(List.class))).thenReturn(results);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/loans/batch")
+                        .contentType("application/json")
+                        .content("[{\"loanDate\":\"" + LocalDate.now() + "\"},{\"loanDate\":\"" + LocalDate.now() + "\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(jsonPath("$[0].status", is(201)))
+                .andExpect(jsonPath("$[0].loan.id", is(1)))
+                .andExpect(jsonPath("$[1].status", is(404)))
+                .andExpect(jsonPath("$[1].error.message", is("Book not found with id: 99")));
+    }
+
+    @Test
+    void createLoansTooLarge() throws Exception {
+        when(loanService.createLoans(any(List.class))).thenThrow(new LoanException(new ExceptionEntity(400, "The batch must contain between 1 and 10000 loans")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/loans/batch")
+                        .contentType("application/json")
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)));
+    }
+
     @Test
     void updateLoan() throws Exception {
         LoanDTO updatedLoanDTO = LoanDTO.builder()
@@ -130,6 +301,28 @@ class LoanControllerTest {
                 .andExpect(jsonPath("$.message", is("Loan not found")));
     }
 
+    @Test
+    void updateLoanBookAlreadyOnLoan() throws Exception {
+        when(loanService.updateLoan(anyLong(), any(LoanDTO.class))).thenThrow(new LoanException(new ExceptionEntity(400, "The book is already on loan and cannot be assigned again.")));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/loans/1")
+                        .contentType("application/json")
+                        .content("{\"id\":1,\"loanDate\":\"" + LocalDate.now() + "\",\"returnDate\":\"" + LocalDate.now().plusDays(30) + "\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)));
+    }
+
+    @Test
+    void updateLoanConcurrentlyModified() throws Exception {
+        when(loanService.updateLoan(anyLong(), any(LoanDTO.class))).thenThrow(new ObjectOptimisticLockingFailureException(LoanDAO.class, 1L));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/loans/1")
+                        .contentType("application/json")
+                        .content("{\"id\":1,\"loanDate\":\"" + LocalDate.now() + "\",\"returnDate\":\"" + LocalDate.now().plusDays(30) + "\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code", is(409)));
+    }
+
     @Test
     void partiallyUpdateLoan() throws Exception {
         Map<String, Object> updates = new HashMap<>();
@@ -162,6 +355,30 @@ class LoanControllerTest {
                 .andExpect(jsonPath("$.message", is("Loan not found")));
     }
 
+    @Test
+    void returnLoan() throws Exception {
+        LoanDTO returnedLoanDTO = LoanDTO.builder()
+                .id(1L)
+                .loanDate(LocalDate.now().minusDays(3))
+                .returnDate(LocalDate.now())
+                .build();
+
+        when(loanService.returnLoan(1L)).thenReturn(returnedLoanDTO);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/loans/1/return"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.returnDate", is(LocalDate.now().toString())));
+    }
+
+    @Test
+    void returnLoanAlreadyReturned() throws Exception {
+        when(loanService.returnLoan(1L)).thenThrow(new LoanException(new ExceptionEntity(400, "The loan has already been returned.")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/loans/1/return"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)));
+    }
+
     @Test
     void deleteLoan() throws Exception {
         doNothing().when(loanService).deleteLoan(anyLong());
@@ -0,0 +1,302 @@
+package com.example.demo.loan.event;
+
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.exception.LoanException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoanEventBroadcasterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<LoanEventBroadcaster> broadcasters = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        broadcasters.forEach(LoanEventBroadcaster::close);
+    }
+
+    @Test
+    void eventsReachEverySubscriberInCommitOrder() throws Exception {
+        LoanEventBroadcaster broadcaster = broadcaster(16, 10);
+        RecordingEmitter first = subscribe(broadcaster, null);
+        RecordingEmitter second = subscribe(broadcaster, null);
+
+        broadcaster.publish(LoanEvent.created(loan(1L)));
+        broadcaster.publish(LoanEvent.updated(loan(1L)));
+        broadcaster.publish(LoanEvent.deleted(1L));
+
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            assertEquals("created", emitter.next().name());
+            assertEquals("updated", emitter.next().name());
+            Event deleted = emitter.next();
+            assertEquals("deleted", deleted.name());
+            assertTrue(deleted.data().contains("\"loanId\":1"), deleted.data());
+        }
+    }
+
+    @Test
+    void subscribersOnlyGetEventsPublishedAfterThey() throws Exception {
+        LoanEventBroadcaster broadcaster = broadcaster(16, 10);
+        broadcaster.publish(LoanEvent.created(loan(1L)));
+        RecordingEmitter emitter = subscribe(broadcaster, null);
+
+        broadcaster.publish(LoanEvent.created(loan(2L)));
+
+        assertTrue(emitter.next().data().contains("\"loanId\":2"));
+        assertNull(emitter.poll(100));
+    }
+
+    @Test
+    void resumesAfterTheLastEventId() throws Exception {
+        LoanEventBroadcaster broadcaster = broadcaster(16, 10);
+        RecordingEmitter live = subscribe(broadcaster, null);
+        for (long id = 1; id <= 3; id++) {
+            broadcaster.publish(LoanEvent.created(loan(id)));
+        }
+        String firstId = live.next().id();
+
+        RecordingEmitter resumed = subscribe(broadcaster, firstId);
+
+        assertTrue(resumed.next().data().contains("\"loanId\":2"));
+        assertTrue(resumed.next().data().contains("\"loanId\":3"));
+        assertNull(resumed.poll(100));
+    }
+
+    @Test
+    void resumingBeyondTheBufferOrFromAnotherRunIsAReset() throws Exception {
+        LoanEventBroadcaster broadcaster = broadcaster(4, 10);
+        RecordingEmitter live = subscribe(broadcaster, null);
+        broadcaster.publish(LoanEvent.created(loan(1L)));
+        String firstId = live.next().id();
+        for (long id = 2; id <= 10; id++) {
+            broadcaster.publish(LoanEvent.created(loan(id)));
+        }
+
+        RecordingEmitter tooOld = subscribe(broadcaster, firstId);
+        RecordingEmitter otherRun = subscribe(broadcaster, "previousrun-5");
+
+        for (RecordingEmitter emitter : List.of(tooOld, otherRun)) {
+            assertEquals(LoanEventBroadcaster.RESET, emitter.next().name());
+            assertNull(emitter.poll(100));
+        }
+        broadcaster.publish(LoanEvent.created(loan(11L)));
+        assertTrue(tooOld.next().data().contains("\"loanId\":11"));
+    }
+
+    @Test
+    void aSlowSubscriberOnlyHoldsBackItself() throws Exception {
+        LoanEventBroadcaster broadcaster = broadcaster(4, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = subscribe(broadcaster, null, release);
+        RecordingEmitter fast = subscribe(broadcaster, null);
+
+        broadcaster.publish(LoanEvent.created(loan(1L)));
+        assertTrue(slow.blocked.await(5, TimeUnit.SECONDS));
+        for (long id = 1; id <= 10; id++) {
+            if (id > 1) {
+                broadcaster.publish(LoanEvent.created(loan(id)));
+            }
+            assertTrue(fast.next().data().contains("\"loanId\":" + id));
+        }
+        release.countDown();
+
+        // The first event was already being sent; the ones after it were overwritten while the client was stuck
+        assertTrue(slow.next().data().contains("\"loanId\":1"));
+        assertEquals(LoanEventBroadcaster.RESET, slow.next().name());
+        broadcaster.publish(LoanEvent.created(loan(11L)));
+        assertTrue(slow.next().data().contains("\"loanId\":11"));
+        assertEquals(1, meterRegistry.get("library.loan.events.resets").counter().count());
+    }
+
+    @Test
+    void subscribersBlockedForLongerThanTheSendTimeoutAreDropped() throws Exception {
+        LoanEventBroadcaster broadcaster = broadcaster(16, 10, Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        // As many stuck clients as dispatch threads
+        RecordingEmitter first = subscribe(broadcaster, null, release);
+        RecordingEmitter second = subscribe(broadcaster, null, release);
+        RecordingEmitter fast = subscribe(broadcaster, null);
+
+        broadcaster.publish(LoanEvent.created(loan(1L)));
+        assertTrue(first.blocked.await(5, TimeUnit.SECONDS));
+        assertTrue(second.blocked.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        broadcaster.dropStalledSubscribers();
+
+        assertTrue(fast.next().data().contains("\"loanId\":1"));
+        assertEquals(1, broadcaster.subscribers());
+        assertEquals(2, meterRegistry.get("library.loan.events.stalls").counter().count());
+        release.countDown();
+        assertTrue(first.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(second.completed.await(5, TimeUnit.SECONDS));
+        broadcaster.publish(LoanEvent.created(loan(2L)));
+        assertTrue(fast.next().data().contains("\"loanId\":2"));
+    }
+
+    @Test
+    void subscribersThatCannotBeReachedAreDropped() throws Exception {
+        LoanEventBroadcaster broadcaster = broadcaster(16, 10);
+        RecordingEmitter emitter = subscribe(broadcaster, null);
+        emitter.failing = true;
+
+        broadcaster.publish(LoanEvent.created(loan(1L)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (broadcaster.subscribers() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, broadcaster.subscribers());
+    }
+
+    @Test
+    void idleSubscribersGetHeartbeats() throws Exception {
+        LoanEventBroadcaster broadcaster = broadcaster(16, 10);
+        RecordingEmitter emitter = subscribe(broadcaster, null);
+
+        // One right away, so the response goes out before the first event
+        assertTrue(emitter.nextComment().raw().startsWith(":heartbeat"));
+        broadcaster.heartbeat();
+
+        assertTrue(emitter.nextComment().raw().startsWith(":heartbeat"));
+    }
+
+    @Test
+    void subscribersAreLimited() throws Exception {
+        LoanEventBroadcaster broadcaster = broadcaster(16, 2);
+        subscribe(broadcaster, null);
+        subscribe(broadcaster, null);
+
+        LoanException exception = assertThrows(LoanException.class, () -> subscribe(broadcaster, null));
+
+        assertEquals(503, exception.getErr().getCode());
+        assertEquals(2.0, meterRegistry.get("library.loan.events.subscribers").gauge().value());
+    }
+
+    private LoanEventBroadcaster broadcaster(int bufferSize, int maxSubscribers) {
+        return broadcaster(bufferSize, maxSubscribers, Duration.ofMinutes(1));
+    }
+
+    private LoanEventBroadcaster broadcaster(int bufferSize, int maxSubscribers, Duration sendTimeout) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        LoanEventBroadcaster broadcaster = new LoanEventBroadcaster(objectMapper, bufferSize, maxSubscribers,
+                Duration.ofMinutes(1), 2, sendTimeout, meterRegistry);
+        broadcasters.add(broadcaster);
+        return broadcaster;
+    }
+
+    private static RecordingEmitter subscribe(LoanEventBroadcaster broadcaster, String lastEventId) {
+        return subscribe(broadcaster, lastEventId, null);
+    }
+
+    private static RecordingEmitter subscribe(LoanEventBroadcaster broadcaster, String lastEventId, CountDownLatch release) {
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        broadcaster.subscribe(lastEventId, emitter);
+        return emitter;
+    }
+
+    private static LoanDTO loan(Long id) {
+        return LoanDTO.builder().id(id).loanDate(LocalDate.now()).returnDate(LocalDate.now().plusDays(14)).build();
+    }
+
+    private record Event(String id, String name, String data, String raw) {
+    }
+
+    /**
+     * Records what would be written to the client, parsed back into events. Blocks on {@code release} before
+     * writing the first event, like a client that stopped reading.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+
+        private final CountDownLatch release;
+
+        private final CountDownLatch blocked = new CountDownLatch(1);
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private volatile boolean failing;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            String raw = builder.build().stream().map(part -> part.getData().toString()).collect(Collectors.joining());
+            String id = null;
+            String name = null;
+            String data = null;
+            for (String line : raw.split("\n")) {
+                if (line.startsWith("id:")) {
+                    id = line.substring(3);
+                } else if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:")) {
+                    data = line.substring(5);
+                }
+            }
+            if (release != null && name != null) {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(new Event(id, name, data, raw));
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+            super.complete();
+        }
+
+        /**
+         * The next event, skipping heartbeats.
+         */
+        Event next() throws InterruptedException {
+            Event event = poll(5000);
+            assertNotNull(event, "No event received");
+            return event;
+        }
+
+        Event poll(long millis) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            Event event;
+            do {
+                event = events.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } while (event != null && event.name() == null);
+            return event;
+        }
+
+        Event nextComment() throws InterruptedException {
+            Event event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "Nothing received");
+            assertNull(event.name(), event.raw());
+            return event;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.loan.hold;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HoldQueueTest {
+
+    @Test
+    void holdsArePromotedInArrivalOrder() {
+        HoldQueue queue = new HoldQueue(List.of(3L, 8L));
+        queue.add(11L);
+
+        assertEquals(3L, queue.next());
+        queue.remove(3L);
+        assertEquals(8L, queue.next());
+        queue.remove(8L);
+        assertEquals(11L, queue.next());
+        queue.remove(11L);
+        assertNull(queue.next());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void cancellingAHoldMovesTheOnesBehindItForward() {
+        HoldQueue queue = new HoldQueue(List.of(1L, 2L, 3L, 4L));
+
+        queue.remove(2L);
+
+        assertEquals(1, queue.position(1L));
+        assertEquals(0, queue.position(2L));
+        assertEquals(2, queue.position(3L));
+        assertEquals(3, queue.position(4L));
+        assertEquals(1L, queue.next());
+    }
+
+    @Test
+    void repeatedAndOutOfOrderHoldsAreNotQueued() {
+        HoldQueue queue = new HoldQueue(List.of(5L, 9L));
+
+        assertTrue(queue.add(9L));
+        assertFalse(queue.add(7L));
+
+        assertEquals(2, queue.size());
+        assertEquals(0, queue.position(7L));
+    }
+
+    @Test
+    void slotsOfServedHoldsAreReusedBeforeGrowing() {
+        HoldQueue queue = new HoldQueue(List.of());
+        int capacity = queue.capacity();
+
+        // A steady queue of a few holds never outgrows its first array, however many go through it
+        for (long holdId = 1; holdId <= 10 * capacity; holdId++) {
+            queue.add(holdId);
+            if (holdId > 3) {
+                queue.remove(holdId - 3);
+            }
+        }
+
+        assertEquals(capacity, queue.capacity());
+        assertEquals(3, queue.size());
+        assertEquals(10L * capacity - 2, queue.next());
+    }
+
+    @Test
+    void matchesAListUnderRandomOperations() {
+        HoldQueue queue = new HoldQueue(LongStream.rangeClosed(1, 1000).boxed().toList());
+        List<Long> expected = new ArrayList<>(LongStream.rangeClosed(1, 1000).boxed().toList());
+        SplittableRandom random = new SplittableRandom(7);
+        long nextId = 1001;
+
+        for (int i = 0; i < 20000; i++) {
+            int operation = random.nextInt(4);
+            if (operation == 0 || expected.isEmpty()) {
+                queue.add(nextId);
+                expected.add(nextId++);
+            } else if (operation == 1) {
+                queue.remove(expected.remove(0));
+            } else if (operation == 2) {
+                queue.remove(expected.remove(random.nextInt(expected.size())));
+            } else {
+                int index = random.nextInt(expected.size());
+                assertEquals(index + 1, queue.position(expected.get(index)));
+            }
+            assertEquals(expected.isEmpty() ? null : expected.get(0), queue.next());
+            assertEquals(expected.size(), queue.size());
+        }
+    }
+
+    @Test
+    void holdsOfALongQueueKeepTheirPositions() {
+        int holds = 50000;
+        HoldQueue queue = new HoldQueue(LongStream.rangeClosed(1, holds / 2).boxed().toList());
+        for (long holdId = holds / 2 + 1; holdId <= holds; holdId++) {
+            queue.add(holdId);
+        }
+
+        for (long holdId = 1; holdId <= holds; holdId++) {
+            assertEquals(holdId, queue.position(holdId));
+        }
+        // Serving the first half moves everybody else forward by as many places
+        for (long holdId = 1; holdId <= holds / 2; holdId++) {
+            assertEquals(holdId, queue.next());
+            queue.remove(holdId);
+        }
+        assertEquals(1, queue.position(holds / 2 + 1L));
+        assertEquals(holds / 2, queue.position((long) holds));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.loan.lock;
+
+import com.example.demo.loan.exception.LoanException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookLockManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void stripesAreRoundedUpToAPowerOfTwo() {
+        assertEquals(1, manager(1, Duration.ofSeconds(1)).stripes());
+        assertEquals(1024, manager(1000, Duration.ofSeconds(1)).stripes());
+        assertEquals(1024, manager(1024, Duration.ofSeconds(1)).stripes());
+    }
+
+    @Test
+    void checkoutsOfTheSameBookRunOneAtATime() throws Exception {
+        BookLockManager manager = manager(1024, Duration.ofSeconds(5));
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+
+        Future<?>[] checkouts = new Future<?>[8];
+        for (int i = 0; i < checkouts.length; i++) {
+            checkouts[i] = executor.submit(() -> manager.withLock(7L, () -> {
+                maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                sleep(20);
+                return inside.decrementAndGet();
+            }));
+        }
+        for (Future<?> checkout : checkouts) {
+            checkout.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, maxInside.get());
+        assertEquals(8, acquisitions("fast") + acquisitions("contended"));
+        assertTrue(acquisitions("contended") > 0);
+        assertTrue(meterRegistry.get("library.book.lock.wait").timer().count() > 0);
+    }
+
+    @Test
+    void differentBooksDoNotWaitForEachOther() throws Exception {
+        BookLockManager manager = manager(1024, Duration.ofSeconds(5));
+        assertNotSame(manager.stripeOf(1L), manager.stripeOf(2L));
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> holder = executor.submit(() -> manager.withLock(1L, () -> {
+            holding.countDown();
+            await(release);
+            return null;
+        }));
+        holding.await(5, TimeUnit.SECONDS);
+
+        assertEquals("other book", manager.withLock(2L, () -> "other book"));
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void waitingLongerThanTheTimeoutIsAConflict() throws Exception {
+        BookLockManager manager = manager(1024, Duration.ofMillis(50));
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> holder = executor.submit(() -> manager.withLock(1L, () -> {
+            holding.countDown();
+            await(release);
+            return null;
+        }));
+        holding.await(5, TimeUnit.SECONDS);
+
+        LoanException exception = assertThrows(LoanException.class, () -> manager.withLock(1L, () -> "too late"));
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+
+        assertEquals(409, exception.getErr().getCode());
+        assertEquals(1, acquisitions("timeout"));
+        assertFalse(manager.stripeOf(1L).isLocked());
+    }
+
+    @Test
+    void fairLocksAreReleasedWhenTheCheckoutFails() {
+        BookLockManager manager = new BookLockManager(true, 16, true, Duration.ofSeconds(1), meterRegistry);
+
+        assertThrows(IllegalStateException.class, () -> manager.withLock(3L, () -> {
+            throw new IllegalStateException("checkout failed");
+        }));
+
+        assertTrue(manager.stripeOf(3L).isFair());
+        assertFalse(manager.stripeOf(3L).isLocked());
+        assertEquals("lent", manager.withLock(3L, () -> "lent"));
+    }
+
+    @Test
+    void disabledManagerRunsTheActionWithoutLocking() {
+        BookLockManager manager = new BookLockManager(false, 16, false, Duration.ofSeconds(1), meterRegistry);
+
+        assertFalse(manager.withLock(1L, () -> manager.stripeOf(1L).isHeldByCurrentThread()));
+        assertEquals(0, acquisitions("fast"));
+    }
+
+    private BookLockManager manager(int stripes, Duration timeout) {
+        return new BookLockManager(true, stripes, false, timeout, meterRegistry);
+    }
+
+    private double acquisitions(String path) {
+        return meterRegistry.get("library.book.lock.acquisitions").tag("path", path).counter().count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
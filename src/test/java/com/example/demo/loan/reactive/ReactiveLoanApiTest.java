@@ -0,0 +1,315 @@
+package com.example.demo.loan.reactive;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.event.LoanEvent;
+import com.example.demo.loan.event.LoanEventBroadcaster;
+import com.example.demo.loan.reactive.repository.ReactiveLoanRepository;
+import com.example.demo.loan.repository.ActiveLoanRepository;
+import com.example.demo.loan.repository.LoanRepository;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.outbox.OutboxEvent;
+import com.example.demo.outbox.OutboxEventDAO;
+import com.example.demo.outbox.OutboxEventRepository;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Drives the reactive loan API over HTTP against the same H2 database the JPA services use.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive-loans",
+        "spring.jpa.show-sql=false",
+        "app.reactive.enabled=true",
+        "app.reactive.port=0",
+        "app.reactive.r2dbc-url=r2dbc:pool:h2:mem:///reactive-loans",
+        "app.outbox.linger=1h"
+})
+class ReactiveLoanApiTest {
+
+    @Autowired
+    private ReactiveLoanServer reactiveLoanServer;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private ActiveLoanRepository activeLoanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @SpyBean
+    private LoanEventBroadcaster loanEventBroadcaster;
+
+    @SpyBean
+    private ReactiveLoanRepository reactiveLoanRepository;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + reactiveLoanServer.getPort()).build();
+    }
+
+    @Test
+    void getLoansStreamsTheSameLoansAsTheBlockingService() {
+        Flux<LoanDTO> loans = client.get().uri("/loans")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(LoanDTO.class)
+                .getResponseBody();
+
+        assertEquals(loanService.getLoans(), loans.collectList().block());
+    }
+
+    @Test
+    void getLoanByIdReturnsNotFoundForUnknownLoan() {
+        client.get().uri("/loans/{id}", Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ExceptionEntity.class)
+                .value(err -> assertEquals(404, err.getCode()));
+    }
+
+    @Test
+    void createLoanClaimsTheBookAndRejectsASecondLoanOfIt() {
+        Long bookId = newBook("Reactive create").getId();
+        Long userId = userRepository.findAll().get(0).getId();
+
+        LoanDTO created = client.post().uri("/loans")
+                .bodyValue(loan(bookId, userId))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoanDTO.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(bookId, created.getBook().getId());
+        assertEquals(created, loanService.getLoanById(created.getId()));
+        assertEquals(created.getId(), activeLoanRepository.findById(bookId).orElseThrow().getLoanId());
+
+        client.post().uri("/loans")
+                .bodyValue(loan(bookId, userId))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ExceptionEntity.class)
+                .value(err -> assertEquals("The book is already on loan and cannot be assigned again.", err.getMessage()));
+    }
+
+    @Test
+    void createLoanSharesValidationWithTheBlockingService() {
+        client.post().uri("/loans")
+                .bodyValue(Map.of("loanDate", LocalDate.now().toString(), "returnDate", LocalDate.now().plusDays(7).toString()))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ExceptionEntity.class)
+                .value(err -> assertEquals("The loan must have an assigned book", err.getMessage()));
+    }
+
+    @Test
+    void createLoanReturnsNotFoundForUnknownBook() {
+        Long userId = userRepository.findAll().get(0).getId();
+
+        client.post().uri("/loans")
+                .bodyValue(loan(Long.MAX_VALUE, userId))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void updateLoanMovesTheClaimToTheNewBook() {
+        Long userId = userRepository.findAll().get(0).getId();
+        Long firstBookId = newBook("Reactive update 1").getId();
+        Long secondBookId = newBook("Reactive update 2").getId();
+        LoanDTO created = loanService.createLoan(loan(firstBookId, userId));
+
+        client.put().uri("/loans/{id}", created.getId())
+                .bodyValue(loan(secondBookId, userId))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoanDTO.class)
+                .value(updated -> assertEquals(secondBookId, updated.getBook().getId()));
+
+        assertFalse(activeLoanRepository.findById(firstBookId).isPresent());
+        assertEquals(created.getId(), activeLoanRepository.findById(secondBookId).orElseThrow().getLoanId());
+    }
+
+    @Test
+    void partiallyUpdateLoanChangesOnlyTheGivenFields() {
+        Long userId = userRepository.findAll().get(0).getId();
+        Long bookId = newBook("Reactive patch").getId();
+        LoanDTO created = loanService.createLoan(loan(bookId, userId));
+        LocalDate returnDate = LocalDate.now().plusDays(21);
+
+        client.patch().uri("/loans/{id}", created.getId())
+                .bodyValue(Map.of("returnDate", returnDate.toString()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoanDTO.class)
+                .value(patched -> {
+                    assertEquals(returnDate, patched.getReturnDate());
+                    assertEquals(created.getLoanDate(), patched.getLoanDate());
+                    assertEquals(created.getBook(), patched.getBook());
+                });
+
+        assertEquals(returnDate, loanService.getLoanById(created.getId()).getReturnDate());
+        assertEquals(returnDate, activeLoanRepository.findById(bookId).orElseThrow().getReturnDate());
+        client.patch().uri("/loans/{id}", created.getId())
+                .bodyValue(Map.of("bookId", Long.MAX_VALUE))
+                .exchange()
+                .expectStatus().isNotFound();
+        client.patch().uri("/loans/{id}", Long.MAX_VALUE)
+                .bodyValue(Map.of("returnDate", returnDate.toString()))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateLoanAnswersConflictWhenTheLoanChangedSinceItWasRead() {
+        Long userId = userRepository.findAll().get(0).getId();
+        Long bookId = newBook("Reactive conflict").getId();
+        LoanDTO created = loanService.createLoan(loan(bookId, userId));
+        LoanDTO concurrentChange = loan(bookId, userId);
+        concurrentChange.setReturnDate(LocalDate.now().plusDays(3));
+        // Another request updates the loan between the read and the write of the reactive update
+        doAnswer(invocation -> ((Mono<Object>) invocation.callRealMethod())
+                .doOnNext(read -> loanService.updateLoan(created.getId(), concurrentChange)))
+                .when(reactiveLoanRepository).findById(created.getId());
+
+        client.put().uri("/loans/{id}", created.getId())
+                .bodyValue(loan(bookId, userId))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(ExceptionEntity.class)
+                .value(err -> assertEquals(409, err.getCode()));
+
+        assertEquals(concurrentChange.getReturnDate(), loanService.getLoanById(created.getId()).getReturnDate());
+    }
+
+    @Test
+    void deleteLoanReleasesTheBook() {
+        Long bookId = newBook("Reactive delete").getId();
+        LoanDTO created = loanService.createLoan(loan(bookId, userRepository.findAll().get(0).getId()));
+
+        client.delete().uri("/loans/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk();
+        client.delete().uri("/loans/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+
+        assertFalse(loanRepository.existsById(created.getId()));
+        assertTrue(activeLoanRepository.findById(bookId).isEmpty());
+    }
+
+    @Test
+    void committedChangesAreSentToTheLoanStream() {
+        List<String> published = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            LoanEvent event = invocation.getArgument(0);
+            // Read through JPA on another connection, so only a committed change is found
+            published.add(event.type() + (loanRepository.existsById(event.loanId()) ? " stored" : " gone"));
+            return invocation.callRealMethod();
+        }).when(loanEventBroadcaster).publish(any(LoanEvent.class));
+        Long userId = userRepository.findAll().get(0).getId();
+        Long bookId = newBook("Reactive events 1").getId();
+        Long otherBookId = newBook("Reactive events 2").getId();
+
+        LoanDTO created = client.post().uri("/loans")
+                .bodyValue(loan(bookId, userId))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoanDTO.class)
+                .returnResult().getResponseBody();
+        client.post().uri("/loans")
+                .bodyValue(loan(bookId, userId))
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.put().uri("/loans/{id}", created.getId())
+                .bodyValue(loan(otherBookId, userId))
+                .exchange()
+                .expectStatus().isOk();
+        client.delete().uri("/loans/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk();
+
+        assertEquals(List.of("created stored", "updated stored", "deleted gone"), published);
+    }
+
+    @Test
+    void changesAreRecordedInTheOutbox() {
+        Long userId = userRepository.findAll().get(0).getId();
+        Long bookId = newBook("Reactive outbox 1").getId();
+
+        LoanDTO created = client.post().uri("/loans")
+                .bodyValue(loan(bookId, userId))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoanDTO.class)
+                .returnResult().getResponseBody();
+        client.put().uri("/loans/{id}", created.getId())
+                .bodyValue(loan(newBook("Reactive outbox 2").getId(), userId))
+                .exchange()
+                .expectStatus().isOk();
+        client.delete().uri("/loans/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk();
+
+        List<OutboxEventDAO> recorded = outboxEventRepository.findAll().stream()
+                .filter(event -> event.getAggregateType().equals(OutboxEvent.LOAN) && event.getAggregateId().equals(created.getId()))
+                .toList();
+        assertEquals(List.of(LoanEvent.CREATED, LoanEvent.UPDATED, LoanEvent.DELETED),
+                recorded.stream().map(OutboxEventDAO::getEventType).toList());
+        assertTrue(recorded.get(0).getPayload().contains("\"id\":" + bookId));
+        assertEquals(null, recorded.get(2).getPayload());
+    }
+
+    private BookDAO newBook(String title) {
+        return bookRepository.save(BookDAO.builder()
+                .title(title).author("Author").isbn(Integer.toString(title.hashCode())).publicationDate(LocalDate.now()).build());
+    }
+
+    private static LoanDTO loan(Long bookId, Long userId) {
+        return LoanDTO.builder()
+                .book(BookDTO.builder().id(bookId).build())
+                .user(UserDTO.builder().id(userId).build())
+                .loanDate(LocalDate.now())
+                .returnDate(LocalDate.now().plusDays(14))
+                .build();
+    }
+}
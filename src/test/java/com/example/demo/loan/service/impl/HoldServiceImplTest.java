@@ -0,0 +1,166 @@
+package com.example.demo.loan.service.impl;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.dto.HoldDTO;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.repository.ActiveLoanRepository;
+import com.example.demo.loan.repository.LoanRepository;
+import com.example.demo.loan.service.HoldService;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Holds against the database: a queue builds up behind a loan, cancellations move it forward, and every return
+ * lends the book to the next patron in line.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-holds",
+        "spring.jpa.show-sql=false"
+})
+class HoldServiceImplTest {
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private ActiveLoanRepository activeLoanRepository;
+
+    private BookDAO book;
+
+    private List<UserDAO> users;
+
+    @BeforeEach
+    void setUp() {
+        book = bookRepository.save(BookDAO.builder().title("Popular book").author("Author")
+                .isbn("HOLD" + System.nanoTime() % 1_000_000_000).publicationDate(LocalDate.now()).build());
+        users = userRepository.saveAll(IntStream.range(0, 4)
+                .mapToObj(i -> UserDAO.builder().name("Patron " + i).phoneNumber("600000000")
+                        .registrationDate(LocalDate.now()).build())
+                .toList());
+    }
+
+    @Test
+    void returnsLendTheBookToTheHoldsInOrder() {
+        LoanDTO loan = lend(users.get(0));
+        HoldDTO first = hold(users.get(1));
+        HoldDTO second = hold(users.get(2));
+        HoldDTO third = hold(users.get(3));
+        assertEquals(List.of(1, 2, 3), List.of(first.getPosition(), second.getPosition(), third.getPosition()));
+
+        LoanDTO returned = loanService.returnLoan(loan.getId());
+
+        assertEquals(LocalDate.now(), returned.getReturnDate());
+        assertEquals(users.get(1).getId(), borrowerOfTheBook());
+        assertThrows(LoanException.class, () -> holdService.getHold(book.getId(), first.getId()));
+        assertEquals(1, holdService.getHold(book.getId(), second.getId()).getPosition());
+        assertEquals(2, holdService.getHold(book.getId(), third.getId()).getPosition());
+
+        loanService.returnLoan(activeLoanRepository.findById(book.getId()).orElseThrow().getLoanId());
+        assertEquals(users.get(2).getId(), borrowerOfTheBook());
+        assertEquals(1, holdService.getHold(book.getId(), third.getId()).getPosition());
+    }
+
+    @Test
+    void cancelledHoldsAreSkipped() {
+        LoanDTO loan = lend(users.get(0));
+        HoldDTO first = hold(users.get(1));
+        HoldDTO second = hold(users.get(2));
+
+        holdService.cancelHold(book.getId(), first.getId());
+
+        assertEquals(1, holdService.getHold(book.getId(), second.getId()).getPosition());
+        loanService.returnLoan(loan.getId());
+        assertEquals(users.get(2).getId(), borrowerOfTheBook());
+        LoanException exception = assertThrows(LoanException.class, () -> holdService.cancelHold(book.getId(), first.getId()));
+        assertEquals(404, exception.getErr().getCode());
+    }
+
+    @Test
+    void theLastReturnLeavesTheBookOnTheShelf() {
+        LoanDTO loan = lend(users.get(0));
+
+        loanService.returnLoan(loan.getId());
+
+        assertTrue(activeLoanRepository.findById(book.getId()).isEmpty());
+        LoanException exception = assertThrows(LoanException.class, () -> loanService.returnLoan(loan.getId()));
+        assertEquals(400, exception.getErr().getCode());
+    }
+
+    @Test
+    void returnedLoansAreNotOverdueTheNextDay() {
+        LoanDTO returned = lend(users.get(0));
+        loanService.returnLoan(returned.getId());
+        LoanDAO stillOut = loanRepository.save(LoanDAO.builder().book(book).user(users.get(1))
+                .loanDate(LocalDate.now().minusDays(14)).returnDate(LocalDate.now()).build());
+
+        List<Long> overdueTomorrow = loanRepository.findDuePageAfter(LocalDate.now().plusDays(1),
+                        LoanServiceImpl.FIRST_RETURN_DATE, 0L, Limit.of(LoanServiceImpl.MAX_BATCH_SIZE)).stream()
+                .map(LoanDAO::getId)
+                .toList();
+
+        assertFalse(overdueTomorrow.contains(returned.getId()));
+        assertTrue(overdueTomorrow.contains(stillOut.getId()));
+        assertEquals(LocalDate.now(), loanRepository.findById(returned.getId()).orElseThrow().getReturnedAt());
+    }
+
+    @Test
+    void holdsAreOnlyTakenOnBooksOnLoanByOtherPatrons() {
+        LoanException available = assertThrows(LoanException.class, () -> hold(users.get(1)));
+        assertEquals(400, available.getErr().getCode());
+
+        lend(users.get(0));
+        LoanException borrower = assertThrows(LoanException.class, () -> hold(users.get(0)));
+        assertEquals(400, borrower.getErr().getCode());
+
+        hold(users.get(1));
+        LoanException twice = assertThrows(LoanException.class, () -> hold(users.get(1)));
+        assertEquals(409, twice.getErr().getCode());
+    }
+
+    private LoanDTO lend(UserDAO user) {
+        return loanService.createLoan(LoanDTO.builder()
+                .book(BookDTO.builder().id(book.getId()).build())
+                .user(UserDTO.builder().id(user.getId()).build())
+                .loanDate(LocalDate.now())
+                .returnDate(LocalDate.now().plusDays(14))
+                .build());
+    }
+
+    private HoldDTO hold(UserDAO user) {
+        return holdService.placeHold(book.getId(), HoldDTO.builder().userId(user.getId()).build());
+    }
+
+    private Long borrowerOfTheBook() {
+        Long loanId = activeLoanRepository.findById(book.getId()).orElseThrow().getLoanId();
+        return loanRepository.findByIdWithBookAndUser(loanId).orElseThrow().getUser().getId();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.loan.service.impl;
+
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.repository.LoanRepository;
+import com.example.demo.loan.service.LoanService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Races a PATCH against a transaction that updates the same loan, and checks the PATCH is retried on top of it
+ * instead of writing back the stale copy it read first.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-optimistic-locking",
+        "spring.jpa.show-sql=false"
+})
+class LoanServiceImplOptimisticLockingTest {
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void updateThatLosesTheVersionCheckIsRetriedOnTheNewVersion() throws Exception {
+        LoanDAO loan = loanRepository.findAll().get(0);
+        LocalDate loanDate = loan.getLoanDate().minusDays(1);
+        LocalDate returnDate = loan.getReturnDate().plusDays(7);
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> concurrentUpdate = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                LoanDAO managed = loanRepository.findById(loan.getId()).orElseThrow();
+                managed.setLoanDate(loanDate);
+                loanRepository.flush();
+                updated.countDown();
+                try {
+                    commit.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            updated.await(10, TimeUnit.SECONDS);
+
+            // Reads the committed version, then waits for the row lock held by the other transaction
+            Future<LoanDTO> patch = executor.submit(() -> loanService.partiallyUpdateLoan(loan.getId(), Map.of("returnDate", returnDate)));
+            Thread.sleep(300);
+            commit.countDown();
+            concurrentUpdate.get(10, TimeUnit.SECONDS);
+            LoanDTO patched = patch.get(10, TimeUnit.SECONDS);
+
+            assertEquals(loanDate, patched.getLoanDate());
+            assertEquals(returnDate, patched.getReturnDate());
+            assertEquals(loan.getVersion() + 2, loanRepository.findById(loan.getId()).orElseThrow().getVersion());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
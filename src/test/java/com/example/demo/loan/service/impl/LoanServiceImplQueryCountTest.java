@@ -0,0 +1,93 @@
+package com.example.demo.loan.service.impl;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.repository.LoanRepository;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the number of SQL statements issued by the loan read paths with Hibernate statistics.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-query-count",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class LoanServiceImplQueryCountTest {
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getLoansStatementCountDoesNotGrowWithLoans() {
+        long fewLoansStatements = countStatements(() -> loanService.getLoans());
+
+        addLoans(40);
+        int loans = (int) loanRepository.count();
+        List<LoanDTO> result = loanService.getLoans();
+        long manyLoansStatements = countStatements(() -> loanService.getLoans());
+
+        assertEquals(loans, result.size());
+        assertEquals(1, fewLoansStatements);
+        assertEquals(fewLoansStatements, manyLoansStatements);
+    }
+
+    @Test
+    void getLoanByIdIssuesOneStatement() {
+        Long loanId = loanRepository.findAll().get(0).getId();
+
+        assertEquals(1, countStatements(() -> loanService.getLoanById(loanId)));
+    }
+
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void addLoans(int count) {
+        for (int i = 0; i < count; i++) {
+            BookDAO book = bookRepository.save(BookDAO.builder()
+                    .title("Query count book " + i).author("Author").isbn("QC" + i).publicationDate(LocalDate.now()).build());
+            UserDAO user = userRepository.save(UserDAO.builder()
+                    .name("Query count user " + i).phoneNumber("600000000").registrationDate(LocalDate.now()).build());
+            loanRepository.save(LoanDAO.builder()
+                    .book(book).user(user).loanDate(LocalDate.now()).returnDate(LocalDate.now().minusDays(1)).build());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.loan.service.impl;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dao.UserDAO;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the loan write paths take books and users from the second-level cache instead of selecting them.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-second-level-cache",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.demo.loan.service.impl.LoanServiceImplSecondLevelCacheTest$RecordingStatementInspector"
+})
+class LoanServiceImplSecondLevelCacheTest {
+
+    private static final Pattern BOOK_OR_USER_SELECT = Pattern.compile("(?is)^select\\b.*\\b(from|join)\\s+(books|users)\\b");
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BookDAO book;
+
+    private UserDAO user;
+
+    @BeforeEach
+    void setUp() {
+        book = bookRepository.save(BookDAO.builder()
+                .title("Cached book").author("Author").isbn("L2" + System.nanoTime() % 100000000000L)
+                .publicationDate(LocalDate.now()).build());
+        user = userRepository.save(UserDAO.builder()
+                .name("Cached user").phoneNumber("600000000").registrationDate(LocalDate.now()).build());
+    }
+
+    @Test
+    void createLoanDoesNotSelectCachedBooksAndUsers() {
+        double hitsBefore = hits("books") + hits("users");
+
+        List<String> statements = recordStatements(() -> loanService.createLoan(loan(LocalDate.now().plusDays(7))));
+
+        assertTrue(statements.stream().noneMatch(sql -> BOOK_OR_USER_SELECT.matcher(sql).find()), statements.toString());
+        assertEquals(hitsBefore + 2, hits("books") + hits("users"));
+    }
+
+    @Test
+    void updateLoansDoNotSelectCachedBooksAndUsers() {
+        Long loanId = loanService.createLoan(loan(LocalDate.now().minusDays(1))).getId();
+
+        List<String> statements = recordStatements(() -> {
+            loanService.updateLoan(loanId, loan(LocalDate.now().minusDays(2)));
+            loanService.partiallyUpdateLoan(loanId, Map.of("bookId", book.getId(), "userId", user.getId()));
+        });
+
+        assertTrue(statements.stream().noneMatch(sql -> BOOK_OR_USER_SELECT.matcher(sql).find()), statements.toString());
+    }
+
+    @Test
+    void updatedBookIsServedFromTheCacheWithItsNewValues() {
+        book.setTitle("Renamed cached book");
+        bookRepository.save(book);
+
+        List<String> statements = new CopyOnWriteArrayList<>();
+        LoanDTO created = recordStatements(statements, () -> loanService.createLoan(loan(LocalDate.now().plusDays(7))));
+
+        assertEquals("Renamed cached book", created.getBook().getTitle());
+        assertTrue(statements.stream().noneMatch(sql -> BOOK_OR_USER_SELECT.matcher(sql).find()), statements.toString());
+    }
+
+    private LoanDTO loan(LocalDate returnDate) {
+        return LoanDTO.builder()
+                .book(BookDTO.builder().id(book.getId()).build())
+                .user(UserDTO.builder().id(user.getId()).build())
+                .loanDate(LocalDate.now().minusDays(7))
+                .returnDate(returnDate)
+                .build();
+    }
+
+    private double hits(String region) {
+        return meterRegistry.get("cache.gets")
+                .tags("cache", region, "cache.manager", "hibernate", "result", "hit")
+                .functionCounter().count();
+    }
+
+    private static List<String> recordStatements(Runnable action) {
+        List<String> statements = new CopyOnWriteArrayList<>();
+        recordStatements(statements, () -> {
+            action.run();
+            return null;
+        });
+        return statements;
+    }
+
+    private static <T> T recordStatements(List<String> statements, Supplier<T> action) {
+        RecordingStatementInspector.statements = statements;
+        try {
+            return action.get();
+        } finally {
+            RecordingStatementInspector.statements = null;
+        }
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static volatile List<String> statements;
+
+        @Override
+        public String inspect(String sql) {
+            List<String> recording = statements;
+            if (recording != null) {
+                recording.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -4,23 +4,43 @@ import com.example.demo.book.dao.BookDAO;
 import com.example.demo.book.dto.BookDTO;
 import com.example.demo.book.exception.BookException;
 import com.example.demo.book.repository.BookRepository;
+import com.example.demo.cache.CollectionVersions;
+import com.example.demo.loan.dao.ActiveLoanDAO;
+import com.example.demo.loan.dao.HoldDAO;
 import com.example.demo.loan.dao.LoanDAO;
+import com.example.demo.loan.dto.LoanBatchResultDTO;
 import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.dto.LoanPartiesDTO;
+import com.example.demo.loan.event.LoanEvent;
 import com.example.demo.loan.exception.LoanException;
+import com.example.demo.loan.hold.HoldQueues;
+import com.example.demo.loan.lock.BookLockManager;
 import com.example.demo.loan.mapper.LoanMapper;
+import com.example.demo.loan.repository.ActiveLoanRepository;
+import com.example.demo.loan.repository.HoldRepository;
 import com.example.demo.loan.repository.LoanRepository;
+import com.example.demo.outbox.Outbox;
+import com.example.demo.outbox.OutboxEvent;
 import com.example.demo.user.dao.UserDAO;
 import com.example.demo.user.dto.UserDTO;
 import com.example.demo.user.exception.UserException;
 import com.example.demo.user.repository.UserRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -39,6 +59,33 @@ class LoanServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ActiveLoanRepository activeLoanRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private BookLockManager bookLockManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private HoldRepository holdRepository;
+
+    @Mock
+    private HoldQueues holdQueues;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
+    @Mock
+    private Outbox outbox;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private LoanServiceImpl loanService;
 
@@ -53,6 +100,9 @@ class LoanServiceImplTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
+        when(bookLockManager.withLock(any(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        ReflectionTestUtils.setField(loanService, "holdLoanDays", 14);
 
         exampleBook = BookDAO.builder()
                 .id(1L)
@@ -82,7 +132,7 @@ class LoanServiceImplTest {
 
     @Test
     void getLoans() {
-        when(loanRepository.findAll()).thenReturn(loanDAOList);
+        when(loanRepository.findAllWithBookAndUser()).thenReturn(loanDAOList);
 
         List<LoanDTO> result = loanService.getLoans();
 
@@ -90,6 +140,63 @@ class LoanServiceImplTest {
         assertEquals(loanDAOList.size(), result.size());
     }
 
+    @Test
+    void getLoansPage() {
+        when(loanRepository.findPageAfter(0L, Limit.of(20))).thenReturn(loanDAOList);
+
+        List<LoanDTO> result = loanService.getLoans(null, 20);
+
+        assertEquals(loanDAOList.size(), result.size());
+        assertEquals(exampleLoan.getId(), result.get(0).getId());
+    }
+
+    @Test
+    void getLoansPageInvalidLimit() {
+        LoanException exception = assertThrows(LoanException.class, () -> loanService.getLoans(0L, LoanServiceImpl.MAX_PAGE_SIZE + 1));
+
+        assertEquals(400, exception.getErr().getCode());
+        verify(loanRepository, never()).findPageAfter(any(), any());
+    }
+
+    @Test
+    void getOverdueLoans() {
+        when(loanRepository.findDuePageAfter(LocalDate.now(), LoanServiceImpl.FIRST_RETURN_DATE, 0L, Limit.of(20))).thenReturn(loanDAOList);
+
+        List<LoanDTO> result = loanService.getOverdueLoans(null, null, 20);
+
+        assertEquals(loanDAOList.size(), result.size());
+        assertEquals(RETURN_DATE, result.get(0).getReturnDate());
+    }
+
+    @Test
+    void getOverdueLoansAfterCursor() {
+        when(loanRepository.findDuePageAfter(LocalDate.now(), RETURN_DATE, 1L, Limit.of(20))).thenReturn(List.of());
+
+        List<LoanDTO> result = loanService.getOverdueLoans(RETURN_DATE, 1L, 20);
+
+        assertTrue(result.isEmpty());
+        verify(loanRepository).findDuePageAfter(LocalDate.now(), RETURN_DATE, 1L, Limit.of(20));
+    }
+
+    @Test
+    void getOverdueLoansInvalidLimit() {
+        LoanException exception = assertThrows(LoanException.class, () -> loanService.getOverdueLoans(null, null, 0));
+
+        assertEquals(400, exception.getErr().getCode());
+        verify(loanRepository, never()).findDuePageAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    void streamLoans() {
+        when(loanRepository.streamAllOrderById()).thenReturn(Stream.of(exampleLoan, exampleLoan));
+
+        List<LoanDTO> streamed = new ArrayList<>();
+        loanService.streamLoans(streamed::add);
+
+        assertEquals(2, streamed.size());
+        assertEquals(exampleBook.getId(), streamed.get(0).getBook().getId());
+    }
+
     @Test
     void getLoanById() {
         Long loanId = 1L;
@@ -112,7 +219,7 @@ class LoanServiceImplTest {
                 .returnDate(exampleLoan.getReturnDate())
                 .build();
 
-        when(loanRepository.findById(loanId)).thenReturn(Optional.of(exampleLoan));
+        when(loanRepository.findByIdWithBookAndUser(loanId)).thenReturn(Optional.of(exampleLoan));
         when(loanMapper.loanDAOToLoanDTO(exampleLoan)).thenReturn(loanDTO);
 
         LoanDTO result = loanService.getLoanById(loanId);
@@ -125,7 +232,7 @@ class LoanServiceImplTest {
     void getLoanByIdNotFoundException() {
         Long loanId = 1L;
 
-        when(loanRepository.findById(loanId)).thenReturn(Optional.empty());
+        when(loanRepository.findByIdWithBookAndUser(loanId)).thenReturn(Optional.empty());
 
         LoanException exception = assertThrows(LoanException.class, () -> loanService.getLoanById(loanId));
 
@@ -153,8 +260,7 @@ class LoanServiceImplTest {
                 .returnDate(exampleLoan.getReturnDate())
                 .build();
 
-        when(bookRepository.findById(exampleBook.getId())).thenReturn(Optional.of(exampleBook));
-        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+        givenLoanParties();
         when(loanMapper.loanDTOToLoanDAO(loanDTO)).thenReturn(exampleLoan);
         when(loanRepository.save(exampleLoan)).thenReturn(exampleLoan);
         when(loanMapper.loanDAOToLoanDTO(exampleLoan)).thenReturn(loanDTO);
@@ -163,6 +269,152 @@ class LoanServiceImplTest {
 
         assertNotNull(result);
         assertEquals(loanDTO, result);
+        verify(eventPublisher).publishEvent(LoanEvent.created(result));
+    }
+
+    @Test
+    void createLoanRegistersActiveLoan() {
+        LocalDate returnDate = LocalDate.now().plusDays(30);
+        exampleLoan.setReturnDate(returnDate);
+        LoanDTO loanDTO = LoanDTO.builder()
+                .book(BookDTO.builder().id(exampleBook.getId()).build())
+                .user(UserDTO.builder().id(exampleUser.getId()).build())
+                .loanDate(LocalDate.now())
+                .returnDate(returnDate)
+                .build();
+
+        givenLoanParties();
+        when(loanRepository.save(any(LoanDAO.class))).thenReturn(exampleLoan);
+
+        loanService.createLoan(loanDTO);
+
+        verify(entityManager).persist(new ActiveLoanDAO(exampleBook.getId(), exampleLoan.getId(), returnDate));
+        verify(entityManager).flush();
+    }
+
+    @Test
+    void createLoanBookAlreadyOnLoan() {
+        exampleLoan.setId(2L);
+        exampleLoan.setReturnDate(LocalDate.now().plusDays(30));
+        LoanDTO loanDTO = LoanDTO.builder()
+                .book(BookDTO.builder().id(exampleBook.getId()).build())
+                .user(UserDTO.builder().id(exampleUser.getId()).build())
+                .loanDate(LocalDate.now())
+                .returnDate(LocalDate.now().plusDays(30))
+                .build();
+        ActiveLoanDAO activeLoan = new ActiveLoanDAO(exampleBook.getId(), 1L, LocalDate.now().plusDays(10));
+
+        givenLoanParties();
+        when(loanRepository.save(any(LoanDAO.class))).thenReturn(exampleLoan);
+        when(activeLoanRepository.findByBookIdForUpdate(exampleBook.getId())).thenReturn(Optional.of(activeLoan));
+
+        LoanException exception = assertThrows(LoanException.class, () -> loanService.createLoan(loanDTO));
+
+        assertEquals(400, exception.getErr().getCode());
+        verify(activeLoanRepository, never()).saveAndFlush(any());
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void createLoanRejectsAnOverdueBookThatWasNotReturned() {
+        LocalDate returnDate = LocalDate.now().plusDays(30);
+        exampleLoan.setId(2L);
+        exampleLoan.setReturnDate(returnDate);
+        LoanDTO loanDTO = LoanDTO.builder()
+                .book(BookDTO.builder().id(exampleBook.getId()).build())
+                .user(UserDTO.builder().id(exampleUser.getId()).build())
+                .loanDate(LocalDate.now())
+                .returnDate(returnDate)
+                .build();
+        ActiveLoanDAO overdueLoan = new ActiveLoanDAO(exampleBook.getId(), 1L, LocalDate.now().minusDays(1));
+
+        givenLoanParties();
+        when(loanRepository.save(any(LoanDAO.class))).thenReturn(exampleLoan);
+        when(activeLoanRepository.findByBookIdForUpdate(exampleBook.getId())).thenReturn(Optional.of(overdueLoan));
+
+        LoanException exception = assertThrows(LoanException.class, () -> loanService.createLoan(loanDTO));
+
+        assertEquals(400, exception.getErr().getCode());
+        verify(activeLoanRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createLoanWithAPastReturnDateHoldsTheBook() {
+        LocalDate returnDate = LocalDate.now().minusDays(1);
+        exampleLoan.setId(2L);
+        exampleLoan.setReturnDate(returnDate);
+        LoanDTO loanDTO = LoanDTO.builder()
+                .book(BookDTO.builder().id(exampleBook.getId()).build())
+                .user(UserDTO.builder().id(exampleUser.getId()).build())
+                .loanDate(LocalDate.now().minusDays(15))
+                .returnDate(returnDate)
+                .build();
+
+        givenLoanParties();
+        when(loanRepository.save(any(LoanDAO.class))).thenReturn(exampleLoan);
+        when(activeLoanRepository.findByBookIdForUpdate(exampleBook.getId())).thenReturn(Optional.empty());
+
+        loanService.createLoan(loanDTO);
+
+        verify(entityManager).persist(new ActiveLoanDAO(exampleBook.getId(), 2L, returnDate));
+    }
+
+    @Test
+    void createLoans() {
+        LocalDate returnDate = LocalDate.now().plusDays(30);
+        BookDAO otherBook = BookDAO.builder().id(2L).title("Book 2").build();
+        LoanDTO validLoan = batchLoan(exampleBook.getId(), exampleUser.getId(), returnDate);
+        LoanDTO sameBookLoan = batchLoan(exampleBook.getId(), exampleUser.getId(), returnDate);
+        LoanDTO missingUserLoan = batchLoan(otherBook.getId(), 99L, returnDate);
+        LoanDTO invalidLoan = batchLoan(otherBook.getId(), exampleUser.getId(), null);
+
+        when(bookRepository.findAllById(anySet())).thenReturn(List.of(exampleBook, otherBook));
+        when(userRepository.findAllById(anySet())).thenReturn(List.of(exampleUser));
+        when(activeLoanRepository.findAllByBookIdsForUpdate(anySet())).thenReturn(List.of());
+        when(loanRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<LoanDAO> loans = invocation.getArgument(0);
+            loans.forEach(loan -> loan.setId(42L));
+            return new ArrayList<>(loans);
+        });
+
+        List<LoanBatchResultDTO> results = loanService.createLoans(List.of(validLoan, sameBookLoan, missingUserLoan, invalidLoan));
+
+        assertEquals(4, results.size());
+        assertEquals(201, results.get(0).getStatus());
+        assertEquals(42L, results.get(0).getLoan().getId());
+        assertEquals(400, results.get(1).getStatus());
+        assertEquals(404, results.get(2).getStatus());
+        assertEquals("User not found with id: 99", results.get(2).getError().getMessage());
+        assertEquals(400, results.get(3).getStatus());
+        assertEquals("The return date cannot be empty", results.get(3).getError().getMessage());
+        verify(entityManager).persist(new ActiveLoanDAO(exampleBook.getId(), 42L, returnDate));
+    }
+
+    private void givenLoanParties() {
+        LoanPartiesDTO parties = new LoanPartiesDTO(
+                new BookDTO(exampleBook.getId(), exampleBook.getTitle(), exampleBook.getAuthor(), exampleBook.getIsbn(),
+                        exampleBook.getPublicationDate()),
+                new UserDTO(exampleUser.getId(), exampleUser.getName(), exampleUser.getPhoneNumber(),
+                        exampleUser.getRegistrationDate()));
+        when(loanRepository.findLoanParties(exampleBook.getId(), exampleUser.getId())).thenReturn(Optional.of(parties));
+        when(bookRepository.getReferenceById(exampleBook.getId())).thenReturn(exampleBook);
+        when(userRepository.getReferenceById(exampleUser.getId())).thenReturn(exampleUser);
+    }
+
+    private static LoanDTO batchLoan(Long bookId, Long userId, LocalDate returnDate) {
+        return LoanDTO.builder()
+                .book(BookDTO.builder().id(bookId).build())
+                .user(UserDTO.builder().id(userId).build())
+                .loanDate(LocalDate.now())
+                .returnDate(returnDate)
+                .build();
+    }
+
+    @Test
+    void createLoansEmptyBatch() {
+        LoanException exception = assertThrows(LoanException.class, () -> loanService.createLoans(List.of()));
+
+        assertEquals(400, exception.getErr().getCode());
     }
 
     @Test
@@ -185,7 +437,8 @@ class LoanServiceImplTest {
                 .returnDate(exampleLoan.getReturnDate())
                 .build();
 
-        when(bookRepository.findById(exampleBook.getId())).thenReturn(Optional.empty());
+        when(loanRepository.findLoanParties(exampleBook.getId(), exampleUser.getId())).thenReturn(Optional.empty());
+        when(bookRepository.existsById(exampleBook.getId())).thenReturn(false);
 
         BookException exception = assertThrows(BookException.class, () -> loanService.createLoan(loanDTO));
 
@@ -212,8 +465,8 @@ class LoanServiceImplTest {
                 .returnDate(exampleLoan.getReturnDate())
                 .build();
 
-        when(bookRepository.findById(exampleBook.getId())).thenReturn(Optional.of(exampleBook));
-        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.empty());
+        when(loanRepository.findLoanParties(exampleBook.getId(), exampleUser.getId())).thenReturn(Optional.empty());
+        when(bookRepository.existsById(exampleBook.getId())).thenReturn(true);
 
         UserException exception = assertThrows(UserException.class, () -> loanService.createLoan(loanDTO));
 
@@ -243,15 +496,15 @@ class LoanServiceImplTest {
                 .build();
 
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(exampleLoan));
-        when(bookRepository.findById(exampleBook.getId())).thenReturn(Optional.of(exampleBook));
-        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
-        when(loanRepository.save(exampleLoan)).thenReturn(exampleLoan);
+        givenLoanParties();
+        when(loanRepository.saveAndFlush(exampleLoan)).thenReturn(exampleLoan);
         when(loanMapper.loanDAOToLoanDTO(exampleLoan)).thenReturn(loanDTO);
 
         LoanDTO result = loanService.updateLoan(loanId, loanDTO);
 
         assertNotNull(result);
         assertEquals(loanDTO, result);
+        verify(eventPublisher).publishEvent(LoanEvent.updated(result));
     }
 
     @Test
@@ -306,7 +559,8 @@ class LoanServiceImplTest {
                 .build();
 
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(exampleLoan));
-        when(bookRepository.findById(exampleBook.getId())).thenReturn(Optional.empty());
+        when(loanRepository.findLoanParties(exampleBook.getId(), exampleUser.getId())).thenReturn(Optional.empty());
+        when(bookRepository.existsById(exampleBook.getId())).thenReturn(false);
 
         BookException exception = assertThrows(BookException.class, () -> loanService.updateLoan(loanId, loanDTO));
 
@@ -336,8 +590,8 @@ class LoanServiceImplTest {
                 .build();
 
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(exampleLoan));
-        when(bookRepository.findById(exampleBook.getId())).thenReturn(Optional.of(exampleBook));
-        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.empty());
+        when(loanRepository.findLoanParties(exampleBook.getId(), exampleUser.getId())).thenReturn(Optional.empty());
+        when(bookRepository.existsById(exampleBook.getId())).thenReturn(true);
 
         UserException exception = assertThrows(UserException.class, () -> loanService.updateLoan(loanId, loanDTO));
 
@@ -351,7 +605,7 @@ class LoanServiceImplTest {
         Map<String, Object> updates = Map.of("loanDate", newLoanDate);
 
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(exampleLoan));
-        when(loanRepository.save(any(LoanDAO.class))).thenReturn(exampleLoan);
+        when(loanRepository.saveAndFlush(any(LoanDAO.class))).thenReturn(exampleLoan);
 
         LoanDTO result = loanService.partiallyUpdateLoan(loanId, updates);
 
@@ -366,7 +620,7 @@ class LoanServiceImplTest {
         Map<String, Object> updates = Map.of("returnDate", newReturnDate);
 
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(exampleLoan));
-        when(loanRepository.save(any(LoanDAO.class))).thenReturn(exampleLoan);
+        when(loanRepository.saveAndFlush(any(LoanDAO.class))).thenReturn(exampleLoan);
 
         LoanDTO result = loanService.partiallyUpdateLoan(loanId, updates);
 
@@ -383,7 +637,7 @@ class LoanServiceImplTest {
 
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(exampleLoan));
         when(bookRepository.findById(newBookId)).thenReturn(Optional.of(newBook));
-        when(loanRepository.save(any(LoanDAO.class))).thenReturn(exampleLoan);
+        when(loanRepository.saveAndFlush(any(LoanDAO.class))).thenReturn(exampleLoan);
 
         LoanDTO result = loanService.partiallyUpdateLoan(loanId, updates);
 
@@ -400,7 +654,7 @@ class LoanServiceImplTest {
 
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(exampleLoan));
         when(userRepository.findById(newUserId)).thenReturn(Optional.of(newUser));
-        when(loanRepository.save(any(LoanDAO.class))).thenReturn(exampleLoan);
+        when(loanRepository.saveAndFlush(any(LoanDAO.class))).thenReturn(exampleLoan);
 
         LoanDTO result = loanService.partiallyUpdateLoan(loanId, updates);
 
@@ -429,7 +683,10 @@ class LoanServiceImplTest {
 
         assertDoesNotThrow(() -> loanService.deleteLoan(loanId));
 
+        verify(activeLoanRepository, times(1)).deleteByLoanId(loanId);
         verify(loanRepository, times(1)).deleteById(loanId);
+        verify(outbox).record(OutboxEvent.LOAN, loanId, OutboxEvent.DELETED, null);
+        verify(eventPublisher).publishEvent(LoanEvent.deleted(loanId));
     }
 
     @Test
@@ -442,6 +699,123 @@ class LoanServiceImplTest {
 
         assertEquals("Loan not found with id: " + loanId, exception.getErr().getMessage());
         verify(loanRepository, never()).deleteById(loanId);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void returnLoanWithoutHolds() {
+        exampleLoan.setReturnDate(LocalDate.now().plusDays(10));
+        ActiveLoanDAO activeLoan = new ActiveLoanDAO(exampleBook.getId(), exampleLoan.getId(), exampleLoan.getReturnDate());
+        when(loanRepository.findBookIdById(1L)).thenReturn(Optional.of(exampleBook.getId()));
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(exampleLoan));
+        when(activeLoanRepository.findByBookIdForUpdate(exampleBook.getId())).thenReturn(Optional.of(activeLoan));
+        when(loanRepository.saveAndFlush(exampleLoan)).thenReturn(exampleLoan);
+
+        LoanDTO result = loanService.returnLoan(1L);
+
+        assertEquals(LocalDate.now(), result.getReturnDate());
+        verify(activeLoanRepository).delete(activeLoan);
+        verify(holdQueues).next(exampleBook.getId());
+        verify(loanRepository, never()).save(any());
+        verify(holdQueues, never()).removed(any(), any());
+        verify(eventPublisher).publishEvent(LoanEvent.returned(result));
+    }
+
+    @Test
+    void returnLoanPromotesTheNextHold() {
+        UserDAO holder = UserDAO.builder().id(2L).name("User 2").phoneNumber("0987654321")
+                .registrationDate(LocalDate.of(2021, 1, 1)).build();
+        HoldDAO hold = HoldDAO.builder().id(5L).book(exampleBook).user(holder).build();
+        ActiveLoanDAO activeLoan = new ActiveLoanDAO(exampleBook.getId(), exampleLoan.getId(), exampleLoan.getReturnDate());
+        when(loanRepository.findBookIdById(1L)).thenReturn(Optional.of(exampleBook.getId()));
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(exampleLoan));
+        // The second lookup is the promoted loan claiming the book
+        when(activeLoanRepository.findByBookIdForUpdate(exampleBook.getId())).thenReturn(Optional.of(activeLoan), Optional.empty());
+        when(loanRepository.saveAndFlush(exampleLoan)).thenReturn(exampleLoan);
+        when(holdQueues.next(exampleBook.getId())).thenReturn(5L);
+        when(holdRepository.findById(5L)).thenReturn(Optional.of(hold));
+        when(loanRepository.findLoanParties(exampleBook.getId(), holder.getId())).thenReturn(Optional.of(new LoanPartiesDTO(
+                BookDTO.builder().id(exampleBook.getId()).build(), UserDTO.builder().id(holder.getId()).build())));
+        when(bookRepository.getReferenceById(exampleBook.getId())).thenReturn(exampleBook);
+        when(userRepository.getReferenceById(holder.getId())).thenReturn(holder);
+        when(loanRepository.save(any(LoanDAO.class))).thenAnswer(invocation -> {
+            LoanDAO promotedLoan = invocation.getArgument(0);
+            promotedLoan.setId(2L);
+            return promotedLoan;
+        });
+
+        LoanDTO result = loanService.returnLoan(1L);
+
+        // Already overdue, so the loan keeps its return date
+        assertEquals(RETURN_DATE, result.getReturnDate());
+        verify(holdRepository).delete(hold);
+        verify(loanRepository).save(argThat(loan -> loan.getUser() == holder
+                && loan.getLoanDate().equals(LocalDate.now()) && loan.getReturnDate().equals(LocalDate.now().plusDays(14))));
+        verify(entityManager).persist(new ActiveLoanDAO(exampleBook.getId(), 2L, LocalDate.now().plusDays(14)));
+        verify(holdQueues).removed(exampleBook.getId(), 5L);
+        verify(eventPublisher).publishEvent(LoanEvent.returned(result));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof LoanEvent loanEvent
+                && loanEvent.type().equals(LoanEvent.CREATED) && loanEvent.loanId().equals(2L)));
+    }
+
+    @Test
+    void returnLoanOverdue() {
+        LocalDate returnDate = LocalDate.now().minusDays(3);
+        exampleLoan.setReturnDate(returnDate);
+        ActiveLoanDAO activeLoan = new ActiveLoanDAO(exampleBook.getId(), exampleLoan.getId(), returnDate);
+        when(loanRepository.findBookIdById(1L)).thenReturn(Optional.of(exampleBook.getId()));
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(exampleLoan));
+        when(activeLoanRepository.findByBookIdForUpdate(exampleBook.getId())).thenReturn(Optional.of(activeLoan));
+        when(loanRepository.saveAndFlush(exampleLoan)).thenReturn(exampleLoan);
+
+        LoanDTO result = loanService.returnLoan(1L);
+
+        assertEquals(returnDate, result.getReturnDate());
+        assertEquals(LocalDate.now(), exampleLoan.getReturnedAt());
+        verify(activeLoanRepository).delete(activeLoan);
+    }
+
+    @Test
+    void updateLoanOfAReturnedLoanDoesNotClaimTheBook() {
+        exampleLoan.setReturnedAt(LocalDate.now().minusDays(1));
+        LoanDTO loanDTO = LoanDTO.builder()
+                .book(BookDTO.builder().id(exampleBook.getId()).build())
+                .user(UserDTO.builder().id(exampleUser.getId()).build())
+                .loanDate(LocalDate.now())
+                .returnDate(LocalDate.now().plusDays(30))
+                .build();
+        givenLoanParties();
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(exampleLoan));
+        when(loanRepository.saveAndFlush(exampleLoan)).thenReturn(exampleLoan);
+
+        loanService.updateLoan(1L, loanDTO);
+
+        verify(activeLoanRepository, never()).findByBookIdForUpdate(any());
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void returnLoanAlreadyReturned() {
+        exampleLoan.setReturnedAt(LocalDate.now().minusDays(1));
+        when(loanRepository.findBookIdById(1L)).thenReturn(Optional.of(exampleBook.getId()));
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(exampleLoan));
+        when(activeLoanRepository.findByBookIdForUpdate(exampleBook.getId()))
+                .thenReturn(Optional.of(new ActiveLoanDAO(exampleBook.getId(), 7L, RETURN_DATE)));
+
+        LoanException exception = assertThrows(LoanException.class, () -> loanService.returnLoan(1L));
+
+        assertEquals(400, exception.getErr().getCode());
+        verify(activeLoanRepository, never()).delete(any());
+        verify(holdQueues, never()).next(any());
+    }
+
+    @Test
+    void returnLoanNotFoundException() {
+        when(loanRepository.findBookIdById(1L)).thenReturn(Optional.empty());
+
+        LoanException exception = assertThrows(LoanException.class, () -> loanService.returnLoan(1L));
+
+        assertEquals(404, exception.getErr().getCode());
     }
 
     @Test
@@ -0,0 +1,64 @@
+package com.example.demo.loan.sweep;
+
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dto.UserDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class OverdueLoanSweepTest {
+
+    private static final LocalDate DAY_1 = LocalDate.of(2024, 3, 1);
+    private static final LocalDate DAY_2 = LocalDate.of(2024, 3, 2);
+
+    @Mock
+    private LoanService loanService;
+
+    private OverdueLoanSweep overdueLoanSweep;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        overdueLoanSweep = new OverdueLoanSweep(loanService, 2);
+    }
+
+    @Test
+    void sweepReadsTheBacklogInChunks() {
+        when(loanService.getOverdueLoans(null, null, 2)).thenReturn(List.of(loan(1L, DAY_1), loan(4L, DAY_1)));
+        when(loanService.getOverdueLoans(DAY_1, 4L, 2)).thenReturn(List.of(loan(2L, DAY_2)));
+
+        assertEquals(3, overdueLoanSweep.sweep());
+        assertEquals(3, overdueLoanSweep.getOverdueLoans());
+        verify(loanService, times(2)).getOverdueLoans(any(), any(), eq(2));
+    }
+
+    @Test
+    void sweepStartsFromTheWatermarkOfThePreviousRun() {
+        when(loanService.getOverdueLoans(null, null, 2)).thenReturn(List.of(loan(1L, DAY_1)));
+        when(loanService.getOverdueLoans(DAY_1, 1L, 2)).thenReturn(List.of());
+        overdueLoanSweep.sweep();
+
+        assertEquals(0, overdueLoanSweep.sweep());
+        assertEquals(1, overdueLoanSweep.getOverdueLoans());
+        verify(loanService).getOverdueLoans(DAY_1, 1L, 2);
+    }
+
+    private static LoanDTO loan(Long id, LocalDate returnDate) {
+        return LoanDTO.builder()
+                .id(id)
+                .book(BookDTO.builder().id(id).build())
+                .user(UserDTO.builder().id(id).build())
+                .loanDate(returnDate.minusDays(30))
+                .returnDate(returnDate)
+                .build();
+    }
+}
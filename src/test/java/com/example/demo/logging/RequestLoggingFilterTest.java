@@ -0,0 +1,184 @@
+package com.example.demo.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.example.demo.book.controller.BookController;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.exception.BookException;
+import com.example.demo.book.service.BookService;
+import com.example.demo.exceptions.models.ExceptionEntity;
+import com.example.demo.loan.controller.LoanController;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.event.LoanEventBroadcaster;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.controller.UserController;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = {BookController.class, UserController.class, LoanController.class})
+class RequestLoggingFilterTest {
+
+    private static final int SIZE = 50;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookService bookService;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private LoanService loanService;
+
+    @MockBean
+    private LoanEventBroadcaster loanEventBroadcaster;
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger(RequestLoggingFilter.class).addAppender(appender);
+        for (Class<?> controller : List.of(BookController.class, UserController.class, LoanController.class)) {
+            logger(controller).setLevel(Level.INFO);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger(RequestLoggingFilter.class).detachAppender(appender);
+        for (Class<?> controller : List.of(BookController.class, UserController.class, LoanController.class)) {
+            logger(controller).setLevel(null);
+        }
+    }
+
+    @Test
+    void listRequestsLogStatusCountAndLatency() throws Exception {
+        when(bookService.getBooks()).thenReturn(books());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, appender.list.size());
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.startsWith("method=GET path=/books status=200 count=" + SIZE + " latencyUs="), line);
+    }
+
+    @Test
+    void singleEntityErrorsLogStatusWithoutCount() throws Exception {
+        when(bookService.getBookById(anyLong())).thenThrow(new BookException(new ExceptionEntity(501, "Book not found with id: 1")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1"))
+                .andExpect(status().isNotFound());
+
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.startsWith("method=GET path=/books/1 status=404 latencyUs="), line);
+    }
+
+    @Test
+    void infoLevelListCallsDoNotRenderElements() throws Exception {
+        when(bookService.getBooks()).thenReturn(books());
+        when(userService.getUsers()).thenReturn(users());
+        when(loanService.getLoans()).thenReturn(loans());
+
+        for (String path : List.of("/books", "/users", "/loans")) {
+            mockMvc.perform(MockMvcRequestBuilders.get(path))
+                    .andExpect(status().isOk());
+        }
+
+        assertEquals(0, renders.get());
+    }
+
+    @Test
+    void debugLevelRendersElementsOnlyWhenEnabled() throws Exception {
+        when(loanService.getLoans()).thenReturn(loans());
+        logger(LoanController.class).setLevel(Level.DEBUG);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/loans"))
+                .andExpect(status().isOk());
+
+        assertTrue(renders.get() >= SIZE);
+    }
+
+    private static Logger logger(Class<?> type) {
+        return (Logger) LoggerFactory.getLogger(type);
+    }
+
+    // DTOs that count their toString() calls, the cost eager payload logging used to pay on every element
+
+    private List<BookDTO> books() {
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 1; i <= SIZE; i++) {
+            books.add(book(i));
+        }
+        return books;
+    }
+
+    private List<UserDTO> users() {
+        List<UserDTO> users = new ArrayList<>();
+        for (int i = 1; i <= SIZE; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+
+    private List<LoanDTO> loans() {
+        List<LoanDTO> loans = new ArrayList<>();
+        for (int i = 1; i <= SIZE; i++) {
+            loans.add(new LoanDTO((long) i, book(i), user(i), LocalDate.now(), LocalDate.now().plusDays(30)) {
+                @Override
+                public String toString() {
+                    renders.incrementAndGet();
+                    return super.toString();
+                }
+            });
+        }
+        return loans;
+    }
+
+    private BookDTO book(int i) {
+        return new BookDTO((long) i, "Book " + i, "Author " + i, "ISBN " + i, LocalDate.now()) {
+            @Override
+            public String toString() {
+                renders.incrementAndGet();
+                return super.toString();
+            }
+        };
+    }
+
+    private UserDTO user(int i) {
+        return new UserDTO((long) i, "User " + i, "600000000", LocalDate.now()) {
+            @Override
+            public String toString() {
+                renders.incrementAndGet();
+                return super.toString();
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.metrics;
+
+import com.example.demo.book.exception.BookException;
+import com.example.demo.book.service.BookService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metrics",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void serviceMethodsAreTimed() {
+        bookService.getBooks();
+
+        assertTrue(meterRegistry.get("library.service")
+                .tag("class", "com.example.demo.book.service.impl.BookServiceImpl")
+                .tag("method", "getBooks")
+                .timer().count() >= 1);
+    }
+
+    @Test
+    void domainExceptionsAreCountedByCode() {
+        double before = domainExceptions("BookException", "501");
+
+        assertThrows(BookException.class, () -> bookService.getBookById(-1L));
+
+        assertEquals(before + 1, domainExceptions("BookException", "501"));
+    }
+
+    @Test
+    void prometheusExposesLatencyHistograms() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/books"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+                .andExpect(content().string(containsString("library_service_seconds_bucket{")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket{")))
+                .andExpect(content().string(containsString("hikaricp_connections_acquire_seconds")));
+    }
+
+    private double domainExceptions(String exception, String code) {
+        Counter counter = meterRegistry.find(DomainExceptionMetrics.METRIC_NAME).tag("exception", exception).tag("code", code).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboxDispatcherTest {
+
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<List<OutboxEvent>> sent = new ArrayList<>();
+
+    private final List<OutboxEventDAO> outbox = new ArrayList<>();
+
+    private boolean failing;
+
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        // The repository mock behaves like the table: oldest first, delivered rows deleted
+        when(outboxEventRepository.findByOrderByIdAsc(any(Limit.class))).thenAnswer(invocation ->
+                List.copyOf(outbox.subList(0, Math.min(outbox.size(), ((Limit) invocation.getArgument(0)).max()))));
+        doAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            outbox.removeIf(event -> ids.contains(event.getId()));
+            return null;
+        }).when(outboxEventRepository).deleteAllByIdInBatch(any());
+        OutboxSink sink = events -> {
+            if (failing) {
+                throw new IOException("Sink unavailable");
+            }
+            sent.add(events);
+        };
+        dispatcher = new OutboxDispatcher(outboxEventRepository, sink, 3, meterRegistry);
+    }
+
+    @Test
+    void eventsAreDeliveredInBatchesOldestFirst() {
+        waiting(1, 7);
+
+        assertEquals(7, dispatcher.dispatch());
+
+        assertEquals(List.of(3, 3, 1), sent.stream().map(List::size).toList());
+        assertEquals(LongStream.rangeClosed(1, 7).boxed().toList(),
+                sent.stream().flatMap(List::stream).map(OutboxEvent::id).toList());
+        assertTrue(outbox.isEmpty());
+        assertEquals(7.0, meterRegistry.get("library.outbox.delivered").counter().count());
+        assertEquals(7, meterRegistry.get("library.outbox.delivery").timer().count());
+    }
+
+    @Test
+    void anEmptyOutboxSendsNothing() {
+        assertEquals(0, dispatcher.dispatch());
+
+        assertTrue(sent.isEmpty());
+        verify(outboxEventRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void aFailedBatchStaysInTheOutboxUntilTheSinkTakesIt() {
+        waiting(1, 2);
+        failing = true;
+
+        assertEquals(0, dispatcher.dispatch());
+
+        assertEquals(2, outbox.size());
+        assertEquals(1.0, meterRegistry.get("library.outbox.failures").counter().count());
+        assertTrue(meterRegistry.get("library.outbox.lag").timeGauge().value(TimeUnit.SECONDS) >= 60);
+
+        failing = false;
+        assertEquals(2, dispatcher.dispatch());
+
+        assertEquals(List.of(1L, 2L), sent.get(0).stream().map(OutboxEvent::id).toList());
+        assertTrue(outbox.isEmpty());
+        assertEquals(0.0, meterRegistry.get("library.outbox.lag").timeGauge().value(TimeUnit.SECONDS));
+    }
+
+    /**
+     * Puts events with the given ids in the outbox, written a minute ago.
+     */
+    private void waiting(long firstId, long lastId) {
+        LongStream.rangeClosed(firstId, lastId).forEach(id -> outbox.add(OutboxEventDAO.builder()
+                .id(id)
+                .aggregateType(OutboxEvent.BOOK)
+                .aggregateId(id)
+                .eventType(OutboxEvent.CREATED)
+                .payload("{\"id\":" + id + "}")
+                .createdAt(LocalDateTime.now().minusMinutes(1))
+                .build()));
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.demo.outbox;
+
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.exception.BookException;
+import com.example.demo.book.service.BookService;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.IllegalTransactionStateException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Changes against the database, delivered to the file sink: only committed changes are recorded, and the
+ * dispatcher appends them to the file in order and empties the outbox.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox",
+        "spring.jpa.show-sql=false",
+        "app.outbox.sink=file",
+        "app.outbox.linger=1h"
+})
+class OutboxIntegrationTest {
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void outboxFile(DynamicPropertyRegistry registry) {
+        registry.add("app.outbox.file", () -> dataDir.resolve("outbox.ndjson").toString());
+    }
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        outboxDispatcher.dispatch();
+    }
+
+    @Test
+    void changesAreDeliveredToTheFileInOrder() throws Exception {
+        UserDTO user = userService.createUser(UserDTO.builder().name("Outbox user").phoneNumber("600000000")
+                .registrationDate(LocalDate.now()).build());
+        userService.partiallyUpdateUser(user.getId(), Map.of("name", "Renamed outbox user"));
+        userService.deleteUser(user.getId());
+
+        assertEquals(3, outboxDispatcher.dispatch());
+
+        List<JsonNode> events = delivered(OutboxEvent.USER, user.getId());
+        assertEquals(List.of("created", "updated", "deleted"), events.stream().map(event -> event.get("eventType").asText()).toList());
+        assertEquals("Renamed outbox user", events.get(1).get("payload").get("name").asText());
+        assertTrue(events.get(2).get("payload").isNull());
+        assertTrue(outboxEventRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void rolledBackChangesAreNotRecorded() throws Exception {
+        BookDTO book = bookService.createBook(new BookDTO(null, "Outbox book", "Author", "OUTBOX-1", LocalDate.now()));
+
+        assertThrows(BookException.class,
+                () -> bookService.createBook(new BookDTO(null, "Same ISBN", "Author", "OUTBOX-1", LocalDate.now())));
+
+        List<OutboxEventDAO> recorded = outboxEventRepository.findAll();
+        assertEquals(1, recorded.size());
+        assertEquals(book.getId(), recorded.get(0).getAggregateId());
+        outboxDispatcher.dispatch();
+        assertEquals(1, delivered(OutboxEvent.BOOK, book.getId()).size());
+    }
+
+    @Test
+    void loanChangesAreRecordedFromTheirEvents() throws Exception {
+        BookDTO book = bookService.createBook(new BookDTO(null, "Lent book", "Author", "OUTBOX-2", LocalDate.now()));
+        UserDTO user = userService.createUser(UserDTO.builder().name("Borrower").phoneNumber("600000000")
+                .registrationDate(LocalDate.now()).build());
+
+        LoanDTO loan = loanService.createLoan(LoanDTO.builder()
+                .book(BookDTO.builder().id(book.getId()).build())
+                .user(UserDTO.builder().id(user.getId()).build())
+                .loanDate(LocalDate.now())
+                .returnDate(LocalDate.now().plusDays(14))
+                .build());
+        loanService.returnLoan(loan.getId());
+        outboxDispatcher.dispatch();
+
+        List<JsonNode> events = delivered(OutboxEvent.LOAN, loan.getId());
+        assertEquals(List.of("created", "returned"), events.stream().map(event -> event.get("eventType").asText()).toList());
+        assertEquals(book.getId(), events.get(0).get("payload").get("book").get("id").asLong());
+    }
+
+    @Test
+    void recordingNeedsTheTransactionOfTheChange() {
+        assertThrows(IllegalTransactionStateException.class,
+                () -> outbox.record(OutboxEvent.BOOK, 1L, OutboxEvent.UPDATED, null));
+    }
+
+    private List<JsonNode> delivered(String aggregateType, Long aggregateId) throws Exception {
+        List<JsonNode> events = new ArrayList<>();
+        for (String line : Files.readAllLines(dataDir.resolve("outbox.ndjson"))) {
+            JsonNode event = objectMapper.readTree(line);
+            if (event.get("aggregateType").asText().equals(aggregateType) && event.get("aggregateId").asLong() == aggregateId) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.seed;
+
+import com.example.demo.book.dao.BookDAO;
+import com.example.demo.book.dto.BookDTO;
+import com.example.demo.book.repository.BookRepository;
+import com.example.demo.loan.dto.LoanDTO;
+import com.example.demo.loan.service.LoanService;
+import com.example.demo.user.dto.UserDTO;
+import com.example.demo.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk-seed",
+        "spring.jpa.show-sql=false",
+        "app.seed.enabled=true",
+        "app.seed.users=3000",
+        "app.seed.books=2000",
+        "app.seed.loans=12000",
+        "app.seed.chunk-size=700",
+        "app.seed.threads=3"
+})
+class BulkDataSeederTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void seedsTheConfiguredNumberOfRowsInsteadOfTheDemoData() {
+        assertEquals(3000, count("SELECT COUNT(*) FROM users"));
+        assertEquals(2000, count("SELECT COUNT(*) FROM books"));
+        assertEquals(12000, count("SELECT COUNT(*) FROM loans"));
+        assertEquals(0, count("SELECT COUNT(*) FROM books WHERE title LIKE 'Book %'"));
+    }
+
+    @Test
+    void everyRunningLoanAndOnlyThoseAreInTheAvailabilityIndex() {
+        long running = count("SELECT COUNT(*) FROM loans WHERE return_date > CURRENT_DATE");
+
+        assertTrue(running > 0);
+        assertEquals(running, count("SELECT COUNT(*) FROM active_loans"));
+        assertEquals(running, count("SELECT COUNT(*) FROM active_loans a JOIN loans l ON l.id = a.loan_id "
+                + "WHERE l.book_id = a.book_id AND l.return_date = a.return_date AND l.return_date > CURRENT_DATE"));
+    }
+
+    @Test
+    void everyLoanThatIsNotRunningIsReturned() {
+        assertEquals(count("SELECT COUNT(*) FROM active_loans"), count("SELECT COUNT(*) FROM loans WHERE returned_at IS NULL"));
+        assertEquals(0, count("SELECT COUNT(*) FROM loans WHERE returned_at IS NOT NULL AND returned_at <> return_date"));
+    }
+
+    @Test
+    void loansAreSkewedTowardsPopularBooks() {
+        long busiestBook = count("SELECT MAX(c) FROM (SELECT COUNT(*) c FROM loans GROUP BY book_id)");
+
+        // A uniform draw would give each book 6 loans; rank 1 of a Zipf(1) distribution over 2000 books takes about 12%
+        assertTrue(busiestBook > 500, "busiest book has " + busiestBook + " loans");
+    }
+
+    @Test
+    @Transactional
+    void jpaKeepsAllocatingIdsAfterTheSeededOnes() {
+        BookDAO book = bookRepository.save(BookDAO.builder()
+                .title("After seeding").author("Author").isbn("AFTERSEED").publicationDate(LocalDate.now()).build());
+        Long userId = userRepository.findAll().get(0).getId();
+
+        LoanDTO loan = loanService.createLoan(LoanDTO.builder()
+                .book(BookDTO.builder().id(book.getId()).build())
+                .user(UserDTO.builder().id(userId).build())
+                .loanDate(LocalDate.now())
+                .returnDate(LocalDate.now().plusDays(7))
+                .build());
+
+        assertTrue(book.getId() > 2000);
+        assertNotNull(loan.getId());
+        assertTrue(loan.getId() > 12000);
+    }
+
+    @Test
+    void isbnsAreValidIsbn13() {
+        assertEquals("9780000000019", BulkDataSeeder.isbn(1));
+        assertEquals("9780306406157", BulkDataSeeder.isbn(30640615));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
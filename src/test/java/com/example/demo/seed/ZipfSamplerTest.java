@@ -0,0 +1,39 @@
+package com.example.demo.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZipfSamplerTest {
+
+    @Test
+    void drawsRanksInProportionToTheirZipfWeight() {
+        ZipfSampler sampler = new ZipfSampler(100, 1.0);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] draws = new int[100];
+        for (int i = 0; i < 200_000; i++) {
+            draws[sampler.sample(random)]++;
+        }
+
+        // Rank 1 should be drawn about twice as often as rank 2 and ten times as often as rank 10
+        assertEquals(2.0, (double) draws[0] / draws[1], 0.1);
+        assertEquals(10.0, (double) draws[0] / draws[9], 1.0);
+        assertTrue(draws[99] > 0);
+    }
+
+    @Test
+    void singleRankIsAlwaysDrawn() {
+        ZipfSampler sampler = new ZipfSampler(1, 1.0);
+
+        assertEquals(0, sampler.sample(new SplittableRandom(1)));
+    }
+
+    @Test
+    void rejectsAnEmptyDistribution() {
+        assertThrows(IllegalArgumentException.class, () -> new ZipfSampler(0, 1.0));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.user.controller;
 
+import com.example.demo.user.dao.UserDAO;
 import com.example.demo.user.dto.UserDTO;
 import com.example.demo.user.exception.UserException;
 import com.example.demo.user.service.UserService;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
@@ -147,6 +149,20 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message", is("User not found with id: " + userId)));
     }
 
+    @Test
+    void updateUserModifiedConcurrently() throws Exception {
+        Long userId = 1L;
+
+        when(userService.updateUser(any(Long.class), any(UserDTO.class))).thenThrow(new ObjectOptimisticLockingFailureException(UserDAO.class, userId));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/{id}", userId)
+                        .contentType("application/json")
+                        .content("{\"id\":1,\"name\":\"Updated User\",\"phoneNumber\":\"0987654321\",\"registrationDate\":\"" + LocalDate.now() + "\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code", is(409)))
+                .andExpect(jsonPath("$.message", is("The user with id " + userId + " was modified concurrently, please retry.")));
+    }
+
     @Test
     void partiallyUpdateUser() throws Exception {
         Long userId = 1L;
@@ -184,6 +200,19 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message", is("User not found with id: " + userId)));
     }
 
+    @Test
+    void partiallyUpdateUserModifiedConcurrently() throws Exception {
+        Long userId = 1L;
+
+        when(userService.partiallyUpdateUser(any(Long.class), any(Map.class))).thenThrow(new ObjectOptimisticLockingFailureException(UserDAO.class, userId));
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/users/{id}", userId)
+                        .contentType("application/json")
+                        .content("{\"name\":\"Partially Updated User\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code", is(409)));
+    }
+
     @Test
     void deleteUser() throws Exception {
         Long userId = 1L;
@@ -1,5 +1,8 @@
 package com.example.demo.user.service.impl;
 
+import com.example.demo.cache.CollectionVersions;
+import com.example.demo.outbox.Outbox;
+import com.example.demo.outbox.OutboxEvent;
 import com.example.demo.user.dao.UserDAO;
 import com.example.demo.user.dto.UserDTO;
 import com.example.demo.user.mapper.UserMapper;
@@ -25,6 +28,12 @@ class UserServiceImplTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private Outbox outbox;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -102,6 +111,7 @@ class UserServiceImplTest {
         assertEquals("New User", result.getName());
         assertEquals("1234567890", result.getPhoneNumber());
         assertEquals(LocalDate.now(), result.getRegistrationDate());
+        verify(outbox).record(OutboxEvent.USER, 11L, OutboxEvent.CREATED, result);
     }
 
     @Test
@@ -163,7 +173,18 @@ class UserServiceImplTest {
     @Test
     void deleteUser() {
         Long userId = 1L;
+        when(userRepository.existsById(userId)).thenReturn(true);
         doNothing().when(userRepository).deleteById(userId);
         userService.deleteUser(userId);
+        verify(outbox).record(OutboxEvent.USER, userId, OutboxEvent.DELETED, null);
+    }
+
+    @Test
+    void deleteUserNotFoundRecordsNothing() {
+        Long userId = 99L;
+        when(userRepository.existsById(userId)).thenReturn(false);
+        userService.deleteUser(userId);
+        verify(userRepository, never()).deleteById(userId);
+        verifyNoInteractions(outbox, collectionVersions);
     }
 }
\ No newline at end of file